@@ -0,0 +1,989 @@
+package dev.alexjs.dag;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+
+/**
+ * A skeletal implementation of {@link Dag}, in the spirit of {@link java.util.AbstractCollection}
+ * <p>
+ * Every read-only operation is implemented on top of a few methods that expose the nodes and edges of the DAG
+ * without copying them.
+ * Implementations only need to provide those, the mutators, and {@link Dag#clone()},
+ * and may override anything their structure can do faster.
+ *
+ * @param <E> the node type
+ */
+abstract class AbstractDag<E> implements Dag<E> {
+
+    /**
+     * Marks a node that a depth-first search's visitor chose not to go past
+     */
+    private static final int SKIPPED = -1;
+
+    /**
+     * The most nodes of a cycle named in the message of a circular dependency exception
+     */
+    private static final int MAX_REPORTED_CYCLE = 16;
+
+    /**
+     * The last dominator tree computed for this DAG, which is stale once this DAG is modified
+     */
+    private transient DominatorTree<E> dominatorTree;
+
+    /**
+     * Gets the nodes of this DAG without copying them.
+     * The result must not be modified.
+     *
+     * @return the nodes of this DAG
+     */
+    abstract Set<E> nodes();
+
+    /**
+     * Gets the outgoing nodes of the given node without copying them.
+     * The result must not be modified.
+     *
+     * @param node the node
+     * @return the outgoing nodes, or an empty collection if the node isn't in this DAG
+     */
+    abstract Collection<E> outgoing(E node);
+
+    /**
+     * Gets the incoming nodes of the given node without copying them.
+     * The result must not be modified.
+     *
+     * @param node the node
+     * @return the incoming nodes, or an empty collection if the node isn't in this DAG
+     */
+    abstract Collection<E> incoming(E node);
+
+    /**
+     * Gets the number of times this DAG has been structurally modified
+     *
+     * @return the modification count
+     */
+    abstract int modCount();
+
+    @Override
+    public abstract Dag<E> clone();
+
+    /**
+     * Gets the DAG whose storage backs this one.
+     * Views of this DAG are created over the backing DAG directly, so views of views don't stack up.
+     *
+     * @return the backing DAG
+     */
+    AbstractDag<E> backing() {
+        return this;
+    }
+
+    /**
+     * Creates a {@link HashDag} with the same nodes and edges as this DAG
+     *
+     * @return a copy of this DAG
+     */
+    HashDag<E> toHashDag() {
+        HashDag<E> copy = new HashDag<>(size());
+        for (E node : nodes()) {
+            copy.add(node);
+            for (E target : outgoing(node)) {
+                copy.put(node, target);
+            }
+        }
+        return copy;
+    }
+
+
+    /* Methods exclusive to Dag<> */
+
+    @Override
+    public boolean containsEdge(E source, E target) {
+        return contains(source) && outgoing(source).contains(target);
+    }
+
+    @Override
+    public List<E> sort() {
+
+        // https://en.wikipedia.org/wiki/Topological_sorting#Kahn's_algorithm
+        // Great for running a task on these elements in a single thread
+
+        List<E> sorted = new ArrayList<>(size());
+        TopologicalSpliterator<E> spliterator = topologicalSpliterator();
+        while (spliterator.advance(sorted::add)) {
+            // Each call visits one node, and stops early at a circular dependency instead of throwing
+        }
+
+        if (sorted.size() != size()) {
+            return null;
+        }
+
+        return sorted;
+
+    }
+
+    @Override
+    public List<E> sort(Direction direction) {
+        List<E> sorted = sort();
+        // Reversing a topological order puts every node before its incoming nodes
+        if (sorted != null && direction == Direction.BACKWARD) {
+            Collections.reverse(sorted);
+        }
+        return sorted;
+    }
+
+    @Override
+    public Set<E> getRoots() {
+        Set<E> roots = new HashSet<>();
+        for (E node : nodes()) {
+            if (inDegree(node) == 0) {
+                roots.add(node);
+            }
+        }
+        return roots;
+    }
+
+    @Override
+    public Set<E> getLeaves() {
+        Set<E> leaves = new HashSet<>();
+        for (E node : nodes()) {
+            if (outDegree(node) == 0) {
+                leaves.add(node);
+            }
+        }
+        return leaves;
+    }
+
+    @Override
+    public int inDegree(E node) {
+        return incoming(node).size();
+    }
+
+    @Override
+    public int outDegree(E node) {
+        return outgoing(node).size();
+    }
+
+    @Override
+    public Set<E> getIncoming(E node) {
+        return new HashSet<>(incoming(node));
+    }
+
+    @Override
+    public Set<E> getOutgoing(E node) {
+        return new HashSet<>(outgoing(node));
+    }
+
+    @Override
+    public Set<E> getAncestors(E node) {
+        checkForCircularDependency();
+        return closure(node, this::incoming);
+    }
+
+    @Override
+    public Set<E> getDescendants(E node) {
+        checkForCircularDependency();
+        return closure(node, this::outgoing);
+    }
+
+    @Override
+    public Set<E> getFamily(E node) {
+        checkForCircularDependency();
+        Set<E> result = closure(node, this::incoming);
+        result.addAll(closure(node, this::outgoing));
+        result.add(node);
+        return result;
+    }
+
+    @Override
+    public Set<E> getLowestCommonAncestors(E a, E b) {
+        if (!contains(a) || !contains(b)) {
+            return new HashSet<>();
+        }
+        checkForCircularDependency();
+        Set<E> common = closure(a, this::incoming);
+        common.add(a);
+        Set<E> ancestors = closure(b, this::incoming);
+        ancestors.add(b);
+        common.retainAll(ancestors);
+        // The common ancestors include every ancestor of each of them, so a lowest one has no outgoing node among them
+        Set<E> lowest = new HashSet<>();
+        for (E node : common) {
+            if (Collections.disjoint(outgoing(node), common)) {
+                lowest.add(node);
+            }
+        }
+        return lowest;
+    }
+
+    /**
+     * Gets every node reachable from the given node by repeatedly following the given edges.
+     * The given node is only included if it can reach itself.
+     *
+     * @param node      the node to start from
+     * @param adjacency gets the next nodes of a node
+     * @return the reachable nodes
+     */
+    Set<E> closure(E node, Function<E, Collection<E>> adjacency) {
+        Set<E> result = new HashSet<>();
+        List<E> stack = new ArrayList<>(adjacency.apply(node));
+        while (!stack.isEmpty()) {
+            E next = stack.remove(stack.size() - 1);
+            if (result.add(next)) {
+                stack.addAll(adjacency.apply(next));
+            }
+        }
+        return result;
+    }
+
+    void checkForCircularDependency() {
+        if (sort() == null) {
+            throw circularDependency();
+        }
+    }
+
+    @Override
+    public boolean search(E start, Direction direction, SearchOrder order, int maxDepth,
+                          DagVisitor<? super E> visitor) {
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("Maximum depth must not be negative");
+        }
+        if (!contains(start)) {
+            return false;
+        }
+        Function<E, Collection<E>> adjacency = adjacency(direction);
+        if (order == SearchOrder.BREADTH_FIRST) {
+            return breadthFirstSearch(start, adjacency, maxDepth, visitor);
+        } else {
+            return depthFirstSearch(start, adjacency, maxDepth, visitor);
+        }
+    }
+
+    private boolean breadthFirstSearch(E start, Function<E, Collection<E>> adjacency, int maxDepth,
+                                       DagVisitor<? super E> visitor) {
+        // Nodes are marked when they're queued, so each is queued once at its shallowest depth
+        Set<E> visited = new HashSet<>();
+        List<E> queue = new ArrayList<>();
+        visited.add(start);
+        queue.add(start);
+
+        int depth = 0;
+        int head = 0;
+        while (head < queue.size()) {
+            int levelEnd = queue.size();
+            for (; head < levelEnd; head++) {
+                E node = queue.get(head);
+                VisitResult result = visitor.visit(node, depth);
+                if (result == VisitResult.TERMINATE) {
+                    return true;
+                }
+                if (result == VisitResult.CONTINUE && depth < maxDepth) {
+                    for (E next : adjacency.apply(node)) {
+                        if (visited.add(next)) {
+                            queue.add(next);
+                        }
+                    }
+                }
+            }
+            depth++;
+        }
+        return false;
+    }
+
+    private boolean depthFirstSearch(E start, Function<E, Collection<E>> adjacency, int maxDepth,
+                                     DagVisitor<? super E> visitor) {
+        // Each node maps to the shallowest depth it has been expanded at, or SKIPPED if the visitor pruned it.
+        // With a depth limit, a node first reached down a long path is expanded again if a shorter path turns up,
+        // so that nodes within the limit aren't missed. The visitor still only sees each node once.
+        Map<E, Integer> visited = new HashMap<>();
+        List<E> stack = new ArrayList<>();
+        int[] depths = new int[16];
+        stack.add(start);
+        depths[0] = 0;
+
+        while (!stack.isEmpty()) {
+            int top = stack.size() - 1;
+            E node = stack.remove(top);
+            int depth = depths[top];
+
+            Integer previous = visited.get(node);
+            if (previous == null) {
+                VisitResult result = visitor.visit(node, depth);
+                if (result == VisitResult.TERMINATE) {
+                    return true;
+                }
+                if (result == VisitResult.SKIP_SUBTREE) {
+                    visited.put(node, SKIPPED);
+                    continue;
+                }
+            } else if (previous == SKIPPED || previous <= depth || maxDepth == Integer.MAX_VALUE) {
+                continue;
+            }
+            visited.put(node, depth);
+
+            if (depth < maxDepth) {
+                for (E next : adjacency.apply(node)) {
+                    Integer seen = visited.get(next);
+                    if (seen == null || (seen != SKIPPED && seen > depth + 1)) {
+                        if (stack.size() == depths.length) {
+                            depths = Arrays.copyOf(depths, depths.length * 2);
+                        }
+                        depths[stack.size()] = depth + 1;
+                        stack.add(next);
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the function that follows the edges of this DAG in the given direction without copying them
+     *
+     * @param direction the direction
+     * @return the outgoing nodes for {@link Direction#FORWARD}, or the incoming nodes for {@link Direction#BACKWARD}
+     */
+    Function<E, Collection<E>> adjacency(Direction direction) {
+        return direction == Direction.FORWARD ? this::outgoing : this::incoming;
+    }
+
+    @Override
+    public DominatorTree<E> getDominatorTree() {
+        DominatorTree<E> tree = dominatorTree;
+        if (tree == null || !tree.isCurrent()) {
+            tree = new DominatorTree<>(this);
+            dominatorTree = tree;
+        }
+        return tree;
+    }
+
+    @Override
+    public Set<E> getNodes() {
+        return new HashSet<>(nodes());
+    }
+
+    @Override
+    public Dag<E> inverted() {
+        HashDag<E> inverted = new HashDag<>(size());
+        for (E node : nodes()) {
+            inverted.add(node);
+            for (E target : outgoing(node)) {
+                inverted.put(target, node);
+            }
+        }
+        return inverted;
+    }
+
+    @Override
+    public Dag<E> union(Dag<E> other) {
+        HashDag<E> union = toHashDag();
+        union.putAll(other);
+        return union;
+    }
+
+    @Override
+    public Dag<E> intersection(Dag<E> other) {
+        // Walk the smaller operand and only keep what the larger operand also contains
+        Dag<E> smaller = size() <= other.size() ? this : other;
+        Dag<E> larger = smaller == this ? other : this;
+
+        HashDag<E> intersection = new HashDag<>();
+        for (E source : nodesOf(smaller)) {
+            if (larger.contains(source)) {
+                intersection.add(source);
+                for (E target : outgoingOf(smaller, source)) {
+                    if (larger.containsEdge(source, target)) {
+                        intersection.put(source, target);
+                    }
+                }
+            }
+        }
+        return intersection;
+    }
+
+    @Override
+    public Dag<E> difference(Dag<E> other) {
+        HashDag<E> difference = new HashDag<>(size());
+        for (E source : nodes()) {
+            difference.add(source);
+            for (E target : outgoing(source)) {
+                if (!other.containsEdge(source, target)) {
+                    difference.put(source, target);
+                }
+            }
+        }
+        return difference;
+    }
+
+    @Override
+    public boolean putAll(Dag<E> other) {
+        boolean changed = false;
+        for (E source : nodesOf(other)) {
+            changed |= putAll(source, outgoingOf(other, source));
+        }
+        return changed;
+    }
+
+    @Override
+    public boolean retainEdges(Dag<E> other) {
+        boolean changed = retainAll(other);
+        List<E> edges = new ArrayList<>();
+        for (E source : nodes()) {
+            for (E target : outgoing(source)) {
+                if (!other.containsEdge(source, target)) {
+                    edges.add(source);
+                    edges.add(target);
+                }
+            }
+        }
+        return removeEdges(edges) || changed;
+    }
+
+    @Override
+    public boolean removeEdges(Dag<E> other) {
+        List<E> edges = new ArrayList<>();
+        if (other.size() < size()) {
+            // Walk the other DAG's edges since there are fewer of its nodes to look at
+            for (E source : nodesOf(other)) {
+                for (E target : outgoingOf(other, source)) {
+                    edges.add(source);
+                    edges.add(target);
+                }
+            }
+        } else {
+            for (E source : nodes()) {
+                for (E target : outgoing(source)) {
+                    if (other.containsEdge(source, target)) {
+                        edges.add(source);
+                        edges.add(target);
+                    }
+                }
+            }
+        }
+        return removeEdges(edges);
+    }
+
+    /**
+     * Removes each edge in a flat list of alternating source and target nodes
+     *
+     * @param edges the edges to remove
+     * @return {@code true} if this DAG changed as a result of the call
+     */
+    private boolean removeEdges(List<E> edges) {
+        boolean changed = false;
+        for (int i = 0; i < edges.size(); i += 2) {
+            changed |= removeEdge(edges.get(i), edges.get(i + 1));
+        }
+        return changed;
+    }
+
+    @Override
+    public Dag<E> subDag(Set<E> nodes) {
+        Set<E> members = new HashSet<>();
+        for (E node : nodes) {
+            if (contains(node)) {
+                members.add(node);
+            }
+        }
+        return new SubDag<>(backing(), members);
+    }
+
+    @Override
+    public Dag<E> descendantSubDag(E node) {
+        Set<E> members = new HashSet<>();
+        if (contains(node)) {
+            members = closure(node, this::outgoing);
+            members.add(node);
+        }
+        return new SubDag<>(backing(), members);
+    }
+
+    @Override
+    public Dag<E> ancestorSubDag(E node) {
+        Set<E> members = new HashSet<>();
+        if (contains(node)) {
+            members = closure(node, this::incoming);
+            members.add(node);
+        }
+        return new SubDag<>(backing(), members);
+    }
+
+    @Override
+    public List<Dag<E>> components() {
+
+        // https://en.wikipedia.org/wiki/Disjoint-set_data_structure
+        // Union by size with path halving, over dense ids so the forest is two int arrays
+        int size = size();
+        Map<E, Integer> ids = Maps.newHashMapWithExpectedSize(size);
+        for (E node : nodes()) {
+            ids.put(node, ids.size());
+        }
+        int[] parent = new int[size];
+        int[] sizes = new int[size];
+        for (int id = 0; id < size; id++) {
+            parent[id] = id;
+            sizes[id] = 1;
+        }
+        for (Map.Entry<E, Integer> entry : ids.entrySet()) {
+            for (E target : outgoing(entry.getKey())) {
+                int a = find(parent, entry.getValue());
+                int b = find(parent, ids.get(target));
+                if (a != b) {
+                    if (sizes[a] < sizes[b]) {
+                        int swap = a;
+                        a = b;
+                        b = swap;
+                    }
+                    parent[b] = a;
+                    sizes[a] += sizes[b];
+                }
+            }
+        }
+
+        // Number the components in the order their first node was seen
+        int[] component = new int[size];
+        Arrays.fill(component, -1);
+        List<Set<E>> members = new ArrayList<>();
+        for (Map.Entry<E, Integer> entry : ids.entrySet()) {
+            int root = find(parent, entry.getValue());
+            if (component[root] < 0) {
+                component[root] = members.size();
+                members.add(Sets.newHashSetWithExpectedSize(sizes[root]));
+            }
+            members.get(component[root]).add(entry.getKey());
+        }
+
+        List<Dag<E>> components = new ArrayList<>(members.size());
+        for (Set<E> nodes : members) {
+            components.add(new SubDag<>(backing(), nodes));
+        }
+        return components;
+
+    }
+
+    @Override
+    public List<Set<E>> stronglyConnectedComponents() {
+        return stronglyConnectedComponents(null);
+    }
+
+    /**
+     * Finds the strongly connected components of this DAG with an iterative version of Tarjan's algorithm
+     *
+     * @param componentOf if not {@code null}, is filled with the position of each node's component in the result
+     * @return the components, ordered so that every edge between two components goes forwards
+     */
+    private List<Set<E>> stronglyConnectedComponents(Map<E, Integer> componentOf) {
+
+        // https://en.wikipedia.org/wiki/Tarjan%27s_strongly_connected_components_algorithm
+        // Nodes are numbered in the order they're found, and the call stack is kept in arrays
+        int size = size();
+        Map<E, Integer> index = Maps.newHashMapWithExpectedSize(size);
+        List<E> nodes = new ArrayList<>(size);
+        int[] low = new int[size];
+        boolean[] onStack = new boolean[size];
+        int[] stack = new int[size];
+        int stackSize = 0;
+        int[] frames = new int[size];
+        List<Iterator<E>> iterators = new ArrayList<>();
+        List<Set<E>> components = new ArrayList<>();
+
+        for (E root : nodes()) {
+            if (index.containsKey(root)) {
+                continue;
+            }
+            index.put(root, nodes.size());
+            nodes.add(root);
+            low[nodes.size() - 1] = nodes.size() - 1;
+            onStack[nodes.size() - 1] = true;
+            stack[stackSize++] = nodes.size() - 1;
+            frames[0] = nodes.size() - 1;
+            iterators.add(outgoing(root).iterator());
+            while (!iterators.isEmpty()) {
+                int depth = iterators.size() - 1;
+                int node = frames[depth];
+                Iterator<E> it = iterators.get(depth);
+                if (it.hasNext()) {
+                    E next = it.next();
+                    Integer seen = index.get(next);
+                    if (seen == null) {
+                        int id = nodes.size();
+                        index.put(next, id);
+                        nodes.add(next);
+                        low[id] = id;
+                        onStack[id] = true;
+                        stack[stackSize++] = id;
+                        frames[depth + 1] = id;
+                        iterators.add(outgoing(next).iterator());
+                    } else if (onStack[seen]) {
+                        low[node] = Math.min(low[node], seen);
+                    }
+                    continue;
+                }
+                iterators.remove(depth);
+                if (depth > 0) {
+                    low[frames[depth - 1]] = Math.min(low[frames[depth - 1]], low[node]);
+                }
+                if (low[node] == node) {
+                    Set<E> members = new HashSet<>();
+                    int member;
+                    do {
+                        member = stack[--stackSize];
+                        onStack[member] = false;
+                        members.add(nodes.get(member));
+                    } while (member != node);
+                    components.add(new ComponentSet<>(members));
+                }
+            }
+        }
+
+        // Tarjan's algorithm finds each component after every component it has an edge to
+        Collections.reverse(components);
+        if (componentOf != null) {
+            for (int i = 0; i < components.size(); i++) {
+                for (E node : components.get(i)) {
+                    componentOf.put(node, i);
+                }
+            }
+        }
+        return components;
+
+    }
+
+    @Override
+    public Dag<Set<E>> condense() {
+        Map<E, Integer> componentOf = Maps.newHashMapWithExpectedSize(size());
+        List<Set<E>> components = stronglyConnectedComponents(componentOf);
+        List<Set<Set<E>>> targets = new ArrayList<>(components.size());
+        List<Set<Set<E>>> sources = new ArrayList<>(components.size());
+        for (int i = 0; i < components.size(); i++) {
+            targets.add(new HashSet<>());
+            sources.add(new HashSet<>());
+        }
+        for (Map.Entry<E, Integer> entry : componentOf.entrySet()) {
+            int source = entry.getValue();
+            for (E node : outgoing(entry.getKey())) {
+                int target = componentOf.get(node);
+                if (source != target && targets.get(source).add(components.get(target))) {
+                    sources.get(target).add(components.get(source));
+                }
+            }
+        }
+        HashDag<Set<E>> condensed = new HashDag<>(components.size());
+        for (int i = 0; i < components.size(); i++) {
+            condensed.putNode(components.get(i), targets.get(i), sources.get(i));
+        }
+        return condensed;
+    }
+
+    @Override
+    public List<E> findCycle() {
+        for (Set<E> component : stronglyConnectedComponents()) {
+            E start = component.iterator().next();
+            if (component.size() > 1 || outgoing(start).contains(start)) {
+                return cycleThrough(start, component);
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Finds a shortest cycle through a node by searching breadth-first within its strongly connected component
+     *
+     * @param start     the node
+     * @param component the nodes of its component, which has a cycle through every node
+     * @return the cycle, starting with the given node
+     */
+    private List<E> cycleThrough(E start, Set<E> component) {
+        Map<E, E> previous = new HashMap<>();
+        List<E> queue = new ArrayList<>();
+        queue.add(start);
+        for (int head = 0; ; head++) {
+            E node = queue.get(head);
+            for (E next : outgoing(node)) {
+                if (Objects.equals(next, start)) {
+                    List<E> cycle = new ArrayList<>();
+                    for (E at = node; !Objects.equals(at, start); at = previous.get(at)) {
+                        cycle.add(at);
+                    }
+                    cycle.add(start);
+                    Collections.reverse(cycle);
+                    return cycle;
+                }
+                if (component.contains(next) && !previous.containsKey(next)) {
+                    previous.put(next, node);
+                    queue.add(next);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the exception thrown when an operation needs this DAG to have no circular dependency, but it has one.
+     * The message names one of the cycles, so it can be found without searching the DAG by hand.
+     *
+     * @return the exception
+     */
+    IllegalArgumentException circularDependency() {
+        List<E> cycle = findCycle();
+        StringBuilder message = new StringBuilder("DAG contains a circular dependency");
+        if (!cycle.isEmpty()) {
+            message.append(": ");
+            for (int i = 0; i < Math.min(cycle.size(), MAX_REPORTED_CYCLE); i++) {
+                message.append(cycle.get(i)).append(" -> ");
+            }
+            if (cycle.size() > MAX_REPORTED_CYCLE) {
+                message.append("... (").append(cycle.size()).append(" nodes) -> ");
+            }
+            message.append(cycle.get(0));
+        }
+        return new IllegalArgumentException(message.toString());
+    }
+
+    private static int find(int[] parent, int id) {
+        while (parent[id] != id) {
+            parent[id] = parent[parent[id]];
+            id = parent[id];
+        }
+        return id;
+    }
+
+    @Override
+    public Map<E, Collection<E>> toMap() {
+        Map<E, Collection<E>> copy = new HashMap<>();
+        for (E node : nodes()) {
+            copy.put(node, new HashSet<>(outgoing(node)));
+        }
+        return copy;
+    }
+
+    /**
+     * Gets the nodes of any DAG, without copying them if it's an {@link AbstractDag}
+     *
+     * @param dag the DAG
+     * @param <E> the node type
+     * @return the nodes of the DAG, which must not be modified
+     */
+    static <E> Collection<E> nodesOf(Dag<E> dag) {
+        return dag instanceof AbstractDag ? ((AbstractDag<E>) dag).nodes() : dag.getNodes();
+    }
+
+    /**
+     * Gets the outgoing nodes of a node of any DAG, without copying them if it's an {@link AbstractDag}
+     *
+     * @param dag  the DAG
+     * @param node the node
+     * @param <E>  the node type
+     * @return the outgoing nodes of the node, which must not be modified
+     */
+    static <E> Collection<E> outgoingOf(Dag<E> dag, E node) {
+        return dag instanceof AbstractDag ? ((AbstractDag<E>) dag).outgoing(node) : dag.getOutgoing(node);
+    }
+
+    /**
+     * Gets the incoming nodes of a node of any DAG, without copying them if it's an {@link AbstractDag}
+     *
+     * @param dag  the DAG
+     * @param node the node
+     * @param <E>  the node type
+     * @return the incoming nodes of the node, which must not be modified
+     */
+    static <E> Collection<E> incomingOf(Dag<E> dag, E node) {
+        return dag instanceof AbstractDag ? ((AbstractDag<E>) dag).incoming(node) : dag.getIncoming(node);
+    }
+
+
+    /* Methods from Collection<E> */
+
+    /**
+     * Returns the number of nodes this DAG contains
+     *
+     * @return the size of the DAG
+     */
+    @Override
+    public int size() {
+        return nodes().size();
+    }
+
+    /**
+     * Returns {@code true} if this DAG contains no nodes
+     *
+     * @return {@code true} if this DAG contains no nodes
+     */
+    @Override
+    public boolean isEmpty() {
+        return nodes().isEmpty();
+    }
+
+    /**
+     * Returns {@code true} if this DAG contains the specified node
+     *
+     * @param node the node whose presence is to be tested
+     * @return {@code true} if this DAG contains the specified node
+     */
+    @Override
+    public boolean contains(Object node) {
+        return nodes().contains(node);
+    }
+
+    /**
+     * Returns a {@link Iterator} over the nodes in this DAG.
+     * The iterator will return nodes in topological order.
+     *
+     * @return a {@link Iterator} over the nodes in this DAG
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return Spliterators.iterator(spliterator());
+    }
+
+    /**
+     * Returns a {@link Spliterator} over the nodes in this DAG.
+     * Nodes are produced lazily in topological order, and each split hands off a set of nodes that don't depend on
+     * each other, so {@link Dag#parallelStream()} processes independent nodes concurrently.
+     * <p>
+     * The spliterator throws an {@link IllegalArgumentException} if this DAG contains a circular dependency,
+     * and a {@link ConcurrentModificationException} if this DAG is modified while it's in use.
+     * <p>
+     * The spliterator reports {@link Spliterator#SIZED} with the number of nodes,
+     * which is only right when there's no circular dependency.
+     * A stream operation that only needs the size, like {@link java.util.stream.Stream#count()},
+     * may return {@link Dag#size()} without visiting any node, so it doesn't notice a circular dependency.
+     * Use {@link Dag#sort()} to check for one.
+     *
+     * @return a {@link Spliterator} over the nodes in this DAG
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return topologicalSpliterator();
+    }
+
+    private TopologicalSpliterator<E> topologicalSpliterator() {
+        int expectedModCount = modCount();
+        return new TopologicalSpliterator<>(
+                nodes(),
+                this::outgoing,
+                this::inDegree,
+                () -> {
+                    if (modCount() != expectedModCount) {
+                        throw new ConcurrentModificationException();
+                    }
+                }
+        );
+    }
+
+    /**
+     * Returns an array containing all the nodes in this DAG
+     *
+     * @return an array containing all the nodes in this DAG
+     */
+    @Override
+    public Object[] toArray() {
+        return sort().toArray();
+    }
+
+    /**
+     * Returns an array containing all the nodes in this DAG
+     *
+     * @param array the array into which the nodes of this DAG will be stored if it is big enough.
+     *              Otherwise, a new array of the same runtime type is allocated for this purpose.
+     * @param <T>   the type of the array to create
+     * @return an array containing all the nodes in this DAG
+     */
+    @Override
+    public <T> T[] toArray(T[] array) {
+        @SuppressWarnings("unchecked")
+        T[] sorted = (T[]) sort().toArray();
+        if (array.length < sorted.length) {
+            @SuppressWarnings("unchecked")
+            T[] result = (T[]) Arrays.copyOf(sorted, sorted.length, array.getClass());
+            return result;
+        }
+        System.arraycopy(sorted, 0, array, 0, sorted.length);
+        if (array.length > sorted.length) {
+            array[sorted.length] = null;
+        }
+        return array;
+    }
+
+    /**
+     * Returns {@code true} if this DAG contains all the elements in the specified collection
+     *
+     * @param collection the collection of nodes whose entire presence is to be tested
+     * @return {@code true} if this DAG contains all the elements in the specified collection
+     */
+    @Override
+    public boolean containsAll(Collection<?> collection) {
+        return nodes().containsAll(collection);
+    }
+
+    /**
+     * Adds each node in the specified collection to this DAG if it is not already present
+     *
+     * @param nodes the collection of nodes to be added to this DAG
+     * @return {@code true} if this DAG changed as a result of the call
+     */
+    @Override
+    public boolean addAll(Collection<? extends E> nodes) {
+        boolean changed = false;
+        for (E node : nodes) {
+            changed |= add(node);
+        }
+        return changed;
+    }
+
+    /**
+     * Removes each node in the specified collection and all their incoming and outgoing edges from this DAG
+     *
+     * @param nodes the collection of nodes to be removed from this DAG, if present
+     * @return {@code true} if this DAG changed as a result of the call
+     */
+    @Override
+    public boolean removeAll(Collection<?> nodes) {
+        boolean changed = false;
+        for (Object node : nodes) {
+            changed |= remove(node);
+        }
+        return changed;
+    }
+
+    /**
+     * Retains only the nodes in this DAG that are also present in the specified collection
+     *
+     * @param collection the collection containing the nodes to be retained in this DAG
+     * @return {@code true} if this collection changed as a result of the call
+     */
+    @Override
+    public boolean retainAll(Collection<?> collection) {
+        // Collect the nodes to be removed
+        List<E> remove = new ArrayList<>();
+        for (E node : nodes()) {
+            if (!collection.contains(node)) {
+                remove.add(node);
+            }
+        }
+
+        // Remove them
+        boolean changed = false;
+        for (E node : remove) {
+            remove(node);
+            changed = true;
+        }
+
+        return changed;
+    }
+
+}
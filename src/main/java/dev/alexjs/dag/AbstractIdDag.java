@@ -0,0 +1,285 @@
+package dev.alexjs.dag;
+
+import com.google.common.collect.Sets;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * A skeletal implementation of {@link Dag} for DAGs that give each node a dense integer id when it's added
+ * <p>
+ * Sorting, closures and components run over the ids alone, so the nodes' {@link Object#hashCode()} and
+ * {@link Object#equals(Object)} are only called to look up the nodes passed in, and to build the sets handed back.
+ * {@link DagTraversalTask} also keeps its bookkeeping in arrays indexed by id when it traverses one of these DAGs.
+ * <p>
+ * Ids are less than {@link AbstractIdDag#idBound()}, and the id of a removed node may be given to a new one.
+ *
+ * @param <E> the node type
+ */
+abstract class AbstractIdDag<E> extends AbstractDag<E> {
+
+    /**
+     * Gets the id of a node
+     *
+     * @param node the node
+     * @return the id, or {@code -1} if the node isn't in this DAG
+     */
+    abstract int id(Object node);
+
+    /**
+     * Gets the node with the given id
+     *
+     * @param id the id of a node in this DAG
+     * @return the node
+     */
+    abstract E node(int id);
+
+    /**
+     * Gets a bound on the ids of the nodes in this DAG
+     *
+     * @return one more than the highest id that may be in use
+     */
+    abstract int idBound();
+
+    /**
+     * Gets the ids of the nodes in this DAG without copying them.
+     * The result must not be modified.
+     *
+     * @return the ids in use
+     */
+    abstract Collection<Integer> ids();
+
+    /**
+     * Calls the given action with the id of each outgoing node of a node
+     *
+     * @param id     the id of the node
+     * @param action the action to call
+     */
+    abstract void forEachOutgoing(int id, IntConsumer action);
+
+    /**
+     * Calls the given action with the id of each incoming node of a node
+     *
+     * @param id     the id of the node
+     * @param action the action to call
+     */
+    abstract void forEachIncoming(int id, IntConsumer action);
+
+    /**
+     * Gets the number of incoming nodes of a node
+     *
+     * @param id the id of the node
+     * @return the in-degree of the node
+     */
+    abstract int inDegree(int id);
+
+    @Override
+    public int inDegree(E node) {
+        int id = id(node);
+        return id < 0 ? 0 : inDegree(id);
+    }
+
+    /**
+     * Orders the ids of the nodes of this DAG topologically
+     *
+     * @return the ordered ids
+     * @throws IllegalArgumentException if this DAG contains a circular dependency
+     */
+    int[] topologicalOrder() {
+        int[] order = new int[size()];
+        if (topologicalOrder(order) != order.length) {
+            throw circularDependency();
+        }
+        return order;
+    }
+
+    /**
+     * Orders as many ids as possible topologically
+     *
+     * @param order the array to fill, with room for every node
+     * @return the number of ordered ids, which is less than the size of this DAG if there's a circular dependency
+     */
+    private int topologicalOrder(int[] order) {
+
+        // https://en.wikipedia.org/wiki/Topological_sorting#Kahn's_algorithm
+
+        int[] remaining = new int[idBound()];
+        int tail = 0;
+        for (int id : ids()) {
+            remaining[id] = inDegree(id);
+            if (remaining[id] == 0) {
+                order[tail++] = id;
+            }
+        }
+        int[] end = {tail};
+        for (int head = 0; head < end[0]; head++) {
+            forEachOutgoing(order[head], target -> {
+                if (--remaining[target] == 0) {
+                    order[end[0]++] = target;
+                }
+            });
+        }
+        return end[0];
+    }
+
+    @Override
+    public List<E> sort() {
+        int[] order = new int[size()];
+        if (topologicalOrder(order) != order.length) {
+            return null;
+        }
+        List<E> sorted = new ArrayList<>(order.length);
+        for (int id : order) {
+            sorted.add(node(id));
+        }
+        return sorted;
+    }
+
+    @Override
+    void checkForCircularDependency() {
+        topologicalOrder();
+    }
+
+    @Override
+    public Set<E> getAncestors(E node) {
+        checkForCircularDependency();
+        return toSet(reach(id(node), false));
+    }
+
+    @Override
+    public Set<E> getDescendants(E node) {
+        checkForCircularDependency();
+        return toSet(reach(id(node), true));
+    }
+
+    /**
+     * Marks every id reachable from the given id by repeatedly following edges in one direction
+     *
+     * @param start   the id to start from, or {@code -1} for none
+     * @param forward whether to follow outgoing edges rather than incoming ones
+     * @return whether each id was reached, which is only {@code true} for {@code start} if it can reach itself
+     */
+    private boolean[] reach(int start, boolean forward) {
+        boolean[] reached = new boolean[idBound()];
+        if (start < 0) {
+            return reached;
+        }
+        // Each id is pushed once, when it's first reached
+        int[] stack = new int[reached.length];
+        int[] size = {0};
+        IntConsumer push = next -> {
+            if (!reached[next]) {
+                reached[next] = true;
+                stack[size[0]++] = next;
+            }
+        };
+        int id = start;
+        while (true) {
+            if (forward) {
+                forEachOutgoing(id, push);
+            } else {
+                forEachIncoming(id, push);
+            }
+            if (size[0] == 0) {
+                return reached;
+            }
+            id = stack[--size[0]];
+        }
+    }
+
+    private Set<E> toSet(boolean[] reached) {
+        int count = 0;
+        for (boolean marked : reached) {
+            if (marked) {
+                count++;
+            }
+        }
+        Set<E> set = Sets.newHashSetWithExpectedSize(count);
+        for (int id = 0; id < reached.length; id++) {
+            if (reached[id]) {
+                set.add(node(id));
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Numbers the weakly connected components of this DAG
+     *
+     * @return the component of each id, numbered from 0 in the order their first id is seen in {@link #ids()},
+     * with {@code -1} for ids that aren't in use
+     */
+    int[] componentIds() {
+
+        // https://en.wikipedia.org/wiki/Disjoint-set_data_structure
+        // Union by size with path halving, like AbstractDag#components() but without looking up any node
+        int bound = idBound();
+        int[] parent = new int[bound];
+        int[] sizes = new int[bound];
+        for (int id = 0; id < bound; id++) {
+            parent[id] = id;
+            sizes[id] = 1;
+        }
+        for (int id : ids()) {
+            int source = id;
+            forEachOutgoing(id, target -> {
+                int a = find(parent, source);
+                int b = find(parent, target);
+                if (a != b) {
+                    if (sizes[a] < sizes[b]) {
+                        int swap = a;
+                        a = b;
+                        b = swap;
+                    }
+                    parent[b] = a;
+                    sizes[a] += sizes[b];
+                }
+            });
+        }
+
+        int[] component = new int[bound];
+        Arrays.fill(component, -1);
+        int[] numbers = new int[bound];
+        Arrays.fill(numbers, -1);
+        int count = 0;
+        for (int id : ids()) {
+            int root = find(parent, id);
+            if (numbers[root] < 0) {
+                numbers[root] = count++;
+            }
+            component[id] = numbers[root];
+        }
+        return component;
+    }
+
+    private static int find(int[] parent, int id) {
+        while (parent[id] != id) {
+            parent[id] = parent[parent[id]];
+            id = parent[id];
+        }
+        return id;
+    }
+
+    @Override
+    public List<Dag<E>> components() {
+        int[] component = componentIds();
+        List<Set<E>> members = new ArrayList<>();
+        for (int id : ids()) {
+            int number = component[id];
+            if (number == members.size()) {
+                members.add(Sets.newHashSet());
+            }
+            members.get(number).add(node(id));
+        }
+        List<Dag<E>> components = new ArrayList<>(members.size());
+        for (Set<E> nodes : members) {
+            components.add(new SubDag<>(backing(), nodes));
+        }
+        return components;
+    }
+
+}
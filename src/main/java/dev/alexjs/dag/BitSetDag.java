@@ -0,0 +1,792 @@
+package dev.alexjs.dag;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * An implementation of {@link Dag} for dense graphs, where each node's edges are stored as bitsets
+ * <p>
+ * Each node is given a dense integer id when it's added,
+ * and its outgoing and incoming nodes are stored as {@code long[]} rows with one bit per id,
+ * so an edge costs two bits once a large share of all possible edges is present.
+ * Reachability and set operations work on 64 nodes at a time:
+ * {@link BitSetDag#getDescendants(Object)} and {@link BitSetDag#getAncestors(Object)} OR whole rows together,
+ * and {@link BitSetDag#union(Dag)}, {@link BitSetDag#intersection(Dag)} and {@link BitSetDag#difference(Dag)}
+ * with another {@link BitSetDag} OR, AND and AND NOT rows word by word.
+ * Those are fastest between DAGs whose nodes have the same ids, such as a DAG and its clones,
+ * since the rows of the other DAG don't have to be translated first.
+ * <p>
+ * A row is as long as the highest id it holds, so a sparse DAG with many nodes is better off as a {@link HashDag}.
+ *
+ * @param <E> the node type
+ */
+public class BitSetDag<E> extends AbstractIdDag<E> {
+
+    private static final long[] NO_WORDS = new long[0];
+
+    private final Map<E, Integer> ids;
+    private Object[] nodes;
+    private long[][] targets;
+    private long[][] sources;
+    private int[] freeIds;
+    private int freeCount;
+    private int nextId;
+    private transient int modCount;
+
+    /**
+     * Constructs an empty {@link BitSetDag}
+     */
+    public BitSetDag() {
+        this(16);
+    }
+
+    /**
+     * Constructs an empty {@link BitSetDag} with room for the given number of nodes
+     *
+     * @param expectedSize the number of nodes this DAG is expected to have
+     */
+    public BitSetDag(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size must not be negative");
+        }
+        this.ids = Maps.newHashMapWithExpectedSize(expectedSize);
+        allocate(expectedSize);
+    }
+
+    /**
+     * Creates a new DAG with the same nodes and edges as the given DAG
+     *
+     * @param dag the DAG to copy
+     */
+    public BitSetDag(Dag<E> dag) {
+        this(dag.size());
+        putAll(dag);
+    }
+
+    /**
+     * Creates a new DAG with the same nodes, ids and edges as the given {@link BitSetDag}
+     *
+     * @param other the DAG to copy
+     */
+    private BitSetDag(BitSetDag<E> other) {
+        this.ids = new HashMap<>(other.ids);
+        this.nodes = other.nodes.clone();
+        this.targets = new long[other.targets.length][];
+        this.sources = new long[other.sources.length][];
+        for (int id = 0; id < other.nextId; id++) {
+            this.targets[id] = other.targets[id].clone();
+            this.sources[id] = other.sources[id].clone();
+        }
+        this.freeIds = other.freeIds.clone();
+        this.freeCount = other.freeCount;
+        this.nextId = other.nextId;
+    }
+
+    private void allocate(int capacity) {
+        this.nodes = new Object[capacity];
+        this.targets = new long[capacity][];
+        this.sources = new long[capacity][];
+        this.freeIds = new int[0];
+        this.freeCount = 0;
+        this.nextId = 0;
+    }
+
+
+    /* Methods exclusive to Dag<> */
+
+    @Override
+    public boolean put(E source, E target) {
+        int sourceId = id(source);
+        boolean changed = sourceId < 0;
+        if (changed) {
+            sourceId = intern(source);
+        }
+        int targetId = id(target);
+        if (targetId < 0) {
+            targetId = intern(target);
+            changed = true;
+        }
+        if (test(targets[sourceId], targetId)) {
+            return changed;
+        }
+        targets[sourceId] = set(targets[sourceId], targetId);
+        sources[targetId] = set(sources[targetId], sourceId);
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean putAll(E source, Collection<E> targets) {
+        boolean changed = false;
+        if (!targets.isEmpty()) {
+            for (E target : targets) {
+                changed |= put(source, target);
+            }
+        } else {
+            changed = add(source);
+        }
+        return changed;
+    }
+
+    @Override
+    public boolean removeEdge(E source, E target) {
+        int sourceId = id(source);
+        int targetId = id(target);
+        if (sourceId < 0 || targetId < 0 || !test(targets[sourceId], targetId)) {
+            return false;
+        }
+        clear(targets[sourceId], targetId);
+        clear(sources[targetId], sourceId);
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean containsEdge(E source, E target) {
+        int sourceId = id(source);
+        int targetId = id(target);
+        return sourceId >= 0 && targetId >= 0 && test(targets[sourceId], targetId);
+    }
+
+    @Override
+    public Set<E> getAncestors(E node) {
+        checkForCircularDependency();
+        return toSet(reach(id(node), sources));
+    }
+
+    @Override
+    public Set<E> getDescendants(E node) {
+        checkForCircularDependency();
+        return toSet(reach(id(node), targets));
+    }
+
+    @Override
+    public Set<E> getFamily(E node) {
+        checkForCircularDependency();
+        int id = id(node);
+        long[] family = reach(id, sources);
+        long[] descendants = reach(id, targets);
+        for (int word = 0; word < family.length; word++) {
+            family[word] |= descendants[word];
+        }
+        Set<E> result = toSet(family);
+        result.add(node);
+        return result;
+    }
+
+    /**
+     * Gets the ids of every node reachable from the given node by repeatedly following the given rows.
+     * Each node's row is ORed into the result a word at a time, and only the newly reached ids are followed.
+     *
+     * @param start the id to start from, or {@code -1} for none
+     * @param rows  the outgoing or incoming rows
+     * @return the reachable ids, which only include {@code start} if it can reach itself
+     */
+    private long[] reach(int start, long[][] rows) {
+        long[] reached = new long[words(nextId)];
+        if (start < 0) {
+            return reached;
+        }
+        // Each id is pushed once, when it's first reached
+        int[] stack = new int[nextId];
+        int size = 0;
+        int id = start;
+        while (true) {
+            long[] row = rows[id];
+            // Rows may be longer than the ids in use, but no bit past the last id in use is ever set
+            int words = Math.min(row.length, reached.length);
+            for (int word = 0; word < words; word++) {
+                long fresh = row[word] & ~reached[word];
+                if (fresh != 0) {
+                    reached[word] |= fresh;
+                    for (; fresh != 0; fresh &= fresh - 1) {
+                        stack[size++] = (word << 6) + Long.numberOfTrailingZeros(fresh);
+                    }
+                }
+            }
+            if (size == 0) {
+                return reached;
+            }
+            id = stack[--size];
+        }
+    }
+
+    @Override
+    public Dag<E> inverted() {
+        BitSetDag<E> inverted = new BitSetDag<>(this);
+        long[][] swap = inverted.targets;
+        inverted.targets = inverted.sources;
+        inverted.sources = swap;
+        return inverted;
+    }
+
+    /**
+     * Creates a DAG that is the union of this DAG and the given DAG.
+     * The union is a {@link BitSetDag} with the same ids as this DAG.
+     *
+     * @param other the other graph
+     * @return the union
+     */
+    @Override
+    public Dag<E> union(Dag<E> other) {
+        BitSetDag<E> union = new BitSetDag<>(this);
+        union.putAll(other);
+        return union;
+    }
+
+    /**
+     * Creates a DAG that is the intersection of this DAG and the given DAG.
+     * The intersection is a {@link BitSetDag} with the same ids as this DAG.
+     *
+     * @param other the other graph
+     * @return the intersection
+     */
+    @Override
+    public Dag<E> intersection(Dag<E> other) {
+        BitSetDag<E> intersection = new BitSetDag<>(this);
+        intersection.retainEdges(other);
+        return intersection;
+    }
+
+    /**
+     * Creates a DAG that is the difference of this DAG and the given DAG.
+     * The difference is a {@link BitSetDag} with the same ids as this DAG.
+     *
+     * @param other the other graph
+     * @return the difference
+     */
+    @Override
+    public Dag<E> difference(Dag<E> other) {
+        BitSetDag<E> difference = new BitSetDag<>(this);
+        difference.removeEdges(other);
+        return difference;
+    }
+
+    @Override
+    public boolean putAll(Dag<E> other) {
+        if (!(other instanceof BitSetDag)) {
+            return super.putAll(other);
+        }
+        BitSetDag<E> bits = (BitSetDag<E>) other;
+        int sizeBefore = size();
+        int[] map = mapIds(bits, true);
+        boolean changed = size() != sizeBefore;
+        for (int otherId : bits.ids.values()) {
+            int id = map == null ? otherId : map[otherId];
+            changed |= or(targets, id, translate(bits.targets[otherId], map));
+            changed |= or(sources, id, translate(bits.sources[otherId], map));
+        }
+        if (changed) {
+            modCount++;
+        }
+        return changed;
+    }
+
+    @Override
+    public boolean retainEdges(Dag<E> other) {
+        if (!(other instanceof BitSetDag)) {
+            return super.retainEdges(other);
+        }
+        BitSetDag<E> bits = (BitSetDag<E>) other;
+        // Every node left is also in the other DAG, so each of them gets its row ANDed below
+        boolean changed = retainAll(other);
+        int[] map = mapIds(bits, false);
+        boolean edgesChanged = false;
+        for (int otherId : bits.ids.values()) {
+            int id = map == null ? otherId : map[otherId];
+            if (id >= 0) {
+                edgesChanged |= and(targets[id], translate(bits.targets[otherId], map), false);
+                edgesChanged |= and(sources[id], translate(bits.sources[otherId], map), false);
+            }
+        }
+        if (edgesChanged) {
+            modCount++;
+        }
+        return changed || edgesChanged;
+    }
+
+    @Override
+    public boolean removeEdges(Dag<E> other) {
+        if (!(other instanceof BitSetDag)) {
+            return super.removeEdges(other);
+        }
+        BitSetDag<E> bits = (BitSetDag<E>) other;
+        int[] map = mapIds(bits, false);
+        boolean changed = false;
+        for (int otherId : bits.ids.values()) {
+            int id = map == null ? otherId : map[otherId];
+            if (id >= 0) {
+                changed |= and(targets[id], translate(bits.targets[otherId], map), true);
+                changed |= and(sources[id], translate(bits.sources[otherId], map), true);
+            }
+        }
+        if (changed) {
+            modCount++;
+        }
+        return changed;
+    }
+
+    @Override
+    Set<E> nodes() {
+        return Collections.unmodifiableSet(ids.keySet());
+    }
+
+    @Override
+    Collection<E> outgoing(E node) {
+        int id = id(node);
+        return id < 0 ? Collections.emptySet() : new RowView(id, true);
+    }
+
+    @Override
+    Collection<E> incoming(E node) {
+        int id = id(node);
+        return id < 0 ? Collections.emptySet() : new RowView(id, false);
+    }
+
+    @Override
+    int inDegree(int id) {
+        return count(sources[id]);
+    }
+
+    @Override
+    int idBound() {
+        return nextId;
+    }
+
+    @Override
+    Collection<Integer> ids() {
+        return ids.values();
+    }
+
+    @Override
+    void forEachOutgoing(int id, IntConsumer action) {
+        forEach(targets[id], action);
+    }
+
+    @Override
+    void forEachIncoming(int id, IntConsumer action) {
+        forEach(sources[id], action);
+    }
+
+    private static void forEach(long[] row, IntConsumer action) {
+        for (int word = 0; word < row.length; word++) {
+            for (long bits = row[word]; bits != 0; bits &= bits - 1) {
+                action.accept((word << 6) + Long.numberOfTrailingZeros(bits));
+            }
+        }
+    }
+
+    @Override
+    int modCount() {
+        return modCount;
+    }
+
+
+    /* Methods from Collection<E> */
+
+    /**
+     * Returns the number of nodes this DAG contains
+     *
+     * @return the size of the DAG
+     */
+    @Override
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * Returns {@code true} if this DAG contains no nodes
+     *
+     * @return {@code true} if this DAG contains no nodes
+     */
+    @Override
+    public boolean isEmpty() {
+        return ids.isEmpty();
+    }
+
+    /**
+     * Returns {@code true} if this DAG contains the specified node
+     *
+     * @param node the node whose presence is to be tested
+     * @return {@code true} if this DAG contains the specified node
+     */
+    @Override
+    public boolean contains(Object node) {
+        return ids.containsKey(node);
+    }
+
+    /**
+     * Adds a single node to this DAG
+     *
+     * @param node the node to add
+     * @return {@code true} if this DAG changed as a result of the call
+     */
+    @Override
+    public boolean add(E node) {
+        if (ids.containsKey(node)) {
+            return false;
+        }
+        intern(node);
+        return true;
+    }
+
+    /**
+     * Removes a node and all its incoming and outgoing edges from this DAG
+     *
+     * @param node the node to be removed from this DAG, if present
+     * @return {@code true} if the node was removed as a result of the call
+     */
+    @Override
+    public boolean remove(Object node) {
+        Integer boxed = ids.remove(node);
+        if (boxed == null) {
+            return false;
+        }
+        int id = boxed;
+        long[] row = targets[id];
+        for (int word = 0; word < row.length; word++) {
+            for (long bits = row[word]; bits != 0; bits &= bits - 1) {
+                clear(sources[(word << 6) + Long.numberOfTrailingZeros(bits)], id);
+            }
+        }
+        row = sources[id];
+        for (int word = 0; word < row.length; word++) {
+            for (long bits = row[word]; bits != 0; bits &= bits - 1) {
+                clear(targets[(word << 6) + Long.numberOfTrailingZeros(bits)], id);
+            }
+        }
+
+        nodes[id] = null;
+        targets[id] = NO_WORDS;
+        sources[id] = NO_WORDS;
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, Math.max(4, freeCount * 2));
+        }
+        freeIds[freeCount++] = id;
+
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Removes all the nodes from this DAG
+     */
+    @Override
+    public void clear() {
+        ids.clear();
+        allocate(16);
+        modCount++;
+    }
+
+    /**
+     * Compares the specified object with this DAG for equality.
+     * Two bitset DAGs are equal if they have the same nodes and the same edges, whatever ids their nodes have.
+     *
+     * @param o object to be compared for equality with this collection
+     * @return {@code true} if the specified object is equal to this DAG
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        @SuppressWarnings("unchecked")
+        BitSetDag<E> other = (BitSetDag<E>) o;
+        if (!ids.keySet().equals(other.ids.keySet())) {
+            return false;
+        }
+        for (Map.Entry<E, Integer> entry : ids.entrySet()) {
+            long[] row = targets[entry.getValue()];
+            long[] otherRow = other.targets[other.ids.get(entry.getKey())];
+            if (count(row) != count(otherRow)) {
+                return false;
+            }
+            for (int word = 0; word < row.length; word++) {
+                for (long bits = row[word]; bits != 0; bits &= bits - 1) {
+                    E target = node((word << 6) + Long.numberOfTrailingZeros(bits));
+                    if (!test(otherRow, other.id(target))) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hash code value for this DAG.
+     * This is the sum of the hash codes of every node and of every edge, as given by {@link Edge#hashCode()}.
+     *
+     * @return the hash code value for this DAG
+     */
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (Map.Entry<E, Integer> entry : ids.entrySet()) {
+            hash += Objects.hashCode(entry.getKey());
+            long[] row = targets[entry.getValue()];
+            for (int word = 0; word < row.length; word++) {
+                for (long bits = row[word]; bits != 0; bits &= bits - 1) {
+                    hash += Objects.hash(entry.getKey(), node((word << 6) + Long.numberOfTrailingZeros(bits)));
+                }
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Creates a shallow copy of this DAG, with the same ids for its nodes.
+     * Mutations to a node in the copy will result in mutations to the node in the original DAG.
+     *
+     * @return a shallow copy of this DAG
+     */
+    @Override
+    public Dag<E> clone() {
+        return new BitSetDag<>(this);
+    }
+
+
+    /* Id bookkeeping */
+
+    @Override
+    int id(Object node) {
+        Integer id = ids.get(node);
+        return id == null ? -1 : id;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    E node(int id) {
+        return (E) nodes[id];
+    }
+
+    private int intern(E node) {
+        int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            if (nextId == nodes.length) {
+                int capacity = Math.max(16, nextId * 2);
+                nodes = Arrays.copyOf(nodes, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+                sources = Arrays.copyOf(sources, capacity);
+            }
+            id = nextId++;
+        }
+        nodes[id] = node;
+        targets[id] = NO_WORDS;
+        sources[id] = NO_WORDS;
+        ids.put(node, id);
+        modCount++;
+        return id;
+    }
+
+    /**
+     * Maps the ids of another DAG's nodes to the ids of the same nodes in this DAG
+     *
+     * @param other the other DAG
+     * @param add   whether to add the nodes this DAG doesn't contain yet
+     * @return the id in this DAG of each id in the other DAG, which is {@code -1} for nodes this DAG doesn't contain,
+     * or {@code null} if every node of the other DAG has the same id in this DAG
+     */
+    private int[] mapIds(BitSetDag<E> other, boolean add) {
+        int[] map = new int[other.nextId];
+        Arrays.fill(map, -1);
+        boolean identity = true;
+        for (Map.Entry<E, Integer> entry : other.ids.entrySet()) {
+            int id = id(entry.getKey());
+            if (id < 0 && add) {
+                id = intern(entry.getKey());
+            }
+            map[entry.getValue()] = id;
+            identity &= id == entry.getValue();
+        }
+        return identity ? null : map;
+    }
+
+    /**
+     * Rewrites a row of another DAG with the ids of this DAG
+     *
+     * @param row the other DAG's row
+     * @param map the mapping from {@link BitSetDag#mapIds(BitSetDag, boolean)}
+     * @return the row in this DAG's ids, which is the given row itself if the ids are the same
+     */
+    private long[] translate(long[] row, int[] map) {
+        if (map == null) {
+            return row;
+        }
+        long[] translated = new long[words(nextId)];
+        for (int word = 0; word < row.length; word++) {
+            for (long bits = row[word]; bits != 0; bits &= bits - 1) {
+                int id = map[(word << 6) + Long.numberOfTrailingZeros(bits)];
+                if (id >= 0) {
+                    translated[id >>> 6] |= 1L << id;
+                }
+            }
+        }
+        return translated;
+    }
+
+    private static boolean or(long[][] rows, int id, long[] row) {
+        long[] into = rows[id];
+        if (row.length > into.length) {
+            into = Arrays.copyOf(into, row.length);
+            rows[id] = into;
+        }
+        boolean changed = false;
+        for (int word = 0; word < row.length; word++) {
+            long merged = into[word] | row[word];
+            if (merged != into[word]) {
+                into[word] = merged;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * ANDs a row into another, or ANDs in its complement
+     *
+     * @param into   the row to change
+     * @param row    the row to AND in
+     * @param invert whether to AND in the complement of {@code row} instead
+     * @return {@code true} if {@code into} changed
+     */
+    private static boolean and(long[] into, long[] row, boolean invert) {
+        boolean changed = false;
+        for (int word = 0; word < into.length; word++) {
+            long other = word < row.length ? row[word] : 0;
+            long kept = into[word] & (invert ? ~other : other);
+            if (kept != into[word]) {
+                into[word] = kept;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private Set<E> toSet(long[] row) {
+        Set<E> set = Sets.newHashSetWithExpectedSize(count(row));
+        for (int word = 0; word < row.length; word++) {
+            for (long bits = row[word]; bits != 0; bits &= bits - 1) {
+                set.add(node((word << 6) + Long.numberOfTrailingZeros(bits)));
+            }
+        }
+        return set;
+    }
+
+    private static int words(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    private static boolean test(long[] row, int id) {
+        int word = id >>> 6;
+        return word < row.length && (row[word] & 1L << id) != 0;
+    }
+
+    private long[] set(long[] row, int id) {
+        int word = id >>> 6;
+        if (word >= row.length) {
+            // Grow geometrically, but never past the words needed for every id this DAG has room for
+            row = Arrays.copyOf(row, Math.min(Math.max(word + 1, row.length * 2), words(nodes.length)));
+        }
+        row[word] |= 1L << id;
+        return row;
+    }
+
+    private static void clear(long[] row, int id) {
+        int word = id >>> 6;
+        if (word < row.length) {
+            row[word] &= ~(1L << id);
+        }
+    }
+
+    private static int count(long[] row) {
+        int count = 0;
+        for (long word : row) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * A read-only view of the outgoing or incoming nodes of a node, read straight from its row
+     */
+    private class RowView extends AbstractCollection<E> {
+
+        private final int id;
+        private final boolean outgoing;
+
+        RowView(int id, boolean outgoing) {
+            this.id = id;
+            this.outgoing = outgoing;
+        }
+
+        private long[] row() {
+            return (outgoing ? targets : sources)[id];
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            long[] row = row();
+            return new Iterator<E>() {
+
+                private int word = -1;
+                private long bits;
+
+                @Override
+                public boolean hasNext() {
+                    while (bits == 0 && word + 1 < row.length) {
+                        bits = row[++word];
+                    }
+                    return bits != 0;
+                }
+
+                @Override
+                public E next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    int next = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    return node(next);
+                }
+
+            };
+        }
+
+        @Override
+        public int size() {
+            return count(row());
+        }
+
+        @Override
+        public boolean isEmpty() {
+            for (long word : row()) {
+                if (word != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean contains(Object node) {
+            int other = id(node);
+            return other >= 0 && test(row(), other);
+        }
+
+    }
+
+}
@@ -0,0 +1,58 @@
+package dev.alexjs.dag;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * The read-only set of nodes in one strongly connected component, used as a node of a condensed DAG
+ * <p>
+ * The hash code is computed once, so looking a component up in the condensation doesn't hash all its nodes again.
+ *
+ * @param <E> the node type
+ */
+final class ComponentSet<E> extends AbstractSet<E> implements Serializable {
+
+    private final Set<E> nodes;
+    private final int hash;
+
+    /**
+     * Wraps the nodes of a component, which must not be modified afterwards
+     *
+     * @param nodes the nodes
+     */
+    ComponentSet(Set<E> nodes) {
+        this.nodes = nodes;
+        this.hash = nodes.hashCode();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return Collections.unmodifiableSet(nodes).iterator();
+    }
+
+    @Override
+    public int size() {
+        return nodes.size();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return nodes.contains(o);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o instanceof ComponentSet && ((ComponentSet<?>) o).hash != hash) return false;
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+}
@@ -1,13 +1,20 @@
 package dev.alexjs.dag;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 /**
  * A Directed Acyclic Graph with the spirit of something in the Java Collections Framework
+ * <p>
+ * Only the basic operations have to be implemented.
+ * The rest have default implementations built on {@link Dag#getOutgoing(Object)}, {@link Dag#getIncoming(Object)}
+ * and {@link Dag#sort()}, which copy the edges they read, so implementations should override them where they can.
  *
  * @param <E> The node type
  */
@@ -43,6 +50,17 @@ public interface Dag<E> extends Collection<E>, Cloneable, Serializable {
      */
     boolean removeEdge(E source, E target);
 
+    /**
+     * Returns {@code true} if this DAG contains an edge from {@code source} to {@code target}
+     *
+     * @param source the source node
+     * @param target the target node
+     * @return {@code true} if this DAG contains the edge
+     */
+    default boolean containsEdge(E source, E target) {
+        return contains(source) && getOutgoing(source).contains(target);
+    }
+
     /**
      * Orders the nodes of this DAG such that each node comes before its outgoing nodes in the ordering
      *
@@ -51,6 +69,23 @@ public interface Dag<E> extends Collection<E>, Cloneable, Serializable {
      */
     List<E> sort();
 
+    /**
+     * Orders the nodes of this DAG topologically in the given direction.
+     * {@link Direction#BACKWARD} puts each node before its incoming nodes, so the leaves come first,
+     * without building an {@link Dag#inverted()} copy.
+     *
+     * @param direction whether each node comes before its outgoing or its incoming nodes
+     * @return a list of nodes in that order, or {@code null} if there's a circular dependency
+     */
+    default List<E> sort(Direction direction) {
+        List<E> sorted = sort();
+        // Reversing a topological order puts every node before its incoming nodes
+        if (sorted != null && direction == Direction.BACKWARD) {
+            Collections.reverse(sorted);
+        }
+        return sorted;
+    }
+
     /**
      * Gets the nodes of this DAG that have no incoming edges
      *
@@ -65,6 +100,26 @@ public interface Dag<E> extends Collection<E>, Cloneable, Serializable {
      */
     Set<E> getLeaves();
 
+    /**
+     * Gets the number of incoming edges of the given node without copying them
+     *
+     * @param node the node
+     * @return the in-degree of the node, or {@code 0} if the node isn't in this DAG
+     */
+    default int inDegree(E node) {
+        return contains(node) ? getIncoming(node).size() : 0;
+    }
+
+    /**
+     * Gets the number of outgoing edges of the given node without copying them
+     *
+     * @param node the node
+     * @return the out-degree of the node, or {@code 0} if the node isn't in this DAG
+     */
+    default int outDegree(E node) {
+        return contains(node) ? getOutgoing(node).size() : 0;
+    }
+
     /**
      * Gets the nodes of the given node's incoming edges
      *
@@ -106,6 +161,74 @@ public interface Dag<E> extends Collection<E>, Cloneable, Serializable {
      */
     Set<E> getFamily(E node);
 
+    /**
+     * Gets the lowest common ancestors of two nodes, which are their merge-bases.
+     * A node counts as one of its own ancestors here, so if one node can reach the other, it's the only result.
+     * Otherwise each result is an ancestor of both nodes, and none of the results is an ancestor of another.
+     * There can be more than one, like {@code git merge-base --all}.
+     * <p>
+     * This is not the same as {@link DominatorTree#getLowestCommonDominator(Object, Object)},
+     * which only finds a node that every path from a root to both nodes goes through.
+     *
+     * @param a the first node
+     * @param b the second node
+     * @return the lowest common ancestors, or an empty set if the nodes have no common ancestor
+     * or either isn't in this DAG
+     * @throws IllegalArgumentException if this DAG contains a circular dependency
+     */
+    default Set<E> getLowestCommonAncestors(E a, E b) {
+        if (!contains(a) || !contains(b)) {
+            return new HashSet<>();
+        }
+        Set<E> common = getAncestors(a);
+        common.add(a);
+        Set<E> ancestors = getAncestors(b);
+        ancestors.add(b);
+        common.retainAll(ancestors);
+        // The common ancestors include every ancestor of each of them, so a lowest one has no outgoing node among them
+        Set<E> lowest = new HashSet<>();
+        for (E node : common) {
+            if (Collections.disjoint(getOutgoing(node), common)) {
+                lowest.add(node);
+            }
+        }
+        return lowest;
+    }
+
+    /**
+     * Searches this DAG starting from the given node, which is visited first at depth {@code 0}.
+     * Each node is visited at most once, and only the part of this DAG that the search reaches is looked at.
+     * Unlike {@link Dag#getDescendants(Object)}, this doesn't check this DAG for circular dependencies first.
+     * <p>
+     * The depth of a node is the length of the shortest path the search follows to it.
+     * Nodes deeper than {@code maxDepth} aren't visited.
+     *
+     * @param start     the node to start from
+     * @param direction whether to follow outgoing or incoming edges
+     * @param order     whether to search breadth-first or depth-first
+     * @param maxDepth  the maximum depth to visit, or {@link Integer#MAX_VALUE} for no limit
+     * @param visitor   the visitor to call for each node, which decides whether to go past it or stop the search
+     * @return {@code true} if the visitor stopped the search, or {@code false} if the search ran out of nodes
+     * @throws IllegalArgumentException if {@code maxDepth} is negative
+     */
+    default boolean search(E start, Direction direction, SearchOrder order, int maxDepth,
+                           DagVisitor<? super E> visitor) {
+        return new DagAdapter<>(this).search(start, direction, order, maxDepth, visitor);
+    }
+
+    /**
+     * Gets the dominator tree of this DAG, computed from its roots.
+     * The tree is computed once and reused until this DAG is structurally modified,
+     * after which the next call computes a new one.
+     * The default implementation can't tell when this DAG is modified, so it computes a new tree on every call.
+     *
+     * @return the dominator tree of this DAG
+     * @throws IllegalArgumentException if this DAG contains a circular dependency
+     */
+    default DominatorTree<E> getDominatorTree() {
+        return new DagAdapter<>(this).getDominatorTree();
+    }
+
     /**
      * Gets the full set of nodes this DAG contains
      *
@@ -113,6 +236,92 @@ public interface Dag<E> extends Collection<E>, Cloneable, Serializable {
      */
     Set<E> getNodes();
 
+    /**
+     * Gets a read-only view of the part of this DAG made up of the given nodes and the edges between them.
+     * Nodes that aren't in this DAG are ignored.
+     * <p>
+     * The view is backed by this DAG, so creating it only copies the given nodes, and edges are filtered as they're
+     * read. If this DAG is structurally modified, then the view throws a
+     * {@link java.util.ConcurrentModificationException}, like {@link List#subList(int, int)}.
+     * Use {@link Dag#clone()} on the view to get an independent copy.
+     * Views created by the default implementation still read edges from this DAG,
+     * but can't tell when it's modified, so they don't fail fast.
+     *
+     * @param nodes the nodes of the view
+     * @return a view of the induced subgraph
+     */
+    default Dag<E> subDag(Set<E> nodes) {
+        return new DagAdapter<>(this).subDag(nodes);
+    }
+
+    /**
+     * Gets a read-only view of the part of this DAG made up of the given node and its descendants.
+     * The view behaves like one created by {@link Dag#subDag(Set)}.
+     *
+     * @param node the node
+     * @return a view of the node and its descendants, which is empty if the node isn't in this DAG
+     */
+    default Dag<E> descendantSubDag(E node) {
+        return new DagAdapter<>(this).descendantSubDag(node);
+    }
+
+    /**
+     * Gets a read-only view of the part of this DAG made up of the given node and its ancestors.
+     * The view behaves like one created by {@link Dag#subDag(Set)}.
+     *
+     * @param node the node
+     * @return a view of the node and its ancestors, which is empty if the node isn't in this DAG
+     */
+    default Dag<E> ancestorSubDag(E node) {
+        return new DagAdapter<>(this).ancestorSubDag(node);
+    }
+
+    /**
+     * Splits this DAG into its weakly connected components.
+     * Two nodes are in the same component if there is a path between them when edge directions are ignored,
+     * so no edge connects two different components and each component can be processed independently.
+     * Each component is a read-only view that behaves like one created by {@link Dag#subDag(Set)}.
+     *
+     * @return the components of this DAG, which is empty if this DAG is empty
+     */
+    default List<Dag<E>> components() {
+        return new DagAdapter<>(this).components();
+    }
+
+    /**
+     * Splits this graph into its strongly connected components.
+     * Two nodes are in the same component if each can reach the other, so every cycle lies within one component,
+     * and a graph with no circular dependency has one component per node.
+     * This is the one analysis that works on any graph, whether or not it has a circular dependency.
+     *
+     * @return the read-only sets of nodes in each component, ordered so that every edge between two components
+     * goes from an earlier component to a later one
+     */
+    default List<Set<E>> stronglyConnectedComponents() {
+        return new DagAdapter<>(this).stronglyConnectedComponents();
+    }
+
+    /**
+     * Creates the condensation of this graph, which has a node for each strongly connected component,
+     * and an edge between two components if there is an edge between any of their nodes.
+     * The condensation never has a circular dependency, so it can be sorted and traversed even when this graph can't.
+     *
+     * @return the condensation, whose nodes are the sets given by {@link Dag#stronglyConnectedComponents()}
+     */
+    default Dag<Set<E>> condense() {
+        return new DagAdapter<>(this).condense();
+    }
+
+    /**
+     * Finds a cycle in this graph, which is a path that starts and ends at the same node
+     *
+     * @return the nodes of a shortest cycle through one of the nodes, where each node has an edge to the next
+     * and the last has an edge to the first, or an empty list if this graph has no circular dependency
+     */
+    default List<E> findCycle() {
+        return new DagAdapter<>(this).findCycle();
+    }
+
     /**
      * Creates a DAG with the directions of all edges flipped.
      * The ancestors of a node become descendants and vice-versa.
@@ -122,7 +331,8 @@ public interface Dag<E> extends Collection<E>, Cloneable, Serializable {
     Dag<E> inverted();
 
     /**
-     * Creates a DAG that is the union of this DAG and the given DAG
+     * Creates a DAG that is the union of this DAG and the given DAG.
+     * The union contains every node and every edge of both graphs.
      *
      * @param other the other graph
      * @return the union
@@ -130,13 +340,85 @@ public interface Dag<E> extends Collection<E>, Cloneable, Serializable {
     Dag<E> union(Dag<E> other);
 
     /**
-     * Creates a DAG that is the intersection of this DAG and the given DAG
+     * Creates a DAG that is the intersection of this DAG and the given DAG.
+     * The intersection contains only the nodes and edges that are present in both graphs.
      *
      * @param other the other graph
      * @return the intersection
      */
     Dag<E> intersection(Dag<E> other);
 
+    /**
+     * Creates a DAG that is the difference of this DAG and the given DAG.
+     * The difference contains every node of this DAG, and only the edges of this DAG that are not edges of the given DAG.
+     *
+     * @param other the other graph
+     * @return the difference
+     */
+    default Dag<E> difference(Dag<E> other) {
+        Dag<E> difference = clone();
+        difference.removeEdges(other);
+        return difference;
+    }
+
+    /**
+     * Adds every node and every edge of the given DAG to this DAG.
+     * This is the in-place equivalent of {@link Dag#union(Dag)}.
+     *
+     * @param other the other graph
+     * @return {@code true} if this DAG changed as a result of the call
+     */
+    default boolean putAll(Dag<E> other) {
+        boolean changed = false;
+        for (E source : other.getNodes()) {
+            changed |= putAll(source, other.getOutgoing(source));
+        }
+        return changed;
+    }
+
+    /**
+     * Retains only the nodes and edges of this DAG that are also present in the given DAG.
+     * This is the in-place equivalent of {@link Dag#intersection(Dag)}.
+     *
+     * @param other the other graph
+     * @return {@code true} if this DAG changed as a result of the call
+     */
+    default boolean retainEdges(Dag<E> other) {
+        boolean changed = retainAll(other);
+        // Find the edges first, so nothing is removed from this DAG while it's being read
+        List<E> edges = new ArrayList<>();
+        for (E source : getNodes()) {
+            for (E target : getOutgoing(source)) {
+                if (!other.containsEdge(source, target)) {
+                    edges.add(source);
+                    edges.add(target);
+                }
+            }
+        }
+        for (int i = 0; i < edges.size(); i += 2) {
+            changed |= removeEdge(edges.get(i), edges.get(i + 1));
+        }
+        return changed;
+    }
+
+    /**
+     * Removes every edge of the given DAG from this DAG.
+     * No nodes are removed.
+     * This is the in-place equivalent of {@link Dag#difference(Dag)}.
+     *
+     * @param other the other graph
+     * @return {@code true} if this DAG changed as a result of the call
+     */
+    default boolean removeEdges(Dag<E> other) {
+        boolean changed = false;
+        for (E source : other.getNodes()) {
+            for (E target : other.getOutgoing(source)) {
+                changed |= removeEdge(source, target);
+            }
+        }
+        return changed;
+    }
+
     /**
      * Creates a {@link Map} representation of this DAG.
      * Each key of the map will be a node, and each value is a collection of that node's outgoing nodes.
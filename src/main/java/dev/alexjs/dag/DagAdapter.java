@@ -0,0 +1,131 @@
+package dev.alexjs.dag;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * A read-only {@link AbstractDag} over any {@link Dag}, so the default methods of {@link Dag} can reuse the
+ * algorithms of {@link AbstractDag}
+ * <p>
+ * The nodes are copied once, when the adapter is created, and edges are read through
+ * {@link Dag#getOutgoing(Object)} and {@link Dag#getIncoming(Object)} as they're needed.
+ * The wrapped DAG has no modification count, so neither the adapter nor the views created from it
+ * can notice when it's modified.
+ *
+ * @param <E> the node type
+ */
+class DagAdapter<E> extends AbstractDag<E> {
+
+    private final Dag<E> dag;
+    private final Set<E> nodes;
+
+    /**
+     * Creates an adapter over the given DAG
+     *
+     * @param dag the DAG
+     */
+    DagAdapter(Dag<E> dag) {
+        this.dag = dag;
+        this.nodes = dag.getNodes();
+    }
+
+    @Override
+    Set<E> nodes() {
+        return Collections.unmodifiableSet(nodes);
+    }
+
+    @Override
+    Collection<E> outgoing(E node) {
+        return nodes.contains(node) ? dag.getOutgoing(node) : Collections.emptySet();
+    }
+
+    @Override
+    Collection<E> incoming(E node) {
+        return nodes.contains(node) ? dag.getIncoming(node) : Collections.emptySet();
+    }
+
+    @Override
+    int modCount() {
+        return 0;
+    }
+
+    @Override
+    public boolean containsEdge(E source, E target) {
+        return nodes.contains(source) && dag.containsEdge(source, target);
+    }
+
+    /**
+     * Creates an independent {@link HashDag} with the nodes and edges of the wrapped DAG
+     *
+     * @return a copy of the wrapped DAG
+     */
+    @Override
+    public Dag<E> clone() {
+        return toHashDag();
+    }
+
+
+    /* This adapter is read-only */
+
+    @Override
+    public boolean put(E source, E target) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean putAll(E source, Collection<E> targets) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeEdge(E source, E target) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean putAll(Dag<E> other) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean retainEdges(Dag<E> other) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeEdges(Dag<E> other) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean add(E node) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean remove(Object node) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> nodes) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> nodes) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> collection) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+}
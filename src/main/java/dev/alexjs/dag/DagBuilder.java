@@ -0,0 +1,300 @@
+package dev.alexjs.dag;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * A builder for loading large graphs into a {@link HashDag} in bulk
+ * <p>
+ * Each node is hashed once when it is first seen and is given a dense integer id.
+ * Edges are stored as pairs of ids in primitive arrays until {@link DagBuilder#build()} is called,
+ * which checks the whole graph for circular dependencies in a single linear-time pass
+ * and then creates each node's outgoing set with exactly the capacity it needs.
+ * <p>
+ * A builder is not thread-safe.
+ *
+ * @param <E> the node type
+ */
+public class DagBuilder<E> {
+
+    private final Map<E, Integer> ids;
+    private final List<E> nodes;
+    private int[] sources;
+    private int[] targets;
+    private int edgeCount;
+
+    /**
+     * Constructs an empty {@link DagBuilder}
+     */
+    public DagBuilder() {
+        this(16, 16);
+    }
+
+    /**
+     * Constructs an empty {@link DagBuilder} with room for the given number of nodes and edges
+     *
+     * @param expectedNodes the number of nodes the graph is expected to have
+     * @param expectedEdges the number of edges the graph is expected to have
+     */
+    public DagBuilder(int expectedNodes, int expectedEdges) {
+        if (expectedNodes < 0 || expectedEdges < 0) {
+            throw new IllegalArgumentException("Expected sizes must not be negative");
+        }
+        this.ids = Maps.newHashMapWithExpectedSize(expectedNodes);
+        this.nodes = new ArrayList<>(expectedNodes);
+        this.sources = new int[expectedEdges];
+        this.targets = new int[expectedEdges];
+    }
+
+    /**
+     * Adds a single node to the graph
+     *
+     * @param node the node to add
+     * @return this builder
+     */
+    public DagBuilder<E> add(E node) {
+        id(node);
+        return this;
+    }
+
+    /**
+     * Adds each node in the specified collection to the graph
+     *
+     * @param nodes the nodes to add
+     * @return this builder
+     */
+    public DagBuilder<E> addAll(Collection<? extends E> nodes) {
+        for (E node : nodes) {
+            id(node);
+        }
+        return this;
+    }
+
+    /**
+     * Adds a {@code source} to {@code target} node relationship to the graph
+     *
+     * @param source the source node
+     * @param target the target node
+     * @return this builder
+     */
+    public DagBuilder<E> put(E source, E target) {
+        int sourceId = id(source);
+        int targetId = id(target);
+        if (edgeCount == sources.length) {
+            int capacity = Math.max(16, edgeCount + (edgeCount >> 1));
+            sources = Arrays.copyOf(sources, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+        }
+        sources[edgeCount] = sourceId;
+        targets[edgeCount] = targetId;
+        edgeCount++;
+        return this;
+    }
+
+    /**
+     * Adds many {@code source} to {@code target} node relationships to the graph.
+     * The source node is added even if there are no target nodes.
+     *
+     * @param source  the source node
+     * @param targets the target nodes
+     * @return this builder
+     */
+    public DagBuilder<E> putAll(E source, Collection<? extends E> targets) {
+        id(source);
+        for (E target : targets) {
+            put(source, target);
+        }
+        return this;
+    }
+
+    /**
+     * Adds an edge from {@code sources[i]} to {@code targets[i]} for every index of the given arrays
+     *
+     * @param sources the source nodes
+     * @param targets the target nodes
+     * @return this builder
+     * @throws IllegalArgumentException if the arrays have different lengths
+     */
+    public DagBuilder<E> putAll(E[] sources, E[] targets) {
+        if (sources.length != targets.length) {
+            throw new IllegalArgumentException("Source and target arrays must have the same length");
+        }
+        ensureEdgeCapacity(sources.length);
+        for (int i = 0; i < sources.length; i++) {
+            put(sources[i], targets[i]);
+        }
+        return this;
+    }
+
+    /**
+     * Adds every edge in the given edge list to the graph
+     *
+     * @param edges the edges to add
+     * @return this builder
+     */
+    public DagBuilder<E> putAll(Iterable<Edge<E>> edges) {
+        if (edges instanceof Collection) {
+            ensureEdgeCapacity(((Collection<?>) edges).size());
+        }
+        for (Edge<E> edge : edges) {
+            put(edge.getSource(), edge.getTarget());
+        }
+        return this;
+    }
+
+    /**
+     * Adds every edge in the given stream to the graph.
+     * The stream is consumed in encounter order on the calling thread.
+     *
+     * @param edges the edges to add
+     * @return this builder
+     */
+    public DagBuilder<E> putAll(Stream<Edge<E>> edges) {
+        edges.sequential().forEachOrdered(edge -> put(edge.getSource(), edge.getTarget()));
+        return this;
+    }
+
+    /**
+     * Adds the contents and structure of a given {@link Map} to the graph.
+     * Each key of the map is a node, and each value is a collection of that node's outgoing nodes.
+     *
+     * @param map the map to add
+     * @return this builder
+     */
+    public DagBuilder<E> putAll(Map<E, ? extends Collection<E>> map) {
+        map.forEach(this::putAll);
+        return this;
+    }
+
+    /**
+     * Gets the number of distinct nodes added to this builder so far
+     *
+     * @return the number of nodes
+     */
+    public int nodeCount() {
+        return nodes.size();
+    }
+
+    /**
+     * Gets the number of edges added to this builder so far, including any duplicates
+     *
+     * @return the number of edges
+     */
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Creates a {@link HashDag} containing every node and edge added to this builder.
+     * The builder may continue to be used afterwards.
+     *
+     * @return the DAG
+     * @throws IllegalArgumentException if the graph contains a circular dependency
+     */
+    public HashDag<E> build() {
+
+        int nodeCount = nodes.size();
+
+        // Lay the edges out by source, so each node's targets are contiguous
+        int[] offsets = new int[nodeCount + 1];
+        for (int i = 0; i < edgeCount; i++) {
+            offsets[sources[i] + 1]++;
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] adjacency = new int[edgeCount];
+        int[] next = Arrays.copyOf(offsets, nodeCount);
+        for (int i = 0; i < edgeCount; i++) {
+            adjacency[next[sources[i]]++] = targets[i];
+        }
+
+        int[] inDegree = new int[nodeCount];
+        for (int i = 0; i < edgeCount; i++) {
+            inDegree[adjacency[i]]++;
+        }
+
+        checkForCircularDependency(offsets, adjacency, inDegree.clone());
+
+        List<Set<E>> incoming = new ArrayList<>(nodeCount);
+        for (int id = 0; id < nodeCount; id++) {
+            incoming.add(Sets.newHashSetWithExpectedSize(inDegree[id]));
+        }
+
+        List<Set<E>> outgoing = new ArrayList<>(nodeCount);
+        for (int id = 0; id < nodeCount; id++) {
+            E node = nodes.get(id);
+            Set<E> targets = Sets.newHashSetWithExpectedSize(offsets[id + 1] - offsets[id]);
+            for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+                targets.add(nodes.get(adjacency[i]));
+                incoming.get(adjacency[i]).add(node);
+            }
+            outgoing.add(targets);
+        }
+
+        // Every incoming set is complete before any node is added, so the DAG can tell which nodes are roots
+        HashDag<E> dag = new HashDag<>(nodeCount);
+        for (int id = 0; id < nodeCount; id++) {
+            dag.putNode(nodes.get(id), outgoing.get(id), incoming.get(id));
+        }
+        return dag;
+
+    }
+
+    private void checkForCircularDependency(int[] offsets, int[] adjacency, int[] inDegree) {
+
+        // https://en.wikipedia.org/wiki/Topological_sorting#Kahn's_algorithm
+        // Duplicate edges are counted once per copy on both ends, so they cancel out
+
+        int nodeCount = nodes.size();
+
+        int[] queue = new int[nodeCount];
+        int tail = 0;
+        for (int id = 0; id < nodeCount; id++) {
+            if (inDegree[id] == 0) {
+                queue[tail++] = id;
+            }
+        }
+
+        for (int head = 0; head < tail; head++) {
+            int id = queue[head];
+            for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+                if (--inDegree[adjacency[i]] == 0) {
+                    queue[tail++] = adjacency[i];
+                }
+            }
+        }
+
+        if (tail != nodeCount) {
+            throw new IllegalArgumentException("DAG contains a circular dependency");
+        }
+
+    }
+
+    private void ensureEdgeCapacity(int additional) {
+        int required = edgeCount + additional;
+        if (required > sources.length) {
+            sources = Arrays.copyOf(sources, required);
+            targets = Arrays.copyOf(targets, required);
+        }
+    }
+
+    private int id(E node) {
+        Integer id = ids.get(node);
+        if (id == null) {
+            id = nodes.size();
+            ids.put(node, id);
+            nodes.add(node);
+        }
+        return id;
+    }
+
+}
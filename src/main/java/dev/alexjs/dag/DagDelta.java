@@ -0,0 +1,308 @@
+package dev.alexjs.dag;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The changes that turn one version of a DAG into another
+ * <p>
+ * A delta lists the nodes and edges that were added and removed.
+ * Edges of removed nodes aren't listed, since removing a node removes its edges too,
+ * so the delta only grows with what actually changed.
+ * {@link HashDag#apply(DagDelta)} makes the changes in place.
+ * <p>
+ * A delta can be written in a compact binary form with {@link DagDelta#write(OutputStream, Function)}.
+ * Each node that appears in the delta is written once as a string, and every edge refers to its nodes by index.
+ *
+ * @param <E> the node type
+ */
+public final class DagDelta<E> {
+
+    /**
+     * Identifies the binary form, and its version
+     */
+    private static final int MAGIC = 0x44414701;
+
+    private final List<E> removedNodes;
+    private final List<E> addedNodes;
+    private final List<Edge<E>> removedEdges;
+    private final List<Edge<E>> addedEdges;
+
+    private DagDelta(List<E> removedNodes, List<E> addedNodes, List<Edge<E>> removedEdges,
+                     List<Edge<E>> addedEdges) {
+        this.removedNodes = removedNodes;
+        this.addedNodes = addedNodes;
+        this.removedEdges = removedEdges;
+        this.addedEdges = addedEdges;
+    }
+
+    /**
+     * Finds the changes that turn one DAG into another.
+     * Neither DAG may be modified while this runs.
+     * <p>
+     * Each DAG's nodes are split by hash, the same way its node set splits, and the parts are compared in parallel.
+     * Each node of one DAG is looked up once in the other, and so is each of its outgoing nodes.
+     *
+     * @param from the old DAG
+     * @param to   the new DAG
+     * @param <E>  the node type
+     * @return the delta, which turns {@code from} into {@code to} when applied to it
+     */
+    public static <E> DagDelta<E> diff(Dag<E> from, Dag<E> to) {
+
+        // Removed nodes and edges are found from the old DAG, added ones from the new DAG
+        Changes<E> removed = AbstractDag.nodesOf(from).parallelStream().collect(
+                Changes::new,
+                (changes, node) -> changes.compare(node, from, to, true),
+                Changes::addAll);
+        Changes<E> added = AbstractDag.nodesOf(to).parallelStream().collect(
+                Changes::new,
+                (changes, node) -> changes.compare(node, to, from, false),
+                Changes::addAll);
+
+        return new DagDelta<>(removed.nodes, added.nodes, removed.edges, added.edges);
+
+    }
+
+    /**
+     * Gets the nodes this delta removes, along with all their edges
+     *
+     * @return the removed nodes
+     */
+    public List<E> getRemovedNodes() {
+        return Collections.unmodifiableList(removedNodes);
+    }
+
+    /**
+     * Gets the nodes this delta adds
+     *
+     * @return the added nodes
+     */
+    public List<E> getAddedNodes() {
+        return Collections.unmodifiableList(addedNodes);
+    }
+
+    /**
+     * Gets the edges this delta removes between nodes that it keeps
+     *
+     * @return the removed edges
+     */
+    public List<Edge<E>> getRemovedEdges() {
+        return Collections.unmodifiableList(removedEdges);
+    }
+
+    /**
+     * Gets the edges this delta adds
+     *
+     * @return the added edges
+     */
+    public List<Edge<E>> getAddedEdges() {
+        return Collections.unmodifiableList(addedEdges);
+    }
+
+    /**
+     * Returns {@code true} if this delta makes no changes
+     *
+     * @return {@code true} if this delta makes no changes
+     */
+    public boolean isEmpty() {
+        return removedNodes.isEmpty() && addedNodes.isEmpty() && removedEdges.isEmpty() && addedEdges.isEmpty();
+    }
+
+    /**
+     * Writes this delta in its binary form.
+     * The stream is flushed but not closed.
+     *
+     * @param out       the stream to write to
+     * @param formatter converts each node to a string that {@link DagDelta#read(InputStream, Function)} can parse
+     * @throws IOException if the stream can't be written
+     */
+    public void write(OutputStream out, Function<? super E, String> formatter) throws IOException {
+
+        // Give each node an index the first time it's seen, so it's only written once
+        Map<E, Integer> indices = new HashMap<>();
+        List<E> nodes = new ArrayList<>();
+        Function<E, Integer> index = node -> indices.computeIfAbsent(node, key -> {
+            nodes.add(key);
+            return nodes.size() - 1;
+        });
+        removedNodes.forEach(index::apply);
+        addedNodes.forEach(index::apply);
+        for (Edge<E> edge : removedEdges) {
+            index.apply(edge.getSource());
+            index.apply(edge.getTarget());
+        }
+        for (Edge<E> edge : addedEdges) {
+            index.apply(edge.getSource());
+            index.apply(edge.getTarget());
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        writeVarInt(data, nodes.size());
+        for (E node : nodes) {
+            byte[] bytes = formatter.apply(node).getBytes(StandardCharsets.UTF_8);
+            writeVarInt(data, bytes.length);
+            data.write(bytes);
+        }
+        writeNodes(data, removedNodes, indices);
+        writeNodes(data, addedNodes, indices);
+        writeEdges(data, removedEdges, indices);
+        writeEdges(data, addedEdges, indices);
+        data.flush();
+
+    }
+
+    /**
+     * Reads a delta that was written with {@link DagDelta#write(OutputStream, Function)}.
+     * Nothing past the end of the delta is read.
+     *
+     * @param in     the stream to read from
+     * @param parser converts each node as it was written back to a node
+     * @param <E>    the node type
+     * @return the delta
+     * @throws IOException if the stream can't be read, or doesn't hold a delta
+     */
+    public static <E> DagDelta<E> read(InputStream in, Function<String, ? extends E> parser) throws IOException {
+
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Stream does not contain a DAG delta");
+        }
+        int count = readVarInt(data);
+        List<E> nodes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = new byte[readVarInt(data)];
+            data.readFully(bytes);
+            nodes.add(parser.apply(new String(bytes, StandardCharsets.UTF_8)));
+        }
+        List<E> removedNodes = readNodes(data, nodes);
+        List<E> addedNodes = readNodes(data, nodes);
+        List<Edge<E>> removedEdges = readEdges(data, nodes);
+        List<Edge<E>> addedEdges = readEdges(data, nodes);
+        return new DagDelta<>(removedNodes, addedNodes, removedEdges, addedEdges);
+
+    }
+
+    private static <E> void writeNodes(DataOutputStream data, List<E> nodes, Map<E, Integer> indices)
+            throws IOException {
+        writeVarInt(data, nodes.size());
+        for (E node : nodes) {
+            writeVarInt(data, indices.get(node));
+        }
+    }
+
+    private static <E> void writeEdges(DataOutputStream data, List<Edge<E>> edges, Map<E, Integer> indices)
+            throws IOException {
+        writeVarInt(data, edges.size());
+        for (Edge<E> edge : edges) {
+            writeVarInt(data, indices.get(edge.getSource()));
+            writeVarInt(data, indices.get(edge.getTarget()));
+        }
+    }
+
+    private static <E> List<E> readNodes(DataInputStream data, List<E> nodes) throws IOException {
+        int count = readVarInt(data);
+        List<E> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(readNode(data, nodes));
+        }
+        return result;
+    }
+
+    private static <E> List<Edge<E>> readEdges(DataInputStream data, List<E> nodes) throws IOException {
+        int count = readVarInt(data);
+        List<Edge<E>> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            E source = readNode(data, nodes);
+            result.add(new Edge<>(source, readNode(data, nodes)));
+        }
+        return result;
+    }
+
+    private static <E> E readNode(DataInputStream data, List<E> nodes) throws IOException {
+        int index = readVarInt(data);
+        if (index >= nodes.size()) {
+            throw new IOException("DAG delta refers to a node that it does not contain");
+        }
+        return nodes.get(index);
+    }
+
+    /**
+     * Writes a non-negative number in as few bytes as possible, seven bits at a time
+     */
+    private static void writeVarInt(DataOutputStream data, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            data.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream data) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = data.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    break;
+                }
+                return value;
+            }
+        }
+        throw new IOException("Malformed DAG delta");
+    }
+
+    /**
+     * The nodes and edges found on one side of a diff by one thread
+     *
+     * @param <E> the node type
+     */
+    private static class Changes<E> {
+
+        private final List<E> nodes = new ArrayList<>();
+        private final List<Edge<E>> edges = new ArrayList<>();
+
+        /**
+         * Records what a node of one DAG has that the other DAG doesn't
+         *
+         * @param node    the node
+         * @param dag     the DAG the node is in
+         * @param other   the DAG to compare against
+         * @param removed whether {@code dag} is the old DAG, in which case edges of missing nodes are left out
+         */
+        private void compare(E node, Dag<E> dag, Dag<E> other, boolean removed) {
+            if (!other.contains(node)) {
+                nodes.add(node);
+                if (removed) {
+                    return;
+                }
+            }
+            Collection<E> otherTargets = AbstractDag.outgoingOf(other, node);
+            for (E target : AbstractDag.outgoingOf(dag, node)) {
+                if (!otherTargets.contains(target) && (!removed || other.contains(target))) {
+                    edges.add(new Edge<>(node, target));
+                }
+            }
+        }
+
+        private void addAll(Changes<E> other) {
+            nodes.addAll(other.nodes);
+            edges.addAll(other.edges);
+        }
+
+    }
+
+}
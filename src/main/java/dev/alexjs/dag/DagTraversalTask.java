@@ -2,18 +2,33 @@ package dev.alexjs.dag;
 
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.Objects;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
 
 /**
  * A helper class to easily traverse the nodes of a DAG with multiple threads.
@@ -23,6 +38,29 @@ import java.util.function.Consumer;
  * then this will stop submitting new tasks
  * and {@link DagTraversalTask#awaitTermination(long, TimeUnit)} will return {@code false}.
  * <p>
+ * The DAG is traversed in place rather than copied, so it must not be modified until the traversal has terminated.
+ * The traversal is fail-fast: if the DAG is structurally modified while it runs, then the next node to finish
+ * fails the traversal instead of reading the changed DAG, as if its task had thrown an exception.
+ * Like a {@link java.util.ConcurrentModificationException}, this is done on a best-effort basis,
+ * and only for the DAGs in this package, which count their modifications.
+ * To traverse only part of a DAG, pass a view such as {@link Dag#descendantSubDag(Object)}.
+ * To visit each node only after all its outgoing nodes, such as for teardown, traverse it in the
+ * {@link Direction#BACKWARD} direction with {@link Builder#direction(Direction)} instead of passing
+ * {@link Dag#inverted()}, which copies it.
+ * <p>
+ * The bookkeeping is split by {@link Dag#components()}, and each component has its own lock,
+ * so independent parts of a DAG don't contend with each other when their nodes finish.
+ * When the DAG gives each node a dense id, like an {@link InternedDag}, the bookkeeping is kept in arrays of ids,
+ * so nodes are only hashed to look up journal entries, resource classes and nodes that waited for a permit.
+ * <p>
+ * Use {@link DagTraversalTask#builder(Dag, Consumer, ExecutorService)} for more options,
+ * such as a {@link TraversalJournal} to resume an earlier traversal that didn't finish,
+ * permit limits on classes of nodes that share a resource,
+ * a limit on how many nodes are submitted at once,
+ * or a timeout and {@link RetryPolicy} for each node's task.
+ * Use {@link DagTraversalTask#asyncBuilder(Dag, Function, ExecutorService)} for tasks that return a
+ * {@link CompletionStage} instead of blocking a thread until they're done.
+ * <p>
  * The type parameter is not useful after the constructor is called,
  * so you could use {@code DagTraversalTask<?>} as your variable type.
  *
@@ -30,10 +68,41 @@ import java.util.function.Consumer;
  */
 public class DagTraversalTask<T> {
 
+    /**
+     * The id passed along with a node when the DAG doesn't give its nodes ids
+     */
+    private static final int NO_ID = -1;
+
+    /**
+     * Marks a node in {@link DagTraversalTask#remainingIds} that finished in an earlier traversal
+     */
+    private static final int COMPLETED = -1;
+
     private final Dag<T> dag;
+    private final AbstractIdDag<T> idDag;
+
+    /**
+     * The modification count of the DAG when the traversal started, to fail fast if it's modified
+     */
+    private final int expectedModCount;
+
+    /**
+     * Whether each node waits for its incoming nodes, rather than its outgoing nodes
+     */
+    private final boolean forward;
+
+    private final int[] remainingIds;
     private final Consumer<T> task;
+    private final Function<T, ? extends CompletionStage<?>> asyncTask;
     private final ListeningExecutorService executorService;
-    private final Map<T, Set<T>> outgoingNodes;
+    private final TraversalJournal<? super T> journal;
+    private final ResourceGate<Shard, T> gate;
+    private final RetryPolicy retryPolicy;
+    private final long timeoutNanos;
+    private final ScheduledExecutorService scheduler;
+    private final Map<T, Integer> attempts;
+    private final int[] attemptIds;
+    private final AtomicInteger remaining;
     private final Lock lock;
     private final Condition terminated;
     private final AtomicReference<Status> status;
@@ -49,30 +118,153 @@ public class DagTraversalTask<T> {
      * @param executorService the {@link ExecutorService} to submit these tasks to
      */
     public DagTraversalTask(Dag<T> dag, Consumer<T> task, ExecutorService executorService) {
+        this(new Builder<>(dag, task, null, executorService));
+    }
 
-        this.dag = dag.clone();
-        this.task = task;
-        this.executorService = MoreExecutors.listeningDecorator(executorService);
-        this.outgoingNodes = new HashMap<>();
+    private DagTraversalTask(Builder<T> builder) {
+
+        this.dag = builder.dag;
+        this.idDag = dag instanceof AbstractIdDag ? (AbstractIdDag<T>) dag : null;
+        this.expectedModCount = modCount();
+        this.forward = builder.direction == Direction.FORWARD;
+        this.remainingIds = idDag == null ? null : new int[idDag.idBound()];
+        this.task = builder.task;
+        this.asyncTask = builder.asyncTask;
+        this.executorService = MoreExecutors.listeningDecorator(builder.executorService);
+        this.journal = builder.journal;
+        this.gate = builder.resourceClass == null && builder.maxInFlight == Integer.MAX_VALUE
+                ? null
+                : new ResourceGate<>(builder.resourceClass, builder.permits, builder.maxInFlight);
+        this.retryPolicy = builder.retryPolicy;
+        this.timeoutNanos = builder.timeoutNanos;
+        this.scheduler = builder.scheduler;
+        this.attempts = new HashMap<>();
+        this.attemptIds = idDag == null ? null : new int[idDag.idBound()];
         this.lock = new ReentrantLock(true);
         this.terminated = lock.newCondition();
         this.status = new AtomicReference<>(Status.RUNNING);
+        this.remaining = new AtomicInteger(dag.size());
 
-        // Cache each node's outgoing nodes for this DAG
-        this.dag.getNodes().forEach(node -> this.outgoingNodes.put(node, this.dag.getOutgoing(node)));
-
-        // Get the set of roots for this dag
-        Set<T> roots = this.dag.getRoots();
+        // Count the nodes each node waits for instead of copying the DAG, and collect the roots along the way.
+        // Backward, the roots of the traversal are the leaves of the DAG.
+        // Nodes that already finished are left out, and so are the edges out of them.
+        List<Shard> shards = idDag == null ? shardNodes() : shardIds();
+        boolean hasRoots = false;
+        for (Shard shard : shards) {
+            hasRoots |= !shard.roots.isEmpty() || shard.rootIds.size > 0;
+        }
 
-        // If there are no leaves, then there are no nodes to visit
-        if (roots.isEmpty()) {
+        // If there are no roots, then there are no nodes to visit
+        if (!hasRoots || remaining.get() == 0) {
             status.set(Status.DONE);
         } else {
-            visit(roots);
+            for (Shard shard : shards) {
+                try {
+                    shard.lock.lock();
+                    visit(shard, shard.roots);
+                    visit(shard, shard.rootIds);
+                    // Roots that have to wait are queued by the gate, so the lists aren't needed anymore
+                    shard.roots = null;
+                    shard.rootIds = null;
+                } finally {
+                    shard.lock.unlock();
+                }
+            }
         }
 
     }
 
+    private List<Shard> shardNodes() {
+        List<Shard> shards = new ArrayList<>();
+        for (Dag<T> component : dag.components()) {
+            Shard shard = new Shard();
+            for (T node : component.getNodes()) {
+                if (isCompleted(node)) {
+                    remaining.decrementAndGet();
+                    continue;
+                }
+                int incoming = 0;
+                for (T waited : waitsFor(node)) {
+                    if (!isCompleted(waited)) {
+                        incoming++;
+                    }
+                }
+                if (incoming == 0) {
+                    shard.roots.add(node);
+                } else {
+                    shard.remainingIncoming.put(node, incoming);
+                }
+            }
+            shards.add(shard);
+        }
+        return shards;
+    }
+
+    private List<Shard> shardIds() {
+        if (journal != null) {
+            for (int id : idDag.ids()) {
+                if (isCompleted(idDag.node(id))) {
+                    remainingIds[id] = COMPLETED;
+                    remaining.decrementAndGet();
+                }
+            }
+        }
+        for (int id : idDag.ids()) {
+            if (remainingIds[id] != COMPLETED) {
+                forEachNext(id, target -> {
+                    if (remainingIds[target] != COMPLETED) {
+                        remainingIds[target]++;
+                    }
+                });
+            }
+        }
+
+        // Components are numbered in the order their first id is seen, so each new number is the next shard
+        int[] component = idDag.componentIds();
+        List<Shard> shards = new ArrayList<>();
+        for (int id : idDag.ids()) {
+            if (component[id] == shards.size()) {
+                shards.add(new Shard());
+            }
+            if (remainingIds[id] == 0) {
+                shards.get(component[id]).rootIds.add(id);
+            }
+        }
+        return shards;
+    }
+
+    /**
+     * Creates a builder for a task that traverses a DAG with an {@link java.util.concurrent.ExecutorService}
+     *
+     * @param dag             the DAG to traverse
+     * @param task            the task to apply to each node
+     * @param executorService the {@link ExecutorService} to submit these tasks to
+     * @param <T>             the node type
+     * @return the builder
+     */
+    public static <T> Builder<T> builder(Dag<T> dag, Consumer<T> task, ExecutorService executorService) {
+        return new Builder<>(dag, task, null, executorService);
+    }
+
+    /**
+     * Creates a builder for a task that traverses a DAG with asynchronous node tasks.
+     * A node counts as visited once the stage returned by its task completes,
+     * so a node waiting on I/O doesn't hold a thread, and many more nodes than threads can be in flight at once.
+     * If the stage completes exceptionally, the traversal fails just as if a task had thrown an exception.
+     * <p>
+     * The executor calls each node's task and handles each completed stage.
+     *
+     * @param dag             the DAG to traverse
+     * @param task            the task to apply to each node, which returns a stage that completes when it's done
+     * @param executorService the {@link ExecutorService} to call the tasks with
+     * @param <T>             the node type
+     * @return the builder
+     */
+    public static <T> Builder<T> asyncBuilder(Dag<T> dag, Function<T, ? extends CompletionStage<?>> task,
+                                              ExecutorService executorService) {
+        return new Builder<>(dag, null, task, executorService);
+    }
+
     /**
      * Blocks until all nodes have been traversed, or the timeout occurs,
      * or a task fails, or the current thread is interrupted, whichever happens first.
@@ -93,54 +285,534 @@ public class DagTraversalTask<T> {
 
         try {
             lock.lock();
-            return terminated.await(timeout, unit) && status.get() == Status.DONE;
+            // Nodes finish without holding this lock, so the status has to be checked again while holding it
+            long nanos = unit.toNanos(timeout);
+            while (status.get() == Status.RUNNING) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = terminated.awaitNanos(nanos);
+            }
+            return status.get() == Status.DONE;
         } finally {
             lock.unlock();
         }
 
     }
 
-    private void visit(Collection<T> nodes) {
-        for (final T node : nodes) {
-            executorService.submit(() -> run(node))
-                    .addListener(() -> propagate(node), executorService);
+    /**
+     * Gets the number of times a node's task has been started so far.
+     * This is 0 until the node is visited, and more than 1 if an attempt failed or timed out and was retried.
+     *
+     * @param node the node
+     * @return the number of attempts
+     * @throws IllegalArgumentException if the DAG does not contain the node
+     */
+    public int getAttempts(T node) {
+        int id = idDag == null ? NO_ID : idDag.id(node);
+        if (idDag != null ? id < 0 : !dag.contains(node)) {
+            throw new IllegalArgumentException("DAG does not contain the node " + node);
+        }
+        synchronized (attempts) {
+            return id == NO_ID ? attempts.getOrDefault(node, 0) : attemptIds[id];
         }
     }
 
-    private void run(T node) {
+    private void visit(Shard shard, Collection<T> nodes) {
+        if (nodes == null) {
+            return;
+        }
+        for (T node : nodes) {
+            if (gate == null || gate.tryAcquire(shard, node)) {
+                start(shard, node, NO_ID);
+            }
+        }
+    }
+
+    private void visit(Shard shard, IdList ids) {
+        if (ids == null) {
+            return;
+        }
+        for (int i = 0; i < ids.size; i++) {
+            T node = idDag.node(ids.ids[i]);
+            if (gate == null || gate.tryAcquire(shard, node)) {
+                start(shard, node, ids.ids[i]);
+            }
+        }
+    }
+
+    private void start(Shard shard, T node, int id) {
+        attempt(shard, node, id, 1);
+    }
+
+    private void attempt(Shard shard, T node, int id, int attempt) {
+        synchronized (attempts) {
+            if (id == NO_ID) {
+                attempts.put(node, attempt);
+            } else {
+                attemptIds[id] = attempt;
+            }
+        }
+        // Whichever of the task and its timeout finishes first settles the attempt, and the other is ignored
+        AtomicBoolean settled = new AtomicBoolean();
+        if (asyncTask == null) {
+            executorService.execute(() -> run(shard, node, id, attempt, settled));
+        } else {
+            executorService.execute(() -> launch(shard, node, id, attempt, settled));
+        }
+    }
+
+    private void run(Shard shard, T node, int id, int attempt, AtomicBoolean settled) {
+        // The timeout starts once the task is running, not while it waits in the executor's queue
+        ScheduledFuture<?> timer = scheduleTimeout(shard, node, id, attempt, settled, Thread.currentThread());
+        Throwable failure = null;
         try {
             task.accept(node);
         } catch (Throwable t) {
+            failure = t;
+        }
+        boolean won;
+        synchronized (settled) {
+            won = settled.compareAndSet(false, true);
+        }
+        if (won) {
+            cancel(timer);
+            finish(shard, node, id, attempt, failure);
+        } else {
+            // The timeout won and interrupted this thread, so don't let that leak into the executor's next task
+            Thread.interrupted();
+            if (retriesOnReturn(attempt)) {
+                finish(shard, node, id, attempt, new TimeoutException("Task timed out on node " + node));
+            }
+        }
+    }
+
+    /**
+     * Whether a timed out attempt of a synchronous task waits for the task to return before it's settled.
+     * An attempt that will be retried waits, so the retry never runs alongside it.
+     * The last attempt doesn't, so a task that ignores the interrupt can't hold up the traversal's failure.
+     *
+     * @param attempt the attempt
+     * @return {@code true} if the attempt is settled by the thread running it once the task returns
+     */
+    private boolean retriesOnReturn(int attempt) {
+        return attempt < retryPolicy.getMaxAttempts();
+    }
+
+    private void launch(Shard shard, T node, int id, int attempt, AtomicBoolean settled) {
+        CompletionStage<?> stage;
+        try {
+            stage = Objects.requireNonNull(asyncTask.apply(node), "Task returned a null stage");
+        } catch (Throwable t) {
+            settled.set(true);
+            finish(shard, node, id, attempt, t);
+            return;
+        }
+        ScheduledFuture<?> timer = scheduleTimeout(shard, node, id, attempt, settled, null);
+        stage.whenCompleteAsync((result, failure) -> {
+            if (settled.compareAndSet(false, true)) {
+                cancel(timer);
+                finish(shard, node, id, attempt, failure);
+            }
+        }, executorService);
+    }
+
+    /**
+     * Schedules an attempt to fail if it hasn't settled once the timeout has passed
+     *
+     * @param thread the thread running the task, to interrupt on timeout, or {@code null} for an asynchronous task
+     * @return the scheduled timeout, or {@code null} if there is no timeout
+     */
+    private ScheduledFuture<?> scheduleTimeout(Shard shard, T node, int id, int attempt, AtomicBoolean settled,
+                                               Thread thread) {
+        if (timeoutNanos == 0) {
+            return null;
+        }
+        return scheduler().schedule(() -> {
+            boolean won;
+            // The running thread can't move on to another task while this decides whether to interrupt it
+            synchronized (settled) {
+                won = settled.compareAndSet(false, true);
+                if (won && thread != null) {
+                    // A task that ignores the interrupt keeps its thread, and a retry waits for it to return
+                    thread.interrupt();
+                }
+            }
+            if (won && (thread == null || !retriesOnReturn(attempt))) {
+                // Finishing can write to the journal and start the next nodes, so keep it off the shared scheduler
+                TimeoutException timeout = new TimeoutException("Task timed out on node " + node);
+                try {
+                    executorService.execute(() -> finish(shard, node, id, attempt, timeout));
+                } catch (RejectedExecutionException e) {
+                    fail();
+                }
+            }
+        }, timeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private ScheduledExecutorService scheduler() {
+        return scheduler != null ? scheduler : DefaultScheduler.INSTANCE;
+    }
+
+    private static void cancel(ScheduledFuture<?> timer) {
+        if (timer != null) {
+            timer.cancel(false);
+        }
+    }
+
+    private boolean isCompleted(T node) {
+        return journal != null && journal.isCompleted(node);
+    }
+
+    private void finish(Shard shard, T node, int id, int attempt, Throwable failure) {
+        if (modCount() != expectedModCount) {
+            // The bookkeeping no longer matches the DAG, so stop instead of reading it on this thread
+            fail();
+            return;
+        }
+        if (failure != null && attempt < retryPolicy.getMaxAttempts() && status.get() == Status.RUNNING) {
+            // Wait on the scheduler instead of a worker thread, and keep the node's permit until it's done
             try {
-                lock.lock();
-                status.compareAndSet(Status.RUNNING, Status.ERROR);
-                terminated.signalAll();
-            } finally {
-                lock.unlock();
+                scheduler().schedule(() -> {
+                    try {
+                        attempt(shard, node, id, attempt + 1);
+                    } catch (RejectedExecutionException e) {
+                        // The scheduler would keep this in the retry's future, where nothing ever looks
+                        fail();
+                    }
+                }, retryPolicy.backoffNanos(attempt), TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                fail();
+            }
+            return;
+        }
+        if (failure != null) {
+            fail();
+        } else if (journal != null) {
+            try {
+                journal.record(node);
+            } catch (Throwable t) {
+                fail();
             }
         }
+        try {
+            propagate(shard, node, id);
+        } catch (RuntimeException e) {
+            // The DAG was modified after the check above, and this runs on an executor thread that would swallow it
+            fail();
+        }
+    }
+
+    private int modCount() {
+        return dag instanceof AbstractDag ? ((AbstractDag<T>) dag).modCount() : 0;
     }
 
-    private void propagate(T node) {
+    private void fail() {
         try {
             lock.lock();
+            status.compareAndSet(Status.RUNNING, Status.ERROR);
+            terminated.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
 
-            dag.remove(node);
-            if (dag.isEmpty()) {
+    private void propagate(Shard shard, T node, int id) {
+        if (remaining.decrementAndGet() == 0) {
+            try {
+                lock.lock();
                 status.compareAndSet(Status.RUNNING, Status.DONE);
                 terminated.signalAll();
+            } finally {
+                lock.unlock();
             }
+        }
 
-            Set<T> outgoing = this.outgoingNodes.get(node);
-            outgoing.retainAll(dag.getNodes());
-            outgoing.removeIf(p -> !dag.getIncoming(p).isEmpty());
+        // Stop submitting new tasks once one has failed
+        if (status.get() == Status.ERROR) {
+            return;
+        }
+
+        // Hand this node's permit to a node that was waiting for one
+        if (gate != null) {
+            ReadyQueue<Shard, T> started = new ReadyQueue<>();
+            gate.release(node, started);
+            for (; !started.isEmpty(); started.remove()) {
+                T next = started.peekNode();
+                start(started.peekTag(), next, idDag == null ? NO_ID : idDag.id(next));
+            }
+        }
 
-            visit(outgoing);
+        try {
+            shard.lock.lock();
+
+            // Release each next node once all the nodes it waits for are done
+            if (id != NO_ID) {
+                IdList ready = new IdList();
+                forEachNext(id, target -> {
+                    // A target that finished in an earlier traversal is marked, and never counts down
+                    if (remainingIds[target] != COMPLETED && --remainingIds[target] == 0) {
+                        ready.add(target);
+                    }
+                });
+                visit(shard, ready);
+                return;
+            }
+            List<T> ready = new ArrayList<>();
+            for (T target : next(node)) {
+                Integer count = shard.remainingIncoming.get(target);
+                if (count == null) {
+                    // The target finished in an earlier traversal
+                    continue;
+                }
+                int left = count - 1;
+                if (left == 0) {
+                    shard.remainingIncoming.remove(target);
+                    ready.add(target);
+                } else {
+                    shard.remainingIncoming.put(target, left);
+                }
+            }
+
+            visit(shard, ready);
         } finally {
-            lock.unlock();
+            shard.lock.unlock();
         }
     }
 
+    /**
+     * Gets the nodes that have to finish before a node can start
+     *
+     * @param node the node
+     * @return its incoming nodes, or its outgoing nodes when traversing backward
+     */
+    private Collection<T> waitsFor(T node) {
+        return forward ? AbstractDag.incomingOf(dag, node) : AbstractDag.outgoingOf(dag, node);
+    }
+
+    /**
+     * Gets the nodes that wait for a node to finish
+     *
+     * @param node the node
+     * @return its outgoing nodes, or its incoming nodes when traversing backward
+     */
+    private Collection<T> next(T node) {
+        return forward ? AbstractDag.outgoingOf(dag, node) : AbstractDag.incomingOf(dag, node);
+    }
+
+    private void forEachNext(int id, IntConsumer action) {
+        if (forward) {
+            idDag.forEachOutgoing(id, action);
+        } else {
+            idDag.forEachIncoming(id, action);
+        }
+    }
+
+    /**
+     * The bookkeeping for one weakly connected component of the DAG.
+     * No edge leaves a component, so finishing a node only ever touches its own component's shard.
+     */
+    private class Shard {
+
+        private final Map<T, Integer> remainingIncoming = new HashMap<>();
+        private List<T> roots = new ArrayList<>();
+        private IdList rootIds = new IdList();
+        private final Lock lock = new ReentrantLock();
+
+    }
+
+    /**
+     * A growable list of node ids
+     */
+    private static class IdList {
+
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+    }
+
+    /**
+     * A builder for a {@link DagTraversalTask}.
+     * The traversal starts when {@link Builder#build()} is called.
+     *
+     * @param <T> the node type
+     */
+    public static class Builder<T> {
+
+        private final Dag<T> dag;
+        private final Consumer<T> task;
+        private final Function<T, ? extends CompletionStage<?>> asyncTask;
+        private final ExecutorService executorService;
+        private TraversalJournal<? super T> journal;
+        private Function<? super T, ?> resourceClass;
+        private Map<Object, Integer> permits = Collections.emptyMap();
+        private int maxInFlight = Integer.MAX_VALUE;
+        private RetryPolicy retryPolicy = RetryPolicy.NONE;
+        private long timeoutNanos;
+        private ScheduledExecutorService scheduler;
+        private Direction direction = Direction.FORWARD;
+
+        private Builder(Dag<T> dag, Consumer<T> task, Function<T, ? extends CompletionStage<?>> asyncTask,
+                        ExecutorService executorService) {
+            this.dag = dag;
+            this.task = task;
+            this.asyncTask = asyncTask;
+            this.executorService = executorService;
+        }
+
+        /**
+         * Records each node in a journal as it finishes, and skips the nodes already in the journal.
+         * The journal is not closed when the traversal terminates.
+         *
+         * @param journal the journal
+         * @return this builder
+         */
+        public Builder<T> journal(TraversalJournal<? super T> journal) {
+            this.journal = journal;
+            return this;
+        }
+
+        /**
+         * Limits how many nodes of each resource class run at once.
+         * A ready node whose class has no free permit waits in a queue for its class,
+         * while ready nodes of other classes keep being submitted.
+         * Nodes of a class that has no limit in {@code permits} are never held back.
+         *
+         * @param resourceClass gets the resource class of a node, which must always be the same for the same node
+         * @param permits       the number of nodes of each resource class that may run at once
+         * @return this builder
+         * @throws IllegalArgumentException if a permit limit is less than 1
+         */
+        public Builder<T> resources(Function<? super T, ?> resourceClass, Map<?, Integer> permits) {
+            for (int limit : permits.values()) {
+                if (limit < 1) {
+                    throw new IllegalArgumentException("Permits must be at least 1");
+                }
+            }
+            this.resourceClass = resourceClass;
+            this.permits = new HashMap<>(permits);
+            return this;
+        }
+
+        /**
+         * Limits how many nodes are submitted to the executor and not yet finished at any one time.
+         * Ready nodes beyond the limit wait in a compact queue inside the traversal
+         * instead of each holding a future and a listener in the executor's queue,
+         * so memory stays flat no matter how wide the DAG is.
+         *
+         * @param maxInFlight the number of nodes that may be in flight at once
+         * @return this builder
+         * @throws IllegalArgumentException if {@code maxInFlight} is less than 1
+         */
+        public Builder<T> maxInFlight(int maxInFlight) {
+            if (maxInFlight < 1) {
+                throw new IllegalArgumentException("Max in flight must be at least 1");
+            }
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * Fails each attempt at a node's task that takes longer than the timeout.
+         * The task is interrupted, or for an asynchronous task, its stage is no longer waited on.
+         * A timed out attempt is retried like any other failed attempt.
+         * <p>
+         * A synchronous task is only retried once the timed out attempt has returned,
+         * so two attempts at the same node never run at once,
+         * but a task that ignores the interrupt holds up its node until it returns.
+         * The last attempt fails the traversal as soon as it times out.
+         * An asynchronous task's stage can't be stopped, so its retry may run while the stage is still going,
+         * and the task must be safe to run again in that case.
+         *
+         * @param timeout the longest time each attempt may take
+         * @param unit    the time unit of the timeout
+         * @return this builder
+         * @throws IllegalArgumentException if the timeout is not positive
+         */
+        public Builder<T> timeout(long timeout, TimeUnit unit) {
+            if (timeout <= 0) {
+                throw new IllegalArgumentException("Timeout must be positive");
+            }
+            this.timeoutNanos = unit.toNanos(timeout);
+            return this;
+        }
+
+        /**
+         * Retries a node's task when it fails, instead of failing the traversal right away.
+         * The traversal only fails once a node has failed its last attempt.
+         *
+         * @param retryPolicy the retry policy
+         * @return this builder
+         */
+        public Builder<T> retry(RetryPolicy retryPolicy) {
+            this.retryPolicy = Objects.requireNonNull(retryPolicy);
+            return this;
+        }
+
+        /**
+         * Sets the scheduler that times out attempts and waits out the backoff between them.
+         * This only schedules short bookkeeping, so one scheduler can be shared by many traversals.
+         * By default, a single daemon thread shared by every traversal is used.
+         *
+         * @param scheduler the scheduler
+         * @return this builder
+         */
+        public Builder<T> scheduler(ScheduledExecutorService scheduler) {
+            this.scheduler = Objects.requireNonNull(scheduler);
+            return this;
+        }
+
+        /**
+         * Sets the direction of the traversal.
+         * {@link Direction#BACKWARD} visits each node only after all its outgoing nodes, starting from the leaves,
+         * by following incoming edges in place rather than traversing an inverted copy of the DAG.
+         * A journal records the nodes the same way in either direction.
+         *
+         * @param direction the direction, which is {@link Direction#FORWARD} by default
+         * @return this builder
+         */
+        public Builder<T> direction(Direction direction) {
+            this.direction = Objects.requireNonNull(direction);
+            return this;
+        }
+
+        /**
+         * Starts the traversal
+         *
+         * @return the running traversal
+         */
+        public DagTraversalTask<T> build() {
+            return new DagTraversalTask<>(this);
+        }
+
+    }
+
+    /**
+     * The scheduler used when none is given, which is only created once a traversal needs it
+     */
+    private static class DefaultScheduler {
+
+        private static final ScheduledExecutorService INSTANCE = create();
+
+        private static ScheduledExecutorService create() {
+            ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder()
+                    .setNameFormat("dag-traversal-scheduler")
+                    .setDaemon(true)
+                    .build());
+            // Most timeouts are cancelled, so don't let them pile up in the queue
+            scheduler.setRemoveOnCancelPolicy(true);
+            return scheduler;
+        }
+
+    }
+
     private enum Status {
         RUNNING,
         ERROR,
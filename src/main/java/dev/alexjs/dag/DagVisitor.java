@@ -0,0 +1,21 @@
+package dev.alexjs.dag;
+
+/**
+ * A visitor of the nodes found by a search of a DAG
+ *
+ * @param <E> the node type
+ * @see Dag#search(Object, Direction, SearchOrder, int, DagVisitor)
+ */
+@FunctionalInterface
+public interface DagVisitor<E> {
+
+    /**
+     * Visits a node
+     *
+     * @param node  the node
+     * @param depth the number of edges between the node the search started from and this node
+     * @return whether the search should continue past this node, skip past it, or stop
+     */
+    VisitResult visit(E node, int depth);
+
+}
@@ -0,0 +1,126 @@
+package dev.alexjs.dag;
+
+import com.google.common.collect.Maps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Operations on many DAGs at once
+ */
+public final class Dags {
+
+    /**
+     * The number of shards per processor, so that shards of uneven sizes still keep every processor busy
+     */
+    private static final int SHARDS_PER_PROCESSOR = 4;
+
+    private Dags() {
+    }
+
+    /**
+     * Merges many DAGs into a new {@link HashDag} that has every node and edge of each of them
+     * <p>
+     * Unlike folding the DAGs together with {@link Dag#union(Dag)}, nothing is copied more than once.
+     * Nodes are split into shards by hash, the fragments are read in parallel into each shard's adjacency sets,
+     * and the sets are handed to the result without being copied.
+     * The result is checked for circular dependencies once, at the end.
+     * None of the DAGs may be modified while this runs.
+     *
+     * @param dags the DAGs to merge
+     * @param <E>  the node type
+     * @return the union of the DAGs
+     * @throws IllegalArgumentException if the union contains a circular dependency
+     */
+    public static <E> HashDag<E> unionAll(Collection<? extends Dag<E>> dags) {
+
+        List<Dag<E>> fragments = new ArrayList<>(dags);
+        int shardBits = 32 - Integer.numberOfLeadingZeros(
+                Runtime.getRuntime().availableProcessors() * SHARDS_PER_PROCESSOR - 1);
+        int shardCount = 1 << shardBits;
+
+        // Sort each fragment's nodes into shards, so each shard only reads its own nodes
+        List<List<List<E>>> buckets = fragments.parallelStream()
+                .map(fragment -> {
+                    List<List<E>> shards = new ArrayList<>(shardCount);
+                    for (int i = 0; i < shardCount; i++) {
+                        shards.add(new ArrayList<>());
+                    }
+                    for (E node : AbstractDag.nodesOf(fragment)) {
+                        shards.get(shard(node, shardBits)).add(node);
+                    }
+                    return shards;
+                })
+                .collect(Collectors.toList());
+
+        // Merge each shard's adjacency sets across every fragment
+        List<Shard<E>> shards = IntStream.range(0, shardCount)
+                .parallel()
+                .mapToObj(shard -> {
+                    int expected = 0;
+                    for (List<List<E>> bucket : buckets) {
+                        expected += bucket.get(shard).size();
+                    }
+                    Shard<E> merged = new Shard<>(expected);
+                    for (int i = 0; i < fragments.size(); i++) {
+                        Dag<E> fragment = fragments.get(i);
+                        for (E node : buckets.get(i).get(shard)) {
+                            merged.add(node, AbstractDag.outgoingOf(fragment, node),
+                                    AbstractDag.incomingOf(fragment, node));
+                        }
+                    }
+                    return merged;
+                })
+                .collect(Collectors.toList());
+
+        int size = 0;
+        for (Shard<E> shard : shards) {
+            size += shard.outgoing.size();
+        }
+        HashDag<E> union = new HashDag<>(size);
+        for (Shard<E> shard : shards) {
+            shard.outgoing.forEach((node, outgoing) -> union.putNode(node, outgoing, shard.incoming.get(node)));
+        }
+        union.checkForCircularDependency();
+        return union;
+
+    }
+
+    /**
+     * Picks a node's shard from the high bits of its scrambled hash.
+     * The shards' own hash maps index by the low bits, so the nodes of one shard still spread over their buckets.
+     */
+    private static int shard(Object node, int shardBits) {
+        return shardBits == 0 ? 0 : (Objects.hashCode(node) * 0x9E3779B9) >>> (32 - shardBits);
+    }
+
+    /**
+     * The merged outgoing and incoming nodes of the nodes in one shard
+     *
+     * @param <E> the node type
+     */
+    private static class Shard<E> {
+
+        private final Map<E, Set<E>> outgoing;
+        private final Map<E, Set<E>> incoming;
+
+        private Shard(int expectedSize) {
+            this.outgoing = Maps.newHashMapWithExpectedSize(expectedSize);
+            this.incoming = Maps.newHashMapWithExpectedSize(expectedSize);
+        }
+
+        private void add(E node, Collection<E> targets, Collection<E> sources) {
+            outgoing.computeIfAbsent(node, key -> new HashSet<>()).addAll(targets);
+            incoming.computeIfAbsent(node, key -> new HashSet<>()).addAll(sources);
+        }
+
+    }
+
+}
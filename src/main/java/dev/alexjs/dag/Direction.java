@@ -0,0 +1,18 @@
+package dev.alexjs.dag;
+
+/**
+ * The direction in which the edges of a DAG are followed
+ */
+public enum Direction {
+
+    /**
+     * Follow edges from each node to its outgoing nodes, towards the leaves
+     */
+    FORWARD,
+
+    /**
+     * Follow edges from each node to its incoming nodes, towards the roots
+     */
+    BACKWARD
+
+}
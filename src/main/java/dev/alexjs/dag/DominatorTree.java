@@ -0,0 +1,248 @@
+package dev.alexjs.dag;
+
+import com.google.common.collect.Maps;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The dominator tree of a DAG, for answering which upstream nodes gate which downstream nodes
+ * <p>
+ * A node dominates another if every path from a root to the other node passes through it.
+ * Every node dominates itself. The roots are treated as children of one virtual root,
+ * so a node that can be reached from more than one root may have no dominator but itself.
+ * <p>
+ * The tree is computed once, in topological order: since every incoming node of a node comes before it,
+ * a node's immediate dominator is the deepest node of the tree that dominates all its incoming nodes
+ * (Cooper, Harvey and Kennedy's algorithm, which needs only one pass on a DAG).
+ * The tree is walked with binary lifting, so lowest common dominators take logarithmic time,
+ * and {@link DominatorTree#dominates(Object, Object)} compares tree intervals in constant time.
+ * <p>
+ * A lowest common dominator is not a merge-base.
+ * It gates every path from a root to both nodes, so it can be further upstream than their closest shared ancestors,
+ * and there may be none even when the nodes share ancestors.
+ * Use {@link Dag#getLowestCommonAncestors(Object, Object)} for merge-bases.
+ * <p>
+ * The tree fails fast with a {@link ConcurrentModificationException} once its DAG is structurally modified.
+ * Use {@link Dag#getDominatorTree()} to get an up-to-date tree.
+ *
+ * @param <E> the node type
+ */
+public class DominatorTree<E> {
+
+    private final AbstractDag<E> dag;
+    private final int expectedModCount;
+    private final Map<E, Integer> index;
+    private final Object[] nodes;
+    private final int root;
+    private final int[] depth;
+    private final int[][] up;
+    private final int[] enter;
+    private final int[] exit;
+
+    /**
+     * Computes the dominator tree of the given DAG
+     *
+     * @param dag the DAG
+     * @throws IllegalArgumentException if the DAG contains a circular dependency
+     */
+    DominatorTree(AbstractDag<E> dag) {
+
+        this.dag = dag;
+        this.expectedModCount = dag.modCount();
+
+        List<E> sorted = dag.sort();
+        if (sorted == null) {
+            throw dag.circularDependency();
+        }
+
+        // Nodes are numbered in topological order, and the virtual root comes last
+        int size = sorted.size();
+        this.root = size;
+        this.index = Maps.newHashMapWithExpectedSize(size);
+        this.nodes = sorted.toArray();
+        for (int i = 0; i < size; i++) {
+            index.put(sorted.get(i), i);
+        }
+
+        int levels = 1;
+        while ((1 << levels) <= size + 1) {
+            levels++;
+        }
+        this.depth = new int[size + 1];
+        this.up = new int[levels][size + 1];
+        for (int[] ancestors : up) {
+            ancestors[root] = root;
+        }
+
+        for (int i = 0; i < size; i++) {
+            int dominator = -1;
+            for (E source : dag.incoming(sorted.get(i))) {
+                int id = index.get(source);
+                dominator = dominator < 0 ? id : intersect(dominator, id);
+            }
+            if (dominator < 0) {
+                dominator = root;
+            }
+            depth[i] = depth[dominator] + 1;
+            up[0][i] = dominator;
+            for (int level = 1; level < levels; level++) {
+                up[level][i] = up[level - 1][up[level - 1][i]];
+            }
+        }
+
+        // Number the tree so that each subtree is an interval
+        this.enter = new int[size + 1];
+        this.exit = new int[size + 1];
+        number();
+
+    }
+
+    private void number() {
+
+        // Children are linked through arrays rather than lists, since there is exactly one edge per node
+        int size = root;
+        int[] firstChild = new int[size + 1];
+        int[] nextSibling = new int[size + 1];
+        Arrays.fill(firstChild, -1);
+        for (int i = size - 1; i >= 0; i--) {
+            int parent = up[0][i];
+            nextSibling[i] = firstChild[parent];
+            firstChild[parent] = i;
+        }
+
+        int[] stack = new int[size + 1];
+        int[] cursor = new int[size + 1];
+        int top = 0;
+        int clock = 0;
+        stack[0] = root;
+        cursor[root] = firstChild[root];
+        enter[root] = clock++;
+        while (top >= 0) {
+            int node = stack[top];
+            int child = cursor[node];
+            if (child < 0) {
+                exit[node] = clock++;
+                top--;
+            } else {
+                cursor[node] = nextSibling[child];
+                cursor[child] = firstChild[child];
+                enter[child] = clock++;
+                stack[++top] = child;
+            }
+        }
+
+    }
+
+    /**
+     * Gets the closest node other than the given node that dominates it
+     *
+     * @param node the node
+     * @return the immediate dominator, or {@code null} if only the node itself dominates it
+     * @throws IllegalArgumentException if the node is not in the DAG
+     */
+    public E getImmediateDominator(E node) {
+        return toNode(up[0][id(node)]);
+    }
+
+    /**
+     * Returns {@code true} if every path from a root to {@code node} passes through {@code dominator}
+     *
+     * @param dominator the candidate dominator
+     * @param node      the node
+     * @return {@code true} if {@code dominator} dominates {@code node}
+     * @throws IllegalArgumentException if either node is not in the DAG
+     */
+    public boolean dominates(E dominator, E node) {
+        int a = id(dominator);
+        int b = id(node);
+        return enter[a] <= enter[b] && exit[b] <= exit[a];
+    }
+
+    /**
+     * Gets the closest node that dominates both given nodes, which every path from a root to either node goes through.
+     * This is a dominator query, not a merge-base, as explained in {@link DominatorTree}.
+     *
+     * @param a the first node
+     * @param b the second node
+     * @return the lowest common dominator, or {@code null} if no node dominates both
+     * @throws IllegalArgumentException if either node is not in the DAG
+     */
+    public E getLowestCommonDominator(E a, E b) {
+        return toNode(intersect(id(a), id(b)));
+    }
+
+    /**
+     * Gets the closest node that dominates every given node, which every path from a root to any of them goes through
+     *
+     * @param nodes the nodes, of which there must be at least one
+     * @return the lowest common dominator, or {@code null} if no node dominates all of them
+     * @throws IllegalArgumentException if there are no nodes, or any node is not in the DAG
+     */
+    public E getLowestCommonDominator(Collection<E> nodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("At least one node is required");
+        }
+        int result = -1;
+        for (E node : nodes) {
+            int id = id(node);
+            result = result < 0 ? id : intersect(result, id);
+        }
+        return toNode(result);
+    }
+
+    /**
+     * Finds the deepest node of the tree that dominates both given ids
+     */
+    private int intersect(int a, int b) {
+        if (depth[a] < depth[b]) {
+            int swap = a;
+            a = b;
+            b = swap;
+        }
+        for (int level = up.length - 1; level >= 0; level--) {
+            if (depth[a] - (1 << level) >= depth[b]) {
+                a = up[level][a];
+            }
+        }
+        if (a == b) {
+            return a;
+        }
+        for (int level = up.length - 1; level >= 0; level--) {
+            if (up[level][a] != up[level][b]) {
+                a = up[level][a];
+                b = up[level][b];
+            }
+        }
+        return up[0][a];
+    }
+
+    private int id(E node) {
+        if (dag.modCount() != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+        Integer id = index.get(node);
+        if (id == null) {
+            throw new IllegalArgumentException("DAG does not contain the node " + node);
+        }
+        return id;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E toNode(int id) {
+        return id == root ? null : (E) nodes[id];
+    }
+
+    /**
+     * Returns {@code true} if this tree was computed from the DAG as it is now
+     *
+     * @return {@code true} if the DAG hasn't been modified since
+     */
+    boolean isCurrent() {
+        return dag.modCount() == expectedModCount;
+    }
+
+}
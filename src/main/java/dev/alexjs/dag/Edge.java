@@ -0,0 +1,91 @@
+package dev.alexjs.dag;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * A single {@code source} to {@code target} relationship between two nodes of a DAG
+ *
+ * @param <E> the node type
+ */
+public final class Edge<E> implements Serializable {
+
+    private final E source;
+    private final E target;
+
+    /**
+     * Creates an edge from {@code source} to {@code target}
+     *
+     * @param source the source node
+     * @param target the target node
+     */
+    public Edge(E source, E target) {
+        this.source = source;
+        this.target = target;
+    }
+
+    /**
+     * Creates an edge from {@code source} to {@code target}
+     *
+     * @param source the source node
+     * @param target the target node
+     * @param <E>    the node type
+     * @return the edge
+     */
+    public static <E> Edge<E> of(E source, E target) {
+        return new Edge<>(source, target);
+    }
+
+    /**
+     * Gets the source node of this edge
+     *
+     * @return the source node
+     */
+    public E getSource() {
+        return source;
+    }
+
+    /**
+     * Gets the target node of this edge
+     *
+     * @return the target node
+     */
+    public E getTarget() {
+        return target;
+    }
+
+    /**
+     * Compares the specified object with this edge for equality
+     *
+     * @param o object to be compared for equality with this edge
+     * @return {@code true} if the specified object is an edge with the same source and target
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Edge<?> other = (Edge<?>) o;
+        return Objects.equals(source, other.source) && Objects.equals(target, other.target);
+    }
+
+    /**
+     * Returns the hash code value for this edge
+     *
+     * @return the hash code value for this edge
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(source, target);
+    }
+
+    /**
+     * Returns a string representation of this edge
+     *
+     * @return a string representation of this edge
+     */
+    @Override
+    public String toString() {
+        return source + " -> " + target;
+    }
+
+}
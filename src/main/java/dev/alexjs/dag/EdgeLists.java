@@ -0,0 +1,320 @@
+package dev.alexjs.dag;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Reads and writes DAGs as edge-list text files
+ * <p>
+ * An edge list has one edge per line, written as the source node and the target node separated by spaces or tabs.
+ * A line with only one node adds that node without any edges, and blank lines are ignored.
+ * Files are UTF-8, and lines may end with either {@code \n} or {@code \r\n}.
+ * <p>
+ * Reading splits the file into chunks at line boundaries and parses the chunks in parallel.
+ * The parsed edges are fed to a {@link DagBuilder}, so the graph is only checked for circular dependencies once.
+ * Writing goes straight from the DAG's adjacency sets to the file without building a copy of the graph.
+ */
+public final class EdgeLists {
+
+    /**
+     * The number of bytes read into memory and parsed at once by a single thread
+     */
+    private static final int CHUNK_SIZE = 8 * 1024 * 1024;
+
+    /**
+     * The number of bytes buffered before they're written to the file
+     */
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private EdgeLists() {
+    }
+
+    /**
+     * Reads an edge list into a new {@link HashDag}
+     *
+     * @param path   the file to read
+     * @param parser converts each node as it's written in the file to a node
+     * @param <E>    the node type
+     * @return the DAG
+     * @throws IOException              if the file can't be read
+     * @throws IllegalArgumentException if a line has more than two nodes, or the graph contains a circular dependency
+     */
+    public static <E> HashDag<E> read(Path path, Function<String, ? extends E> parser) throws IOException {
+        DagBuilder<E> builder = new DagBuilder<>();
+        read(path, parser, builder, CHUNK_SIZE);
+        return builder.build();
+    }
+
+    /**
+     * Reads an edge list into the given builder
+     *
+     * @param path    the file to read
+     * @param parser  converts each node as it's written in the file to a node
+     * @param builder the builder to add the nodes and edges to
+     * @param <E>     the node type
+     * @throws IOException              if the file can't be read
+     * @throws IllegalArgumentException if a line has more than two nodes
+     */
+    public static <E> void read(Path path, Function<String, ? extends E> parser, DagBuilder<E> builder)
+            throws IOException {
+        read(path, parser, builder, CHUNK_SIZE);
+    }
+
+    /**
+     * Reads an edge list into the given builder, parsing chunks of roughly the given size in parallel
+     *
+     * @param path      the file to read
+     * @param parser    converts each node as it's written in the file to a node
+     * @param builder   the builder to add the nodes and edges to
+     * @param chunkSize the number of bytes each thread parses at once, which is extended to the end of a line
+     * @param <E>       the node type
+     * @throws IOException if the file can't be read
+     */
+    static <E> void read(Path path, Function<String, ? extends E> parser, DagBuilder<E> builder, int chunkSize)
+            throws IOException {
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+
+            long[] boundaries = findBoundaries(channel, chunkSize);
+            int chunks = boundaries.length - 1;
+
+            // Parse as many chunks at once as there are processors, so only that many parsed chunks are held at once
+            int batchSize = Runtime.getRuntime().availableProcessors();
+            for (int first = 0; first < chunks; first += batchSize) {
+                List<Chunk<E>> batch;
+                try {
+                    batch = IntStream.range(first, Math.min(first + batchSize, chunks))
+                            .parallel()
+                            .mapToObj(i -> EdgeLists.<E>parse(channel, boundaries[i], boundaries[i + 1], parser))
+                            .collect(Collectors.toList());
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                for (Chunk<E> chunk : batch) {
+                    builder.addAll(chunk.nodes);
+                    for (int i = 0; i < chunk.edges.size(); i += 2) {
+                        builder.put(chunk.edges.get(i), chunk.edges.get(i + 1));
+                    }
+                }
+            }
+
+        }
+
+    }
+
+    /**
+     * Writes the nodes and edges of a DAG as an edge list.
+     * Every edge gets a line, and so does every node that has no edges.
+     * If the file already exists, it is replaced.
+     *
+     * @param dag       the DAG to write
+     * @param path      the file to write
+     * @param formatter converts each node to how it's written in the file
+     * @param <E>       the node type
+     * @throws IOException              if the file can't be written
+     * @throws IllegalArgumentException if a formatted node is empty or contains whitespace
+     */
+    public static <E> void write(Dag<E> dag, Path path, Function<? super E, String> formatter) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            for (E source : AbstractDag.nodesOf(dag)) {
+                byte[] formattedSource = format(formatter, source);
+                boolean isolated = true;
+                for (E target : AbstractDag.outgoingOf(dag, source)) {
+                    writeLine(channel, buffer, formattedSource, format(formatter, target));
+                    isolated = false;
+                }
+                if (isolated && dag.inDegree(source) == 0) {
+                    writeLine(channel, buffer, formattedSource, null);
+                }
+            }
+            flush(channel, buffer);
+
+        }
+
+    }
+
+    private static long[] findBoundaries(FileChannel channel, int chunkSize) throws IOException {
+
+        long size = channel.size();
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+
+        // Move each boundary forward to just past the next line break
+        ByteBuffer window = ByteBuffer.allocate(4096);
+        long boundary = chunkSize;
+        while (boundary < size) {
+            long position = boundary;
+            boolean found = false;
+            while (!found && position < size) {
+                window.clear();
+                int read = channel.read(window, position);
+                if (read < 0) {
+                    break;
+                }
+                for (int i = 0; i < read && !found; i++) {
+                    if (window.get(i) == '\n') {
+                        position += i + 1;
+                        found = true;
+                    }
+                }
+                if (!found) {
+                    position += read;
+                }
+            }
+            if (position < size) {
+                boundaries.add(position);
+            }
+            boundary = position + chunkSize;
+        }
+        boundaries.add(size);
+
+        long[] result = new long[boundaries.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = boundaries.get(i);
+        }
+        return result;
+
+    }
+
+    private static <E> Chunk<E> parse(FileChannel channel, long start, long end,
+                                      Function<String, ? extends E> parser) {
+
+        byte[] bytes = new byte[(int) (end - start)];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try {
+            // Positional reads don't move the channel's position, so chunks can be read concurrently
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) < 0) {
+                    throw new IOException("File was truncated while it was being read");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Chunk<E> chunk = new Chunk<>();
+        int lineStart = 0;
+        while (lineStart < bytes.length) {
+            int lineEnd = lineStart;
+            while (lineEnd < bytes.length && bytes[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            parseLine(bytes, lineStart, lineEnd, start, parser, chunk);
+            lineStart = lineEnd + 1;
+        }
+        return chunk;
+
+    }
+
+    private static <E> void parseLine(byte[] bytes, int start, int end, long offset,
+                                      Function<String, ? extends E> parser, Chunk<E> chunk) {
+
+        int[] tokens = new int[4];
+        int count = 0;
+        int i = start;
+        while (i < end) {
+            while (i < end && isWhitespace(bytes[i])) {
+                i++;
+            }
+            if (i == end) {
+                break;
+            }
+            if (count == tokens.length) {
+                throw new IllegalArgumentException("Malformed edge list line at byte " + (offset + start));
+            }
+            tokens[count++] = i;
+            while (i < end && !isWhitespace(bytes[i])) {
+                i++;
+            }
+            tokens[count++] = i;
+        }
+
+        if (count == 2) {
+            chunk.nodes.add(parser.apply(decode(bytes, tokens[0], tokens[1])));
+        } else if (count == 4) {
+            chunk.edges.add(parser.apply(decode(bytes, tokens[0], tokens[1])));
+            chunk.edges.add(parser.apply(decode(bytes, tokens[2], tokens[3])));
+        }
+
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private static String decode(byte[] bytes, int start, int end) {
+        return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    private static <E> byte[] format(Function<? super E, String> formatter, E node) {
+        String formatted = formatter.apply(node);
+        if (formatted.isEmpty()) {
+            throw new IllegalArgumentException("Formatted node must not be empty");
+        }
+        for (int i = 0; i < formatted.length(); i++) {
+            if (Character.isWhitespace(formatted.charAt(i))) {
+                throw new IllegalArgumentException("Formatted node must not contain whitespace: " + formatted);
+            }
+        }
+        return formatted.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void writeLine(FileChannel channel, ByteBuffer buffer, byte[] source, byte[] target)
+            throws IOException {
+        int length = source.length + 1 + (target == null ? 0 : target.length + 1);
+        if (length > buffer.remaining()) {
+            flush(channel, buffer);
+            if (length > buffer.capacity()) {
+                buffer = ByteBuffer.allocate(length);
+                writeLine(channel, buffer, source, target);
+                flush(channel, buffer);
+                return;
+            }
+        }
+        buffer.put(source);
+        if (target != null) {
+            buffer.put((byte) '\t');
+            buffer.put(target);
+        }
+        buffer.put((byte) '\n');
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * The nodes and edges parsed from one chunk of a file
+     *
+     * @param <E> the node type
+     */
+    private static class Chunk<E> {
+
+        private final List<E> nodes = new ArrayList<>();
+
+        /**
+         * Each edge is stored as its source followed by its target
+         */
+        private final List<E> edges = new ArrayList<>();
+
+    }
+
+}
@@ -1,17 +1,16 @@
 package dev.alexjs.dag;
 
-import java.util.ArrayList;
-import java.util.Arrays;
+import com.google.common.collect.Maps;
+
 import java.util.Collection;
-import java.util.Deque;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * An implementation of {@link Dag} where the underlying structure is a {@link HashMap}
@@ -22,7 +21,7 @@ import java.util.Set;
  *
  * @param <E> the node type
  */
-public class HashDag<E> implements Dag<E> {
+public class HashDag<E> extends AbstractDag<E> {
 
     /**
      * The backing {@link Map} that represents this DAG.
@@ -30,11 +29,47 @@ public class HashDag<E> implements Dag<E> {
      */
     private final Map<E, Collection<E>> map;
 
+    /**
+     * The incoming nodes of each node, kept in step with {@link HashDag#map}.
+     * This lets in-degrees and incoming edges be looked up without scanning the whole DAG.
+     */
+    private final Map<E, Collection<E>> incoming;
+
+    /**
+     * The nodes with no incoming edges, kept in step with {@link HashDag#incoming}
+     */
+    private final Set<E> roots;
+
+    /**
+     * The nodes with no outgoing edges, kept in step with {@link HashDag#map}
+     */
+    private final Set<E> leaves;
+
+    /**
+     * The number of times this DAG has been structurally modified.
+     * Iterators use this to fail fast if the DAG changes underneath them.
+     */
+    private transient int modCount;
+
+    /**
+     * The hash code of this DAG, kept up to date by every mutation.
+     * This is the sum of the hash codes of every node and of every edge, as given by {@link Edge#hashCode()}.
+     */
+    private int hash;
+
+    /**
+     * The listeners to tell about each structural change, or {@code null} if there are none
+     */
+    private transient List<MutationListener<E>> listeners;
+
     /**
      * Constructs an empty {@link HashDag}
      */
     public HashDag() {
         this.map = new HashMap<>();
+        this.incoming = new HashMap<>();
+        this.roots = new HashSet<>();
+        this.leaves = new HashSet<>();
     }
 
     /**
@@ -45,24 +80,114 @@ public class HashDag<E> implements Dag<E> {
      */
     public HashDag(Map<E, Collection<E>> map) {
         this.map = new HashMap<>();
+        this.incoming = new HashMap<>();
+        this.roots = new HashSet<>();
+        this.leaves = new HashSet<>();
         map.forEach(this::putAll);
     }
 
+    /**
+     * Constructs an empty {@link HashDag} with room for the given number of nodes
+     *
+     * @param expectedSize the number of nodes this DAG is expected to have
+     */
+    HashDag(int expectedSize) {
+        this.map = Maps.newHashMapWithExpectedSize(expectedSize);
+        this.incoming = Maps.newHashMapWithExpectedSize(expectedSize);
+        this.roots = new HashSet<>();
+        this.leaves = new HashSet<>();
+    }
+
+    /**
+     * Creates a new DAG with the same structure as the given {@link HashDag}
+     *
+     * @param other the DAG to copy
+     */
+    private HashDag(HashDag<E> other) {
+        this(other.map, other.incoming);
+    }
+
+    /**
+     * Creates a new DAG from copies of the given outgoing and incoming maps.
+     * Each set is copied whole instead of being rebuilt one edge at a time.
+     *
+     * @param outgoing each node's outgoing nodes
+     * @param incoming each node's incoming nodes, which must mirror {@code outgoing}
+     */
+    private HashDag(Map<E, Collection<E>> outgoing, Map<E, Collection<E>> incoming) {
+        this.map = copyOf(outgoing);
+        this.incoming = copyOf(incoming);
+        this.roots = new HashSet<>();
+        this.leaves = new HashSet<>();
+        for (Map.Entry<E, Collection<E>> entry : map.entrySet()) {
+            hash += Objects.hashCode(entry.getKey());
+            for (E target : entry.getValue()) {
+                hash += edgeHash(entry.getKey(), target);
+            }
+            if (entry.getValue().isEmpty()) {
+                leaves.add(entry.getKey());
+            }
+        }
+        this.incoming.forEach((node, sources) -> {
+            if (sources.isEmpty()) {
+                roots.add(node);
+            }
+        });
+    }
+
+    private static <E> Map<E, Collection<E>> copyOf(Map<E, Collection<E>> adjacency) {
+        Map<E, Collection<E>> copy = Maps.newHashMapWithExpectedSize(adjacency.size());
+        adjacency.forEach((node, nodes) -> copy.put(node, new HashSet<>(nodes)));
+        return copy;
+    }
+
 
     /* Methods exclusive to Dag<> */
 
     @Override
     public boolean put(E source, E target) {
-        boolean changed;
-        if (!map.containsKey(source)) {
-            Set<E> targets = new HashSet<>();
-            targets.add(target);
-            changed = map.put(source, targets) != targets;
-        } else {
-            changed = map.get(source).add(target);
+        Collection<E> targets = map.get(source);
+        boolean newSource = targets == null;
+        if (newSource) {
+            targets = new HashSet<>();
+            map.put(source, targets);
+            incoming.put(source, new HashSet<>());
+            roots.add(source);
+            hash += Objects.hashCode(source);
         }
-        changed |= add(target);
-        return changed;
+        if (!targets.add(target)) {
+            return false;
+        }
+        if (targets.size() == 1) {
+            leaves.remove(source);
+        }
+        Collection<E> sources = incoming.get(target);
+        boolean newTarget = sources == null;
+        if (newTarget) {
+            sources = new HashSet<>();
+            incoming.put(target, sources);
+            map.put(target, new HashSet<>());
+            leaves.add(target);
+            hash += Objects.hashCode(target);
+        }
+        sources.add(source);
+        if (sources.size() == 1) {
+            roots.remove(target);
+        }
+        hash += edgeHash(source, target);
+        modCount++;
+        if (listeners != null) {
+            for (MutationListener<E> listener : listeners) {
+                if (newSource) {
+                    listener.nodeAdded(source);
+                }
+                if (newTarget) {
+                    listener.nodeAdded(target);
+                }
+                listener.edgeAdded(source, target);
+            }
+        }
+        return true;
     }
 
     @Override
@@ -80,174 +205,233 @@ public class HashDag<E> implements Dag<E> {
 
     @Override
     public boolean removeEdge(E source, E target) {
-        return map.containsKey(source) && map.get(source).remove(target);
+        Collection<E> targets = map.get(source);
+        if (targets == null || !targets.remove(target)) {
+            return false;
+        }
+        if (targets.isEmpty()) {
+            leaves.add(source);
+        }
+        Collection<E> sources = incoming.get(target);
+        sources.remove(source);
+        if (sources.isEmpty()) {
+            roots.add(target);
+        }
+        hash -= edgeHash(source, target);
+        modCount++;
+        if (listeners != null) {
+            for (MutationListener<E> listener : listeners) {
+                listener.edgeRemoved(source, target);
+            }
+        }
+        return true;
     }
 
     @Override
-    public List<E> sort() {
-
-        // https://en.wikipedia.org/wiki/Topological_sorting#Kahn's_algorithm
-        // Great for running a task on these elements in a single thread
-
-        List<E> sorted = new LinkedList<>();
-        Deque<E> s = new LinkedList<>(getRoots());
-
-        Map<E, Collection<E>> copy = this.toMap();
-
-        while (!s.isEmpty()) {
-            E n = s.pop();
-            sorted.add(n);
+    public boolean containsEdge(E source, E target) {
+        Collection<E> targets = map.get(source);
+        return targets != null && targets.contains(target);
+    }
 
-            for (E m : copy.remove(n)) {
-                boolean hasIncoming = false;
-                for (Collection<E> entry : copy.values()) {
-                    if (entry.contains(m)) {
-                        hasIncoming = true;
-                        break;
-                    }
-                }
-                if (!hasIncoming) {
-                    s.add(m);
-                }
+    /**
+     * Makes the changes of a delta to this DAG in place.
+     * The delta is checked against this DAG first, so this DAG is left as it was if the delta doesn't fit it.
+     *
+     * @param delta the delta, usually from {@link DagDelta#diff(Dag, Dag)} with a DAG equal to this one
+     * @throws IllegalArgumentException if this DAG is missing a node or edge the delta removes,
+     *                                  or already has a node or edge the delta adds
+     */
+    public void apply(DagDelta<E> delta) {
+        for (E node : delta.getRemovedNodes()) {
+            if (!map.containsKey(node)) {
+                throw new IllegalArgumentException("DAG does not contain the node " + node);
             }
         }
-
-        if (!copy.isEmpty()) {
-            return null;
+        for (Edge<E> edge : delta.getRemovedEdges()) {
+            if (!containsEdge(edge.getSource(), edge.getTarget())) {
+                throw new IllegalArgumentException("DAG does not contain the edge " + edge);
+            }
+        }
+        for (E node : delta.getAddedNodes()) {
+            if (map.containsKey(node)) {
+                throw new IllegalArgumentException("DAG already contains the node " + node);
+            }
+        }
+        for (Edge<E> edge : delta.getAddedEdges()) {
+            if (containsEdge(edge.getSource(), edge.getTarget())) {
+                throw new IllegalArgumentException("DAG already contains the edge " + edge);
+            }
         }
 
-        return sorted;
-
+        for (Edge<E> edge : delta.getRemovedEdges()) {
+            removeEdge(edge.getSource(), edge.getTarget());
+        }
+        for (E node : delta.getRemovedNodes()) {
+            remove(node);
+        }
+        for (E node : delta.getAddedNodes()) {
+            add(node);
+        }
+        for (Edge<E> edge : delta.getAddedEdges()) {
+            put(edge.getSource(), edge.getTarget());
+        }
     }
 
     @Override
-    public Set<E> getRoots() {
-        Set<E> roots = new HashSet<>(map.keySet());
-        for (Collection<E> targets : map.values()) {
-            roots.removeAll(targets);
-        }
-        return roots;
+    public Dag<E> inverted() {
+        // The incoming nodes of this DAG are exactly the outgoing nodes of the inverted DAG
+        return new HashDag<>(incoming, map);
     }
 
     @Override
-    public Set<E> getLeaves() {
-        Set<E> leaves = new HashSet<>();
-        for (Map.Entry<E, Collection<E>> entry : map.entrySet()) {
-            if (entry.getValue().isEmpty()) {
-                leaves.add(entry.getKey());
-            }
+    public Dag<E> union(Dag<E> other) {
+        // Copy the larger operand once, then merge the smaller one into the copy
+        if (other instanceof AbstractDag && other.size() > size()) {
+            HashDag<E> union = ((AbstractDag<E>) other).toHashDag();
+            union.putAll(this);
+            return union;
         }
-        return leaves;
+        HashDag<E> union = toHashDag();
+        union.putAll(other);
+        return union;
     }
 
     @Override
-    public Set<E> getIncoming(E node) {
-        Set<E> set = new HashSet<>();
-        for (Map.Entry<E, Collection<E>> entry : map.entrySet()) {
-            if (entry.getValue().contains(node)) {
-                set.add(entry.getKey());
-            }
-        }
-        return set;
+    Set<E> nodes() {
+        return Collections.unmodifiableSet(map.keySet());
     }
 
+    /**
+     * Gets the nodes of this DAG that have no incoming edges.
+     * The roots are kept up to date as this DAG changes, so this only copies them instead of scanning every node.
+     *
+     * @return the root nodes
+     */
     @Override
-    public Set<E> getOutgoing(E node) {
-        Collection<E> outgoing = map.get(node);
-        if (outgoing == null) {
-            return new HashSet<>();
-        } else {
-            return new HashSet<>(outgoing);
-        }
+    public Set<E> getRoots() {
+        return new HashSet<>(roots);
     }
 
+    /**
+     * Gets the nodes of this DAG that have no outgoing edges.
+     * The leaves are kept up to date as this DAG changes, so this only copies them instead of scanning every node.
+     *
+     * @return the leaf nodes
+     */
     @Override
-    public Set<E> getAncestors(E node) {
-        checkForCircularDependency();
-        return getAncestorsImpl(node);
+    public Set<E> getLeaves() {
+        return new HashSet<>(leaves);
     }
 
-    private Set<E> getAncestorsImpl(E node) {
-        Set<E> ancestors = getIncoming(node);
-        for (E ancestor : new HashSet<>(ancestors)) {
-            ancestors.addAll(getAncestorsImpl(ancestor));
-        }
-        return ancestors;
+    /**
+     * Gets a read-only view of the nodes of this DAG that have no incoming edges, in constant time.
+     * The view follows later changes to this DAG, so it can be polled without copying it each time,
+     * but iterating it while this DAG is modified throws a {@link java.util.ConcurrentModificationException}.
+     *
+     * @return a view of the root nodes
+     */
+    public Set<E> getRootView() {
+        return Collections.unmodifiableSet(roots);
+    }
+
+    /**
+     * Gets a read-only view of the nodes of this DAG that have no outgoing edges, in constant time.
+     * The view follows later changes to this DAG, so it can be polled without copying it each time,
+     * but iterating it while this DAG is modified throws a {@link java.util.ConcurrentModificationException}.
+     *
+     * @return a view of the leaf nodes
+     */
+    public Set<E> getLeafView() {
+        return Collections.unmodifiableSet(leaves);
     }
 
     @Override
-    public Set<E> getDescendants(E node) {
-        checkForCircularDependency();
-        return getDescendantsImpl(node);
+    Collection<E> outgoing(E node) {
+        Collection<E> targets = map.get(node);
+        return targets == null ? Collections.emptySet() : targets;
     }
 
-    private Set<E> getDescendantsImpl(E node) {
-        Set<E> descendants = getOutgoing(node);
-        for (E descendant : new HashSet<>(descendants)) {
-            descendants.addAll(getDescendantsImpl(descendant));
-        }
-        return descendants;
+    @Override
+    Collection<E> incoming(E node) {
+        Collection<E> sources = incoming.get(node);
+        return sources == null ? Collections.emptySet() : sources;
     }
 
-    public Set<E> getFamily(E node) {
-        checkForCircularDependency();
-        Set<E> result = getAncestorsImpl(node);
-        result.addAll(getDescendantsImpl(node));
-        result.add(node);
-        return result;
+    @Override
+    public int inDegree(E node) {
+        Collection<E> sources = incoming.get(node);
+        return sources == null ? 0 : sources.size();
     }
 
-    private void checkForCircularDependency() {
-        if (sort() == null) {
-            throw new IllegalArgumentException("DAG contains a circular dependency");
-        }
+    @Override
+    public int outDegree(E node) {
+        Collection<E> targets = map.get(node);
+        return targets == null ? 0 : targets.size();
     }
 
     @Override
-    public Set<E> getNodes() {
-        return toMap().keySet();
+    int modCount() {
+        return modCount;
     }
 
     @Override
-    public Dag<E> inverted() {
-        Map<E, Collection<E>> result = new HashMap<>();
-        for (Map.Entry<E, Collection<E>> entry : this.map.entrySet()) {
-            E source = entry.getKey();
-            Collection<E> targets = entry.getValue();
-            for (E target : targets) {
-                if (!result.containsKey(target)) {
-                    result.put(target, new HashSet<>());
-                }
-                result.get(target).add(source);
-            }
+    HashDag<E> toHashDag() {
+        return new HashDag<>(this);
+    }
+
+    /**
+     * Adds a node that is not yet in this DAG along with its outgoing and incoming nodes, without copying them.
+     * Each of the outgoing and incoming nodes must also be added with this method, with matching edges,
+     * and both sets must already be complete.
+     *
+     * @param node     the node
+     * @param outgoing the node's outgoing nodes
+     * @param incoming the node's incoming nodes
+     */
+    void putNode(E node, Set<E> outgoing, Set<E> incoming) {
+        this.map.put(node, outgoing);
+        this.incoming.put(node, incoming);
+        if (incoming.isEmpty()) {
+            roots.add(node);
         }
-        return new HashDag<>(result);
+        if (outgoing.isEmpty()) {
+            leaves.add(node);
+        }
+        hash += Objects.hashCode(node);
+        for (E target : outgoing) {
+            hash += edgeHash(node, target);
+        }
+        modCount++;
     }
 
-    @Override
-    public Dag<E> union(Dag<E> other) {
-        Dag<E> union = new HashDag<>(map);
-        for (Map.Entry<E, Collection<E>> entry : other.toMap().entrySet()) {
-            union.putAll(entry.getKey(), entry.getValue());
+    /**
+     * Registers a listener to be told about each structural change to this DAG
+     *
+     * @param listener the listener
+     */
+    void addListener(MutationListener<E> listener) {
+        if (listeners == null) {
+            listeners = new CopyOnWriteArrayList<>();
         }
-        return union;
+        listeners.add(listener);
     }
 
-    @Override
-    public Dag<E> intersection(Dag<E> other) {
-        // TODO this isn't right
-        Dag<E> complement = new HashDag<>(map);
-        Dag<E> intersection = new HashDag<>(complement.toMap());
-        complement.removeAll(other);
-        intersection.removeAll(complement);
-        return intersection;
+    /**
+     * Stops telling a listener about structural changes to this DAG
+     *
+     * @param listener the listener
+     */
+    void removeListener(MutationListener<E> listener) {
+        if (listeners != null) {
+            listeners.remove(listener);
+            if (listeners.isEmpty()) {
+                listeners = null;
+            }
+        }
     }
 
-    @Override
-    public Map<E, Collection<E>> toMap() {
-        Map<E, Collection<E>> copy = new HashMap<>();
-        map.forEach((key, value) -> copy.put(key, new HashSet<>(value)));
-        return copy;
+    private static int edgeHash(Object source, Object target) {
+        return Objects.hash(source, target);
     }
 
 
@@ -260,7 +444,7 @@ public class HashDag<E> implements Dag<E> {
      */
     @Override
     public int size() {
-        return map.keySet().size();
+        return map.size();
     }
 
     /**
@@ -284,52 +468,6 @@ public class HashDag<E> implements Dag<E> {
         return map.containsKey(node);
     }
 
-    /**
-     * Returns a {@link Iterator} over the nodes in this DAG.
-     * The iterator will return nodes in topological order.
-     *
-     * @return a {@link Iterator} over the nodes in this DAG
-     */
-    @Override
-    public Iterator<E> iterator() {
-        return sort().iterator();
-    }
-
-    /**
-     * Returns an array containing all the nodes in this DAG
-     *
-     * @return an array containing all the nodes in this DAG
-     */
-    @Override
-    public Object[] toArray() {
-        return sort().toArray();
-    }
-
-
-    /**
-     * Returns an array containing all the nodes in this DAG
-     *
-     * @param array the array into which the nodes of this DAG will be stored if it is big enough.
-     *              Otherwise, a new array of the same runtime type is allocated for this purpose.
-     * @param <T>   the type of the array to create
-     * @return an array containing all the nodes in this DAG
-     */
-    @Override
-    public <T> T[] toArray(T[] array) {
-        @SuppressWarnings("unchecked")
-        T[] sorted = (T[]) sort().toArray();
-        if (array.length < sorted.length) {
-            @SuppressWarnings("unchecked")
-            T[] result = (T[]) Arrays.copyOf(sorted, sorted.length, array.getClass());
-            return result;
-        }
-        System.arraycopy(sorted, 0, array, 0, sorted.length);
-        if (array.length > sorted.length) {
-            array[sorted.length] = null;
-        }
-        return array;
-    }
-
     /**
      * Adds a single node to this DAG
      *
@@ -338,7 +476,21 @@ public class HashDag<E> implements Dag<E> {
      */
     @Override
     public boolean add(E node) {
-        return map.putIfAbsent(node, new HashSet<>()) == null;
+        if (map.containsKey(node)) {
+            return false;
+        }
+        map.put(node, new HashSet<>());
+        incoming.put(node, new HashSet<>());
+        roots.add(node);
+        leaves.add(node);
+        hash += Objects.hashCode(node);
+        modCount++;
+        if (listeners != null) {
+            for (MutationListener<E> listener : listeners) {
+                listener.nodeAdded(node);
+            }
+        }
+        return true;
     }
 
     /**
@@ -349,81 +501,40 @@ public class HashDag<E> implements Dag<E> {
      */
     @Override
     public boolean remove(Object node) {
-        boolean removed = map.remove(node) != null;
-        for (E source : map.keySet()) {
-            Collection<E> outgoing = map.get(source);
-            if (outgoing != null) {
-                removed |= outgoing.remove(node);
-            }
-        }
-        return removed;
-    }
-
-    /**
-     * Returns {@code true} if this DAG contains all the elements in the specified collection
-     *
-     * @param collection the collection of nodes whose entire presence is to be tested
-     * @return {@code true} if this DAG contains all the elements in the specified collection
-     */
-    @Override
-    public boolean containsAll(Collection<?> collection) {
-        return map.keySet().containsAll(collection);
-    }
-
-    /**
-     * Adds each node in the specified collection to this DAG if it is not already present
-     *
-     * @param nodes the collection of nodes to be added to this DAG
-     * @return {@code true} if this DAG changed as a result of the call
-     */
-    @Override
-    public boolean addAll(Collection<? extends E> nodes) {
-        boolean changed = false;
-        for (E node : nodes) {
-            changed |= add(node);
+        Collection<E> targets = map.remove(node);
+        if (targets == null) {
+            return false;
         }
-        return changed;
-    }
-
-    /**
-     * Removes each node in the specified collection and all their incoming and outgoing edges from this DAG
-     *
-     * @param nodes the collection of nodes to be removed from this DAG, if present
-     * @return {@code true} if this DAG changed as a result of the call
-     */
-    @Override
-    public boolean removeAll(Collection<?> nodes) {
-        boolean changed = false;
-        for (Object node : nodes) {
-            changed |= remove(node);
+        Collection<E> sources = incoming.remove(node);
+        roots.remove(node);
+        leaves.remove(node);
+        hash -= Objects.hashCode(node);
+        for (E target : targets) {
+            Collection<E> targetSources = incoming.get(target);
+            if (targetSources != null && targetSources.remove(node) && targetSources.isEmpty()) {
+                roots.add(target);
+            }
+            hash -= edgeHash(node, target);
         }
-        return changed;
-    }
-
-    /**
-     * Retains only the nodes in this DAG that are also present in the specified collection
-     *
-     * @param collection the collection containing the nodes to be retained in this DAG
-     * @return {@code true} if this collection changed as a result of the call
-     */
-    @Override
-    public boolean retainAll(Collection<?> collection) {
-        // Collect the nodes to be removed
-        List<E> remove = new ArrayList<>();
-        for (E node : map.keySet()) {
-            if (!collection.contains(node)) {
-                remove.add(node);
+        for (E source : sources) {
+            Collection<E> sourceTargets = map.get(source);
+            // A self-loop was already subtracted along with the outgoing edges
+            if (sourceTargets != null && sourceTargets.remove(node)) {
+                hash -= edgeHash(source, node);
+                if (sourceTargets.isEmpty()) {
+                    leaves.add(source);
+                }
             }
         }
-
-        // Remove them
-        boolean changed = false;
-        for (E node : remove) {
-            remove(node);
-            changed = true;
+        modCount++;
+        if (listeners != null) {
+            @SuppressWarnings("unchecked")
+            E removed = (E) node;
+            for (MutationListener<E> listener : listeners) {
+                listener.nodeRemoved(removed, targets);
+            }
         }
-
-        return changed;
+        return true;
     }
 
     /**
@@ -432,6 +543,16 @@ public class HashDag<E> implements Dag<E> {
     @Override
     public void clear() {
         map.clear();
+        incoming.clear();
+        roots.clear();
+        leaves.clear();
+        hash = 0;
+        modCount++;
+        if (listeners != null) {
+            for (MutationListener<E> listener : listeners) {
+                listener.cleared();
+            }
+        }
     }
 
     /**
@@ -449,13 +570,14 @@ public class HashDag<E> implements Dag<E> {
     }
 
     /**
-     * Returns the hash code value for this DAG
+     * Returns the hash code value for this DAG.
+     * The hash code is kept up to date as this DAG changes, so this takes constant time.
      *
      * @return the hash code value for this DAG
      */
     @Override
     public int hashCode() {
-        return Objects.hash(map);
+        return hash;
     }
 
     /**
@@ -466,7 +588,7 @@ public class HashDag<E> implements Dag<E> {
      */
     @Override
     public Dag<E> clone() {
-        return new HashDag<>(map);
+        return new HashDag<>(this);
     }
 
 }
@@ -0,0 +1,814 @@
+package dev.alexjs.dag;
+
+import com.google.common.collect.Maps;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * An implementation of {@link Dag} for nodes whose {@link Object#hashCode()} and {@link Object#equals(Object)}
+ * are expensive, such as large composite keys
+ * <p>
+ * Each node is hashed once, when it's added, to give it a dense integer id.
+ * Its outgoing and incoming nodes are stored as {@code int[]} arrays of ids,
+ * so sorting, closures, components and {@link DagTraversalTask} bookkeeping never hash a node again.
+ * Nodes are only looked up when they're passed in, and only hashed again to build the sets that are handed back,
+ * such as the result of {@link InternedDag#getDescendants(Object)}.
+ * <p>
+ * A node with more than a few outgoing or incoming nodes also gets a small hash index over its array of ids,
+ * so finding one of its edges, as {@link InternedDag#containsEdge(Object, Object)} and
+ * {@link InternedDag#put(Object, Object)} do, takes constant time however many edges it has.
+ * <p>
+ * Operations that create new DAGs, like {@link InternedDag#union(Dag)}, create {@link InternedDag}s.
+ * {@link WeightedDag} builds on this storage and keeps a weight alongside each outgoing edge.
+ *
+ * @param <E> the node type
+ */
+public class InternedDag<E> extends AbstractIdDag<E> {
+
+    private static final int[] NO_IDS = new int[0];
+
+    /**
+     * The number of outgoing or incoming nodes past which a node's edges are indexed, rather than scanned
+     */
+    private static final int INDEX_THRESHOLD = 16;
+
+    private final Map<E, Integer> ids;
+    private Object[] nodes;
+    int[][] targets;
+    int[] targetCounts;
+    private transient PositionIndex[] targetIndexes;
+    private int[][] sources;
+    private int[] sourceCounts;
+    private transient PositionIndex[] sourceIndexes;
+    private int[] freeIds;
+    private int freeCount;
+    int nextId;
+    private transient int modCount;
+
+    /**
+     * Constructs an empty {@link InternedDag}
+     */
+    public InternedDag() {
+        this(16);
+    }
+
+    /**
+     * Constructs an empty {@link InternedDag} with room for the given number of nodes
+     *
+     * @param expectedSize the number of nodes this DAG is expected to have
+     */
+    public InternedDag(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size must not be negative");
+        }
+        this.ids = Maps.newHashMapWithExpectedSize(expectedSize);
+        allocate(expectedSize);
+    }
+
+    /**
+     * Creates a new DAG with the same nodes and edges as the given DAG
+     *
+     * @param dag the DAG to copy
+     */
+    public InternedDag(Dag<E> dag) {
+        this(dag.size());
+        putAll(dag);
+    }
+
+    /**
+     * Creates a new DAG with the same nodes, ids and edges as the given {@link InternedDag}
+     *
+     * @param other the DAG to copy
+     */
+    InternedDag(InternedDag<E> other) {
+        this.ids = new HashMap<>(other.ids);
+        this.nodes = other.nodes.clone();
+        this.targets = new int[other.targets.length][];
+        this.targetIndexes = new PositionIndex[other.targetIndexes.length];
+        this.sources = new int[other.sources.length][];
+        this.sourceIndexes = new PositionIndex[other.sourceIndexes.length];
+        for (int id = 0; id < other.nextId; id++) {
+            this.targets[id] = Arrays.copyOf(other.targets[id], other.targetCounts[id]);
+            this.targetIndexes[id] = PositionIndex.copyOf(other.targetIndexes[id]);
+            this.sources[id] = Arrays.copyOf(other.sources[id], other.sourceCounts[id]);
+            this.sourceIndexes[id] = PositionIndex.copyOf(other.sourceIndexes[id]);
+        }
+        this.targetCounts = other.targetCounts.clone();
+        this.sourceCounts = other.sourceCounts.clone();
+        this.freeIds = other.freeIds.clone();
+        this.freeCount = other.freeCount;
+        this.nextId = other.nextId;
+    }
+
+    private void allocate(int capacity) {
+        this.nodes = new Object[capacity];
+        this.targets = new int[capacity][];
+        this.targetCounts = new int[capacity];
+        this.targetIndexes = new PositionIndex[capacity];
+        this.sources = new int[capacity][];
+        this.sourceCounts = new int[capacity];
+        this.sourceIndexes = new PositionIndex[capacity];
+        this.freeIds = new int[0];
+        this.freeCount = 0;
+        this.nextId = 0;
+        resize(capacity);
+    }
+
+
+    /* Methods exclusive to Dag<> */
+
+    @Override
+    public boolean put(E source, E target) {
+        int sourceId = id(source);
+        boolean changed = sourceId < 0;
+        if (changed) {
+            sourceId = intern(source);
+        }
+        int targetId = id(target);
+        if (targetId < 0) {
+            targetId = intern(target);
+            changed = true;
+        }
+        if (indexOfTarget(sourceId, targetId) >= 0) {
+            return changed;
+        }
+        link(sourceId, targetId);
+        return true;
+    }
+
+    @Override
+    public boolean putAll(E source, Collection<E> targets) {
+        boolean changed = false;
+        if (!targets.isEmpty()) {
+            for (E target : targets) {
+                changed |= put(source, target);
+            }
+        } else {
+            changed = add(source);
+        }
+        return changed;
+    }
+
+    @Override
+    public boolean removeEdge(E source, E target) {
+        int sourceId = id(source);
+        int targetId = id(target);
+        if (sourceId < 0 || targetId < 0) {
+            return false;
+        }
+        int index = indexOfTarget(sourceId, targetId);
+        if (index < 0) {
+            return false;
+        }
+        removeTarget(sourceId, index);
+        removeSource(targetId, indexOfSource(targetId, sourceId));
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean containsEdge(E source, E target) {
+        int sourceId = id(source);
+        int targetId = id(target);
+        return sourceId >= 0 && targetId >= 0 && indexOfTarget(sourceId, targetId) >= 0;
+    }
+
+    @Override
+    public Dag<E> inverted() {
+        InternedDag<E> inverted = new InternedDag<>(this);
+        inverted.invert();
+        return inverted;
+    }
+
+    /**
+     * Flips the direction of every edge of this DAG in place, by swapping the outgoing and incoming arrays
+     */
+    void invert() {
+        int[][] swapIds = targets;
+        int[] swapCounts = targetCounts;
+        PositionIndex[] swapIndexes = targetIndexes;
+        targets = sources;
+        targetCounts = sourceCounts;
+        targetIndexes = sourceIndexes;
+        sources = swapIds;
+        sourceCounts = swapCounts;
+        sourceIndexes = swapIndexes;
+        modCount++;
+    }
+
+    @Override
+    public Dag<E> union(Dag<E> other) {
+        InternedDag<E> union = new InternedDag<>(this);
+        union.putAll(other);
+        return union;
+    }
+
+    @Override
+    public Dag<E> intersection(Dag<E> other) {
+        InternedDag<E> intersection = new InternedDag<>(this);
+        intersection.retainEdges(other);
+        return intersection;
+    }
+
+    @Override
+    public Dag<E> difference(Dag<E> other) {
+        InternedDag<E> difference = new InternedDag<>(this);
+        difference.removeEdges(other);
+        return difference;
+    }
+
+    @Override
+    Set<E> nodes() {
+        return Collections.unmodifiableSet(ids.keySet());
+    }
+
+    @Override
+    Collection<E> outgoing(E node) {
+        int id = id(node);
+        return id < 0 ? Collections.emptySet() : new NodeView(id, true);
+    }
+
+    @Override
+    Collection<E> incoming(E node) {
+        int id = id(node);
+        return id < 0 ? Collections.emptySet() : new NodeView(id, false);
+    }
+
+    @Override
+    int inDegree(int id) {
+        return sourceCounts[id];
+    }
+
+    @Override
+    int idBound() {
+        return nextId;
+    }
+
+    @Override
+    Collection<Integer> ids() {
+        return ids.values();
+    }
+
+    @Override
+    void forEachOutgoing(int id, IntConsumer action) {
+        for (int i = 0; i < targetCounts[id]; i++) {
+            action.accept(targets[id][i]);
+        }
+    }
+
+    @Override
+    void forEachIncoming(int id, IntConsumer action) {
+        for (int i = 0; i < sourceCounts[id]; i++) {
+            action.accept(sources[id][i]);
+        }
+    }
+
+    @Override
+    int modCount() {
+        return modCount;
+    }
+
+
+    /* Methods from Collection<E> */
+
+    /**
+     * Returns the number of nodes this DAG contains
+     *
+     * @return the size of the DAG
+     */
+    @Override
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * Returns {@code true} if this DAG contains no nodes
+     *
+     * @return {@code true} if this DAG contains no nodes
+     */
+    @Override
+    public boolean isEmpty() {
+        return ids.isEmpty();
+    }
+
+    /**
+     * Returns {@code true} if this DAG contains the specified node
+     *
+     * @param node the node whose presence is to be tested
+     * @return {@code true} if this DAG contains the specified node
+     */
+    @Override
+    public boolean contains(Object node) {
+        return ids.containsKey(node);
+    }
+
+    /**
+     * Adds a single node to this DAG
+     *
+     * @param node the node to add
+     * @return {@code true} if this DAG changed as a result of the call
+     */
+    @Override
+    public boolean add(E node) {
+        if (ids.containsKey(node)) {
+            return false;
+        }
+        intern(node);
+        return true;
+    }
+
+    /**
+     * Removes a node and all its incoming and outgoing edges from this DAG
+     *
+     * @param node the node to be removed from this DAG, if present
+     * @return {@code true} if the node was removed as a result of the call
+     */
+    @Override
+    public boolean remove(Object node) {
+        Integer boxed = ids.remove(node);
+        if (boxed == null) {
+            return false;
+        }
+        int id = boxed;
+        for (int i = 0; i < targetCounts[id]; i++) {
+            int target = targets[id][i];
+            if (target != id) {
+                removeSource(target, indexOfSource(target, id));
+            }
+        }
+        for (int i = 0; i < sourceCounts[id]; i++) {
+            int source = sources[id][i];
+            if (source != id) {
+                removeTarget(source, indexOfTarget(source, id));
+            }
+        }
+
+        nodes[id] = null;
+        reset(id);
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, Math.max(4, freeCount * 2));
+        }
+        freeIds[freeCount++] = id;
+
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Removes all the nodes from this DAG
+     */
+    @Override
+    public void clear() {
+        ids.clear();
+        allocate(16);
+        modCount++;
+    }
+
+    /**
+     * Compares the specified object with this DAG for equality.
+     * Two interned DAGs are equal if they have the same nodes and the same edges, whatever ids their nodes have.
+     *
+     * @param o object to be compared for equality with this collection
+     * @return {@code true} if the specified object is equal to this DAG
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        @SuppressWarnings("unchecked")
+        InternedDag<E> other = (InternedDag<E>) o;
+        if (!ids.keySet().equals(other.ids.keySet())) {
+            return false;
+        }
+        for (Map.Entry<E, Integer> entry : ids.entrySet()) {
+            int id = entry.getValue();
+            int otherId = other.ids.get(entry.getKey());
+            if (targetCounts[id] != other.targetCounts[otherId]) {
+                return false;
+            }
+            for (int i = 0; i < targetCounts[id]; i++) {
+                if (other.indexOfTarget(otherId, other.id(node(targets[id][i]))) < 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hash code value for this DAG.
+     * This is the sum of the hash codes of every node and of every edge, as given by {@link Edge#hashCode()}.
+     *
+     * @return the hash code value for this DAG
+     */
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (Map.Entry<E, Integer> entry : ids.entrySet()) {
+            int id = entry.getValue();
+            hash += Objects.hashCode(entry.getKey());
+            for (int i = 0; i < targetCounts[id]; i++) {
+                hash += Objects.hash(entry.getKey(), node(targets[id][i]));
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Creates a shallow copy of this DAG, with the same ids for its nodes.
+     * Mutations to a node in the copy will result in mutations to the node in the original DAG.
+     *
+     * @return a shallow copy of this DAG
+     */
+    @Override
+    public Dag<E> clone() {
+        return new InternedDag<>(this);
+    }
+
+
+    /* Id bookkeeping */
+
+    @Override
+    int id(Object node) {
+        Integer id = ids.get(node);
+        return id == null ? -1 : id;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    E node(int id) {
+        return (E) nodes[id];
+    }
+
+    /**
+     * Gives a node that isn't in this DAG an id
+     *
+     * @param node the node
+     * @return its id
+     */
+    int intern(E node) {
+        int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            if (nextId == nodes.length) {
+                int capacity = Math.max(16, nextId * 2);
+                nodes = Arrays.copyOf(nodes, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+                targetCounts = Arrays.copyOf(targetCounts, capacity);
+                targetIndexes = Arrays.copyOf(targetIndexes, capacity);
+                sources = Arrays.copyOf(sources, capacity);
+                sourceCounts = Arrays.copyOf(sourceCounts, capacity);
+                sourceIndexes = Arrays.copyOf(sourceIndexes, capacity);
+                resize(capacity);
+            }
+            id = nextId++;
+        }
+        nodes[id] = node;
+        reset(id);
+        ids.put(node, id);
+        modCount++;
+        return id;
+    }
+
+    private void reset(int id) {
+        targets[id] = NO_IDS;
+        targetCounts[id] = 0;
+        targetIndexes[id] = null;
+        sources[id] = NO_IDS;
+        sourceCounts[id] = 0;
+        sourceIndexes[id] = null;
+        targetsResized(id, 0);
+    }
+
+    /**
+     * Adds an edge that isn't in this DAG yet
+     *
+     * @param sourceId the id of the source node
+     * @param targetId the id of the target node
+     * @return the position of the target among the outgoing nodes of the source
+     */
+    int link(int sourceId, int targetId) {
+        int index = targetCounts[sourceId];
+        if (index == targets[sourceId].length) {
+            int capacity = Math.max(4, index * 2);
+            targets[sourceId] = Arrays.copyOf(targets[sourceId], capacity);
+            targetsResized(sourceId, capacity);
+        }
+        targets[sourceId][index] = targetId;
+        targetIndexes[sourceId] = added(targetIndexes[sourceId], targets[sourceId], ++targetCounts[sourceId]);
+
+        int position = sourceCounts[targetId];
+        if (position == sources[targetId].length) {
+            sources[targetId] = Arrays.copyOf(sources[targetId], Math.max(4, position * 2));
+        }
+        sources[targetId][position] = sourceId;
+        sourceIndexes[targetId] = added(sourceIndexes[targetId], sources[targetId], ++sourceCounts[targetId]);
+
+        modCount++;
+        return index;
+    }
+
+    /**
+     * Indexes the id that was just appended to an array of ids, once the array is big enough to need it
+     *
+     * @param index the index of the array, or {@code null} if it isn't indexed yet
+     * @param ids   the array
+     * @param count the number of ids in the array, including the new one
+     * @return the index of the array, or {@code null} if it's still small enough to scan
+     */
+    private static PositionIndex added(PositionIndex index, int[] ids, int count) {
+        if (index != null) {
+            index.put(ids[count - 1], count - 1);
+            return index;
+        }
+        return index(ids, count);
+    }
+
+    /**
+     * Indexes an array of ids if it's big enough to need it
+     *
+     * @param ids   the array
+     * @param count the number of ids in the array
+     * @return the index of the array, or {@code null} if it's small enough to scan
+     */
+    private static PositionIndex index(int[] ids, int count) {
+        return count > INDEX_THRESHOLD ? new PositionIndex(ids, count) : null;
+    }
+
+    /**
+     * Rebuilds the index of a node's outgoing nodes after they were written straight into its array
+     *
+     * @param id the id of the node
+     */
+    void reindexTargets(int id) {
+        targetIndexes[id] = index(targets[id], targetCounts[id]);
+    }
+
+    /**
+     * Restores this DAG from a stream.
+     * The indexes of large edge arrays aren't written, since they can be rebuilt from the arrays themselves.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        targetIndexes = new PositionIndex[targets.length];
+        sourceIndexes = new PositionIndex[sources.length];
+        for (int id = 0; id < nextId; id++) {
+            reindexTargets(id);
+            sourceIndexes[id] = index(sources[id], sourceCounts[id]);
+        }
+    }
+
+    private void removeTarget(int id, int index) {
+        int last = --targetCounts[id];
+        int removed = targets[id][index];
+        targets[id][index] = targets[id][last];
+        removed(targetIndexes[id], removed, targets[id], index, last);
+        if (index != last) {
+            targetMoved(id, last, index);
+        }
+    }
+
+    private void removeSource(int id, int index) {
+        int last = --sourceCounts[id];
+        int removed = sources[id][index];
+        sources[id][index] = sources[id][last];
+        removed(sourceIndexes[id], removed, sources[id], index, last);
+    }
+
+    /**
+     * Updates the index of an array of ids after the last id was moved into the place of a removed one
+     */
+    private static void removed(PositionIndex index, int removed, int[] ids, int position, int last) {
+        if (index != null) {
+            index.remove(removed);
+            if (position != last) {
+                index.put(ids[position], position);
+            }
+        }
+    }
+
+    /**
+     * Finds an outgoing node of a node
+     *
+     * @param id     the id of the node
+     * @param target the id of the outgoing node
+     * @return the position of the outgoing node among those of the node, or {@code -1} if there's no such edge
+     */
+    int indexOfTarget(int id, int target) {
+        return indexOf(targets[id], targetCounts[id], targetIndexes[id], target);
+    }
+
+    private int indexOfSource(int id, int source) {
+        return indexOf(sources[id], sourceCounts[id], sourceIndexes[id], source);
+    }
+
+    private static int indexOf(int[] ids, int count, PositionIndex index, int id) {
+        if (index != null) {
+            return index.get(id);
+        }
+        for (int i = 0; i < count; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
+    /* Hooks for arrays kept alongside each node's outgoing nodes, like the weights of a WeightedDag */
+
+    /**
+     * Called when the arrays indexed by id are created or grown
+     *
+     * @param capacity the new length of the arrays
+     */
+    void resize(int capacity) {
+    }
+
+    /**
+     * Called when the array of a node's outgoing nodes is replaced with one of the given length.
+     * The outgoing nodes that were in it keep their positions.
+     *
+     * @param id       the id of the node
+     * @param capacity the length of the new array, which is {@code 0} if the node's edges were all dropped
+     */
+    void targetsResized(int id, int capacity) {
+    }
+
+    /**
+     * Called when one of a node's outgoing nodes moves to another position in its array
+     *
+     * @param id   the id of the node
+     * @param from the old position
+     * @param to   the new position
+     */
+    void targetMoved(int id, int from, int to) {
+    }
+
+    /**
+     * A read-only view of the outgoing or incoming nodes of a node, read straight from the id arrays
+     */
+    private class NodeView extends AbstractCollection<E> {
+
+        private final int id;
+        private final boolean outgoing;
+
+        NodeView(int id, boolean outgoing) {
+            this.id = id;
+            this.outgoing = outgoing;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return new Iterator<E>() {
+
+                private int index;
+
+                @Override
+                public boolean hasNext() {
+                    return index < size();
+                }
+
+                @Override
+                public E next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return node((outgoing ? targets : sources)[id][index++]);
+                }
+
+            };
+        }
+
+        @Override
+        public int size() {
+            return outgoing ? targetCounts[id] : sourceCounts[id];
+        }
+
+        @Override
+        public boolean contains(Object node) {
+            int other = id(node);
+            return other >= 0 && (outgoing ? indexOfTarget(id, other) : indexOfSource(id, other)) >= 0;
+        }
+
+    }
+
+    /**
+     * A map from the ids in one array of ids to their positions in it, with open addressing over two int arrays.
+     * This lets a node with many edges find one of them without scanning the whole array.
+     */
+    private static final class PositionIndex {
+
+        /**
+         * Each slot's id plus one, so that {@code 0} marks an empty slot
+         */
+        private int[] keys;
+        private int[] positions;
+        private int size;
+
+        PositionIndex(int[] ids, int count) {
+            int capacity = 4;
+            while (capacity < count * 2) {
+                capacity *= 2;
+            }
+            this.keys = new int[capacity];
+            this.positions = new int[capacity];
+            for (int i = 0; i < count; i++) {
+                put(ids[i], i);
+            }
+        }
+
+        private PositionIndex(PositionIndex other) {
+            this.keys = other.keys.clone();
+            this.positions = other.positions.clone();
+            this.size = other.size;
+        }
+
+        static PositionIndex copyOf(PositionIndex index) {
+            return index == null ? null : new PositionIndex(index);
+        }
+
+        int get(int id) {
+            int mask = keys.length - 1;
+            for (int slot = slot(id, mask); keys[slot] != 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == id + 1) {
+                    return positions[slot];
+                }
+            }
+            return -1;
+        }
+
+        void put(int id, int position) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int slot = slot(id, mask);
+            while (keys[slot] != 0 && keys[slot] != id + 1) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == 0) {
+                keys[slot] = id + 1;
+                size++;
+            }
+            positions[slot] = position;
+        }
+
+        void remove(int id) {
+            int mask = keys.length - 1;
+            int slot = slot(id, mask);
+            while (keys[slot] != id + 1) {
+                if (keys[slot] == 0) {
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = 0;
+            size--;
+
+            // Shift later entries of the same run back, so no lookup stops early at the gap
+            for (int next = (slot + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+                int home = slot(keys[next] - 1, mask);
+                if (((next - home) & mask) >= ((next - slot) & mask)) {
+                    keys[slot] = keys[next];
+                    positions[slot] = positions[next];
+                    keys[next] = 0;
+                    slot = next;
+                }
+            }
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldPositions = positions;
+            keys = new int[oldKeys.length * 2];
+            positions = new int[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    put(oldKeys[i] - 1, oldPositions[i]);
+                }
+            }
+        }
+
+        private static int slot(int id, int mask) {
+            int hash = id * 0x9E3779B9;
+            return (hash ^ (hash >>> 16)) & mask;
+        }
+
+    }
+
+}
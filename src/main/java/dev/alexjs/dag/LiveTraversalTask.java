@@ -0,0 +1,396 @@
+package dev.alexjs.dag;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * A traversal that keeps running while nodes and edges are added to it, until it is closed
+ * <p>
+ * Like {@link DagTraversalTask}, each node's task is only submitted once all its incoming nodes have finished.
+ * Nodes and edges can be added at any time until {@link LiveTraversalTask#close()} is called,
+ * and a new node is submitted as soon as its incoming nodes are done, or right away if it has none.
+ * Once closed, the traversal terminates when every node has finished.
+ * If the task applied to any node throws an exception, or the executor rejects a task,
+ * then this stops submitting new tasks and {@link LiveTraversalTask#awaitTermination(long, TimeUnit)} returns
+ * {@code false}.
+ * <p>
+ * The traversal keeps its own copy of the structure it was given, so the DAGs passed in may be reused.
+ * An edge can't be added to a node whose task has already been submitted,
+ * so a node's incoming edges should be added in the same call that adds the node, or before its sources finish.
+ * {@link LiveTraversalTask#putAll(Dag)} adds a whole batch at once, so no node in it starts before the batch is in.
+ * <p>
+ * Each change is checked for circular dependencies, but only over the nodes downstream of the new edges,
+ * which haven't started yet.
+ * Every node is remembered after it finishes, so edges from it can still be added.
+ *
+ * @param <T> the node type
+ */
+public class LiveTraversalTask<T> implements AutoCloseable {
+
+    private final Consumer<T> task;
+    private final ExecutorService executorService;
+    private final Map<T, Node<T>> nodes;
+    private final Lock lock;
+    private final Condition terminated;
+
+    /**
+     * The number of nodes that have been added and haven't finished
+     */
+    private int unfinished;
+
+    private boolean closed;
+    private Status status;
+
+    /**
+     * Creates a traversal with no nodes yet
+     *
+     * @param task            the task to apply to each node
+     * @param executorService the {@link ExecutorService} to submit these tasks to
+     */
+    public LiveTraversalTask(Consumer<T> task, ExecutorService executorService) {
+        this.task = task;
+        this.executorService = executorService;
+        this.nodes = new HashMap<>();
+        this.lock = new ReentrantLock();
+        this.terminated = lock.newCondition();
+        this.status = Status.RUNNING;
+    }
+
+    /**
+     * Creates a traversal that starts with the nodes and edges of a DAG
+     *
+     * @param dag             the DAG to start with
+     * @param task            the task to apply to each node
+     * @param executorService the {@link ExecutorService} to submit these tasks to
+     * @throws IllegalArgumentException if the DAG contains a circular dependency
+     */
+    public LiveTraversalTask(Dag<T> dag, Consumer<T> task, ExecutorService executorService) {
+        this(task, executorService);
+        putAll(dag);
+    }
+
+    /**
+     * Adds a single node, which is submitted right away since it has no incoming nodes
+     *
+     * @param node the node to add
+     * @return {@code true} if the traversal changed as a result of the call
+     * @throws IllegalStateException if the traversal is closed
+     */
+    public boolean add(T node) {
+        return insert(Collections.singleton(node), Collections.emptyList());
+    }
+
+    /**
+     * Adds an edge, along with either node if it's new
+     *
+     * @param source the source node
+     * @param target the target node
+     * @return {@code true} if the traversal changed as a result of the call
+     * @throws IllegalArgumentException if the target has already been submitted,
+     *                                  or the edge would create a circular dependency
+     * @throws IllegalStateException    if the traversal is closed
+     */
+    public boolean put(T source, T target) {
+        return insert(Collections.emptySet(), Arrays.asList(source, target));
+    }
+
+    /**
+     * Adds every node and edge of a DAG at once.
+     * No node of the DAG is submitted until all of its edges have been added.
+     * If any edge can't be added, nothing is.
+     *
+     * @param dag the nodes and edges to add, which may overlap with the ones already added
+     * @return {@code true} if the traversal changed as a result of the call
+     * @throws IllegalArgumentException if an edge would be added to a node that has already been submitted,
+     *                                  or the edges would create a circular dependency
+     * @throws IllegalStateException    if the traversal is closed
+     */
+    public boolean putAll(Dag<T> dag) {
+        List<T> edges = new ArrayList<>();
+        for (T source : AbstractDag.nodesOf(dag)) {
+            for (T target : AbstractDag.outgoingOf(dag, source)) {
+                edges.add(source);
+                edges.add(target);
+            }
+        }
+        return insert(AbstractDag.nodesOf(dag), edges);
+    }
+
+    /**
+     * Stops accepting nodes and edges.
+     * The traversal terminates once every node that was added has finished.
+     */
+    @Override
+    public void close() {
+        try {
+            lock.lock();
+            closed = true;
+            if (unfinished == 0 && status == Status.RUNNING) {
+                status = Status.DONE;
+                terminated.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until the traversal is closed and all nodes have been traversed, or the timeout occurs,
+     * or a task fails, or the current thread is interrupted, whichever happens first.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the time unit of the timeout argument
+     * @return {@code true} if the traversal is terminated and {@code false} if the timeout elapsed before termination
+     * or a task failed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            lock.lock();
+            long nanos = unit.toNanos(timeout);
+            while (status == Status.RUNNING) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = terminated.awaitNanos(nanos);
+            }
+            return status == Status.DONE;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds nodes and edges in one step, then submits the new nodes that have nothing to wait for
+     *
+     * @param added the nodes to add
+     * @param edges the edges to add, as each source followed by its target
+     * @return whether anything was added
+     */
+    private boolean insert(Collection<T> added, List<T> edges) {
+
+        List<T> ready = new ArrayList<>();
+        boolean changed;
+        try {
+            lock.lock();
+            if (closed) {
+                throw new IllegalStateException("Traversal is closed");
+            }
+
+            // Check every edge before changing anything
+            for (int i = 0; i < edges.size(); i += 2) {
+                Node<T> source = nodes.get(edges.get(i));
+                Node<T> target = nodes.get(edges.get(i + 1));
+                if (target != null && target.started
+                        && (source == null || !source.outgoing.contains(edges.get(i + 1)))) {
+                    throw new IllegalArgumentException("Node has already been visited: " + edges.get(i + 1));
+                }
+            }
+
+            List<T> created = new ArrayList<>();
+            for (T node : added) {
+                node(node, created);
+            }
+            List<T> linked = new ArrayList<>();
+            for (int i = 0; i < edges.size(); i += 2) {
+                Node<T> source = node(edges.get(i), created);
+                Node<T> target = node(edges.get(i + 1), created);
+                if (source.outgoing.add(edges.get(i + 1))) {
+                    if (!source.done) {
+                        target.remaining++;
+                    }
+                    linked.add(edges.get(i));
+                    linked.add(edges.get(i + 1));
+                }
+            }
+
+            if (hasCircularDependency(linked)) {
+                for (int i = 0; i < linked.size(); i += 2) {
+                    Node<T> source = nodes.get(linked.get(i));
+                    source.outgoing.remove(linked.get(i + 1));
+                    if (!source.done) {
+                        nodes.get(linked.get(i + 1)).remaining--;
+                    }
+                }
+                for (T node : created) {
+                    nodes.remove(node);
+                }
+                unfinished -= created.size();
+                throw new IllegalArgumentException("DAG contains a circular dependency");
+            }
+
+            // Nodes that were already here only gained edges, so only new nodes can be ready
+            if (status == Status.RUNNING) {
+                for (T node : created) {
+                    Node<T> state = nodes.get(node);
+                    if (state.remaining == 0) {
+                        state.started = true;
+                        ready.add(node);
+                    }
+                }
+            }
+            changed = !created.isEmpty() || !linked.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+
+        for (T node : ready) {
+            submit(node);
+        }
+        return changed;
+
+    }
+
+    private Node<T> node(T node, List<T> created) {
+        Node<T> state = nodes.get(node);
+        if (state == null) {
+            state = new Node<>();
+            nodes.put(node, state);
+            created.add(node);
+            unfinished++;
+        }
+        return state;
+    }
+
+    /**
+     * Checks for a circular dependency through any of the given new edges.
+     * Such a cycle only goes through nodes downstream of the new edges' targets,
+     * so Kahn's algorithm is only run over those.
+     *
+     * @param linked the new edges, as each source followed by its target
+     * @return whether there's a circular dependency
+     */
+    private boolean hasCircularDependency(List<T> linked) {
+
+        Set<T> downstream = new HashSet<>();
+        List<T> stack = new ArrayList<>();
+        for (int i = 1; i < linked.size(); i += 2) {
+            if (downstream.add(linked.get(i))) {
+                stack.add(linked.get(i));
+            }
+        }
+        while (!stack.isEmpty()) {
+            for (T target : nodes.get(stack.remove(stack.size() - 1)).outgoing) {
+                if (downstream.add(target)) {
+                    stack.add(target);
+                }
+            }
+        }
+
+        // Everything downstream of a node is downstream of the new edges too, so each count is complete
+        Map<T, Integer> remainingIncoming = new HashMap<>();
+        for (T node : downstream) {
+            for (T target : nodes.get(node).outgoing) {
+                remainingIncoming.merge(target, 1, Integer::sum);
+            }
+        }
+        List<T> sorted = new ArrayList<>();
+        for (T node : downstream) {
+            if (!remainingIncoming.containsKey(node)) {
+                sorted.add(node);
+            }
+        }
+        for (int i = 0; i < sorted.size(); i++) {
+            for (T target : nodes.get(sorted.get(i)).outgoing) {
+                if (remainingIncoming.merge(target, -1, Integer::sum) == 0) {
+                    sorted.add(target);
+                }
+            }
+        }
+        return sorted.size() != downstream.size();
+
+    }
+
+    private void submit(T node) {
+        try {
+            executorService.execute(() -> {
+                Throwable failure = null;
+                try {
+                    task.accept(node);
+                } catch (Throwable t) {
+                    failure = t;
+                }
+                finish(node, failure);
+            });
+        } catch (RejectedExecutionException e) {
+            // The node is already counted as started, so it has to finish for the traversal to terminate
+            finish(node, e);
+        }
+    }
+
+    private void finish(T node, Throwable failure) {
+
+        List<T> ready = new ArrayList<>();
+        try {
+            lock.lock();
+            Node<T> state = nodes.get(node);
+            state.done = true;
+            unfinished--;
+            if (failure != null && status == Status.RUNNING) {
+                status = Status.ERROR;
+                terminated.signalAll();
+            }
+            // Stop submitting new tasks once one has failed
+            if (status == Status.RUNNING) {
+                for (T target : state.outgoing) {
+                    Node<T> next = nodes.get(target);
+                    if (--next.remaining == 0) {
+                        next.started = true;
+                        ready.add(target);
+                    }
+                }
+                if (closed && unfinished == 0) {
+                    status = Status.DONE;
+                    terminated.signalAll();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        for (T next : ready) {
+            submit(next);
+        }
+
+    }
+
+    /**
+     * The state of one node of the traversal
+     *
+     * @param <T> the node type
+     */
+    private static class Node<T> {
+
+        private final Set<T> outgoing = new HashSet<>();
+
+        /**
+         * The number of incoming nodes that haven't finished
+         */
+        private int remaining;
+
+        private boolean started;
+        private boolean done;
+
+    }
+
+    private enum Status {
+        RUNNING,
+        ERROR,
+        DONE
+    }
+
+}
@@ -0,0 +1,209 @@
+package dev.alexjs.dag;
+
+import com.google.common.collect.Maps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+/**
+ * Merkle hashes of the nodes of a {@link HashDag}, which identify each node together with its entire ancestry
+ * <p>
+ * The Merkle hash of a node combines the node's own hash with the Merkle hashes of its incoming nodes,
+ * so two nodes have the same Merkle hash only if their own hashes match and their ancestries match.
+ * This is useful as a cache key for work that depends on everything upstream of a node.
+ * Incoming nodes are combined without regard to order, since a node's incoming nodes have no order.
+ * <p>
+ * Every hash is computed in one topological pass when this is created.
+ * After that, a change to the DAG only marks the nodes whose hashes it changed.
+ * The next query recomputes those nodes and their descendants, in topological order, and nothing else.
+ * A query when nothing has changed takes constant time.
+ * <p>
+ * This listens to the DAG until it is closed.
+ * Like the DAG itself, this is not thread-safe.
+ *
+ * @param <E> the node type
+ */
+public class MerkleHashes<E> implements AutoCloseable {
+
+    private final HashDag<E> dag;
+    private final ToLongFunction<? super E> nodeHash;
+    private final Map<E, Long> hashes;
+
+    /**
+     * The nodes whose own incoming nodes changed since the last query
+     */
+    private final Set<E> dirty;
+
+    private final MutationListener<E> listener;
+
+    private boolean closed;
+
+    /**
+     * Computes the Merkle hash of every node of a DAG, and keeps them up to date as the DAG changes
+     *
+     * @param dag      the DAG
+     * @param nodeHash computes the hash of a single node, which must not change while the node is in the DAG
+     * @throws IllegalArgumentException if the DAG contains a circular dependency
+     */
+    public MerkleHashes(HashDag<E> dag, ToLongFunction<? super E> nodeHash) {
+        this.dag = dag;
+        this.nodeHash = nodeHash;
+        this.hashes = Maps.newHashMapWithExpectedSize(dag.size());
+        this.dirty = new HashSet<>(dag.nodes());
+        this.listener = new Listener();
+        update();
+        dag.addListener(listener);
+    }
+
+    /**
+     * Gets the Merkle hash of a node
+     *
+     * @param node the node
+     * @return the Merkle hash of the node
+     * @throws IllegalArgumentException if the node is not in the DAG, or the DAG contains a circular dependency
+     * @throws IllegalStateException    if this is closed
+     */
+    public long getHash(E node) {
+        if (closed) {
+            throw new IllegalStateException("Merkle hashes are closed");
+        }
+        if (!dirty.isEmpty()) {
+            update();
+        }
+        Long hash = hashes.get(node);
+        if (hash == null) {
+            throw new IllegalArgumentException("DAG does not contain the node " + node);
+        }
+        return hash;
+    }
+
+    /**
+     * Stops keeping the hashes up to date with the DAG.
+     * The hashes can't be queried afterwards.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        dag.removeListener(listener);
+        hashes.clear();
+        dirty.clear();
+    }
+
+    private void update() {
+
+        // Every descendant of a changed node changes too
+        Set<E> affected = new HashSet<>(dirty);
+        List<E> stack = new ArrayList<>(dirty);
+        while (!stack.isEmpty()) {
+            E node = stack.remove(stack.size() - 1);
+            for (E target : dag.outgoing(node)) {
+                if (affected.add(target)) {
+                    stack.add(target);
+                }
+            }
+        }
+
+        // Kahn's algorithm over the affected nodes only, since the rest already have up-to-date hashes
+        Map<E, Integer> remainingIncoming = new HashMap<>();
+        List<E> ready = new ArrayList<>();
+        for (E node : affected) {
+            int count = 0;
+            for (E source : dag.incoming(node)) {
+                if (affected.contains(source)) {
+                    count++;
+                }
+            }
+            if (count == 0) {
+                ready.add(node);
+            } else {
+                remainingIncoming.put(node, count);
+            }
+        }
+
+        for (int i = 0; i < ready.size(); i++) {
+            E node = ready.get(i);
+            hashes.put(node, hash(node));
+            for (E target : dag.outgoing(node)) {
+                int left = remainingIncoming.get(target) - 1;
+                if (left == 0) {
+                    remainingIncoming.remove(target);
+                    ready.add(target);
+                } else {
+                    remainingIncoming.put(target, left);
+                }
+            }
+        }
+
+        if (ready.size() != affected.size()) {
+            // Leave the nodes marked, so every query fails until the circular dependency is removed
+            throw dag.circularDependency();
+        }
+        dirty.clear();
+
+    }
+
+    private long hash(E node) {
+        long incoming = 0;
+        for (E source : dag.incoming(node)) {
+            incoming += mix(hashes.get(source));
+        }
+        return mix(mix(nodeHash.applyAsLong(node)) * 31 + incoming);
+    }
+
+    /**
+     * Spreads the bits of a hash, so sums of hashes don't cancel out easily
+     */
+    private static long mix(long hash) {
+        // One step of SplitMix64. The added constant keeps a hash of zero from mixing to zero.
+        hash += 0x9e3779b97f4a7c15L;
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+
+    /**
+     * Marks the nodes whose incoming nodes changed
+     */
+    private class Listener implements MutationListener<E> {
+
+        @Override
+        public void nodeAdded(E node) {
+            dirty.add(node);
+        }
+
+        @Override
+        public void nodeRemoved(E node, Collection<E> outgoing) {
+            hashes.remove(node);
+            dirty.remove(node);
+            for (E target : outgoing) {
+                if (dag.contains(target)) {
+                    dirty.add(target);
+                }
+            }
+        }
+
+        @Override
+        public void edgeAdded(E source, E target) {
+            dirty.add(target);
+        }
+
+        @Override
+        public void edgeRemoved(E source, E target) {
+            dirty.add(target);
+        }
+
+        @Override
+        public void cleared() {
+            hashes.clear();
+            dirty.clear();
+        }
+
+    }
+
+}
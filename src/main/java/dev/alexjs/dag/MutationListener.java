@@ -0,0 +1,53 @@
+package dev.alexjs.dag;
+
+import java.util.Collection;
+
+/**
+ * Receives each structural change to a {@link HashDag} right after it happens
+ * <p>
+ * Structures derived from a DAG use this to update only the parts affected by a change
+ * instead of being recomputed from scratch.
+ * A listener must not modify the DAG it's listening to.
+ *
+ * @param <E> the node type
+ */
+interface MutationListener<E> {
+
+    /**
+     * Called after a node is added
+     *
+     * @param node the new node
+     */
+    void nodeAdded(E node);
+
+    /**
+     * Called after a node and all its edges are removed
+     *
+     * @param node     the removed node
+     * @param outgoing the nodes the removed node had edges to
+     */
+    void nodeRemoved(E node, Collection<E> outgoing);
+
+    /**
+     * Called after an edge is added.
+     * If either node is new, {@link MutationListener#nodeAdded(Object)} is called for it first.
+     *
+     * @param source the source node
+     * @param target the target node
+     */
+    void edgeAdded(E source, E target);
+
+    /**
+     * Called after an edge is removed
+     *
+     * @param source the source node
+     * @param target the target node
+     */
+    void edgeRemoved(E source, E target);
+
+    /**
+     * Called after every node is removed
+     */
+    void cleared();
+
+}
@@ -0,0 +1,309 @@
+package dev.alexjs.dag;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A bounded cache of the ancestors and descendants of the nodes of a {@link HashDag}
+ * <p>
+ * Results are read-only sets that are shared between every query that hits them, so a hit allocates nothing.
+ * The least recently used nodes are evicted once the cache is over its bound,
+ * which is either a number of results or a total number of nodes across all results.
+ * <p>
+ * A change to the DAG only drops the results it could have changed.
+ * Adding or removing an edge drops the descendants of its source and of everything upstream of it,
+ * and the ancestors of its target and of everything downstream of it.
+ * Removing a node drops every result that contains it.
+ * Each change is checked against every cached result, so a change takes time proportional to the size of the cache.
+ * <p>
+ * Results are only valid while the DAG has no circular dependency, so the DAG is sorted once before the first query,
+ * and again before the first query after an edge is added.
+ * <p>
+ * This listens to the DAG until it is closed.
+ * Like the DAG itself, this is not thread-safe.
+ *
+ * @param <E> the node type
+ */
+public class ReachabilityCache<E> implements AutoCloseable {
+
+    private final HashDag<E> dag;
+    private final long maxWeight;
+
+    /**
+     * Whether each result weighs as many nodes as it has, rather than one
+     */
+    private final boolean weighByNodes;
+
+    /**
+     * The cached results of each node, with the least recently used node first
+     */
+    private final LinkedHashMap<E, Results<E>> entries;
+
+    private final MutationListener<E> listener;
+
+    private long weight;
+
+    /**
+     * Whether the DAG is known to have no circular dependency
+     */
+    private boolean acyclic;
+
+    private boolean closed;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long invalidationCount;
+
+    private ReachabilityCache(HashDag<E> dag, long maxWeight, boolean weighByNodes) {
+        this.dag = dag;
+        this.maxWeight = maxWeight;
+        this.weighByNodes = weighByNodes;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.listener = new Listener();
+        dag.addListener(listener);
+    }
+
+    /**
+     * Creates a cache that holds at most the given number of results.
+     * The ancestors and the descendants of a node count as two results.
+     *
+     * @param dag        the DAG
+     * @param maxResults the most results to hold
+     * @param <E>        the node type
+     * @return the cache
+     * @throws IllegalArgumentException if the bound isn't positive
+     */
+    public static <E> ReachabilityCache<E> withMaximumSize(HashDag<E> dag, long maxResults) {
+        if (maxResults <= 0) {
+            throw new IllegalArgumentException("Maximum size must be positive");
+        }
+        return new ReachabilityCache<>(dag, maxResults, false);
+    }
+
+    /**
+     * Creates a cache that holds results with at most the given number of nodes between them.
+     * An empty result counts as one node.
+     *
+     * @param dag      the DAG
+     * @param maxNodes the most nodes to hold
+     * @param <E>      the node type
+     * @return the cache
+     * @throws IllegalArgumentException if the bound isn't positive
+     */
+    public static <E> ReachabilityCache<E> withMaximumWeight(HashDag<E> dag, long maxNodes) {
+        if (maxNodes <= 0) {
+            throw new IllegalArgumentException("Maximum weight must be positive");
+        }
+        return new ReachabilityCache<>(dag, maxNodes, true);
+    }
+
+    /**
+     * Gets the ancestors of a node, like {@link Dag#getAncestors(Object)}
+     *
+     * @param node the node
+     * @return a read-only set of the ancestors
+     * @throws IllegalArgumentException if the DAG contains a circular dependency
+     * @throws IllegalStateException    if the cache is closed
+     */
+    public Set<E> getAncestors(E node) {
+        return get(node, false);
+    }
+
+    /**
+     * Gets the descendants of a node, like {@link Dag#getDescendants(Object)}
+     *
+     * @param node the node
+     * @return a read-only set of the descendants
+     * @throws IllegalArgumentException if the DAG contains a circular dependency
+     * @throws IllegalStateException    if the cache is closed
+     */
+    public Set<E> getDescendants(E node) {
+        return get(node, true);
+    }
+
+    /**
+     * Gets the number of queries answered from the cache
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Gets the number of queries that had to search the DAG
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Gets the number of results dropped to stay within the bound
+     *
+     * @return the eviction count
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Gets the number of results dropped because a change to the DAG could have changed them
+     *
+     * @return the invalidation count
+     */
+    public long getInvalidationCount() {
+        return invalidationCount;
+    }
+
+    /**
+     * Stops keeping the cache up to date with the DAG, and drops every result.
+     * The cache can't be queried afterwards.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        dag.removeListener(listener);
+        entries.clear();
+        weight = 0;
+    }
+
+    private Set<E> get(E node, boolean descendants) {
+        if (closed) {
+            throw new IllegalStateException("Cache is closed");
+        }
+        if (!acyclic) {
+            dag.checkForCircularDependency();
+            acyclic = true;
+        }
+        Results<E> results = entries.get(node);
+        Set<E> cached = results == null ? null : results.get(descendants);
+        if (cached != null) {
+            hitCount++;
+            return cached;
+        }
+
+        missCount++;
+        Set<E> result = Collections.unmodifiableSet(
+                descendants ? dag.closure(node, dag::outgoing) : dag.closure(node, dag::incoming));
+        if (results == null) {
+            results = new Results<>();
+            entries.put(node, results);
+        }
+        results.set(descendants, result);
+        weight += weigh(result);
+
+        // The node that was just queried is the most recently used, so it's only evicted if it alone is over the bound
+        Iterator<Results<E>> it = entries.values().iterator();
+        while (weight > maxWeight) {
+            Results<E> eldest = it.next();
+            weight -= weigh(eldest.ancestors) + weigh(eldest.descendants);
+            evictionCount += (eldest.ancestors == null ? 0 : 1) + (eldest.descendants == null ? 0 : 1);
+            it.remove();
+        }
+        return result;
+    }
+
+    private long weigh(Set<E> result) {
+        if (result == null) {
+            return 0;
+        }
+        return weighByNodes ? Math.max(1, result.size()) : 1;
+    }
+
+    /**
+     * Drops the results a change could have changed
+     *
+     * @param source the node whose descendants changed, along with the descendants of every node upstream of it
+     * @param target the node whose ancestors changed, along with the ancestors of every node downstream of it
+     */
+    private void invalidate(E source, E target) {
+        Iterator<Map.Entry<E, Results<E>>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<E, Results<E>> entry = it.next();
+            Results<E> results = entry.getValue();
+            if (results.descendants != null
+                    && (Objects.equals(entry.getKey(), source) || results.descendants.contains(source))) {
+                weight -= weigh(results.descendants);
+                results.descendants = null;
+                invalidationCount++;
+            }
+            if (results.ancestors != null
+                    && (Objects.equals(entry.getKey(), target) || results.ancestors.contains(target))) {
+                weight -= weigh(results.ancestors);
+                results.ancestors = null;
+                invalidationCount++;
+            }
+            if (results.ancestors == null && results.descendants == null) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * The cached results of one node, either of which may be missing
+     *
+     * @param <E> the node type
+     */
+    private static class Results<E> {
+
+        private Set<E> ancestors;
+        private Set<E> descendants;
+
+        private Set<E> get(boolean descendants) {
+            return descendants ? this.descendants : ancestors;
+        }
+
+        private void set(boolean descendants, Set<E> result) {
+            if (descendants) {
+                this.descendants = result;
+            } else {
+                ancestors = result;
+            }
+        }
+
+    }
+
+    /**
+     * Drops the results each change could have changed
+     */
+    private class Listener implements MutationListener<E> {
+
+        @Override
+        public void nodeAdded(E node) {
+            // A new node has no edges yet, so every cached result is still right, including any for the node itself
+        }
+
+        @Override
+        public void nodeRemoved(E node, Collection<E> outgoing) {
+            invalidate(node, node);
+        }
+
+        @Override
+        public void edgeAdded(E source, E target) {
+            invalidate(source, target);
+            acyclic = false;
+        }
+
+        @Override
+        public void edgeRemoved(E source, E target) {
+            invalidate(source, target);
+        }
+
+        @Override
+        public void cleared() {
+            entries.clear();
+            weight = 0;
+            acyclic = true;
+        }
+
+    }
+
+}
@@ -0,0 +1,108 @@
+package dev.alexjs.dag;
+
+/**
+ * A first-in, first-out queue of nodes that are ready to run, each kept with a tag
+ * <p>
+ * Tags and nodes are stored in two parallel ring buffers that are only allocated once a node is added
+ * and grow as needed, so a queued node costs two array slots and no other objects.
+ * Unlike {@link java.util.ArrayDeque}, nodes and tags may be {@code null}.
+ * This is not thread-safe.
+ *
+ * @param <S> the tag type
+ * @param <T> the node type
+ */
+class ReadyQueue<S, T> {
+
+    private static final Object[] EMPTY = new Object[0];
+
+    private Object[] tags;
+    private Object[] nodes;
+    private int head;
+    private int size;
+
+    /**
+     * Creates an empty queue
+     */
+    ReadyQueue() {
+        this.tags = EMPTY;
+        this.nodes = EMPTY;
+    }
+
+    /**
+     * Adds a node to the back of the queue
+     *
+     * @param tag  the tag to keep with the node
+     * @param node the node
+     */
+    void add(S tag, T node) {
+        if (size == nodes.length) {
+            grow();
+        }
+        int index = (head + size) % nodes.length;
+        tags[index] = tag;
+        nodes[index] = node;
+        size++;
+    }
+
+    /**
+     * Gets the tag of the node at the front of the queue
+     *
+     * @return the tag
+     */
+    @SuppressWarnings("unchecked")
+    S peekTag() {
+        return (S) tags[head];
+    }
+
+    /**
+     * Gets the node at the front of the queue
+     *
+     * @return the node
+     */
+    @SuppressWarnings("unchecked")
+    T peekNode() {
+        return (T) nodes[head];
+    }
+
+    /**
+     * Removes the node at the front of the queue
+     */
+    void remove() {
+        tags[head] = null;
+        nodes[head] = null;
+        head = (head + 1) % nodes.length;
+        size--;
+    }
+
+    /**
+     * Gets the number of nodes in the queue
+     *
+     * @return the size of the queue
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns {@code true} if the queue is empty
+     *
+     * @return {@code true} if there are no nodes in the queue
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void grow() {
+        int capacity = Math.max(16, nodes.length * 2);
+        Object[] grownTags = new Object[capacity];
+        Object[] grownNodes = new Object[capacity];
+        for (int i = 0; i < size; i++) {
+            grownTags[i] = tags[(head + i) % nodes.length];
+            grownNodes[i] = nodes[(head + i) % nodes.length];
+        }
+        tags = grownTags;
+        nodes = grownNodes;
+        head = 0;
+    }
+
+}
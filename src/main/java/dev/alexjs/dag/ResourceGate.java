@@ -0,0 +1,136 @@
+package dev.alexjs.dag;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Holds ready nodes back until their resource class has a free permit and there is room for another running node
+ * <p>
+ * Each node belongs to the resource class its classifier gives it.
+ * A class with a permit limit only lets that many of its nodes run at once, and the rest wait in a queue of their own,
+ * so a busy class never holds up nodes of any other class.
+ * Nodes of classes without a limit are only held back by the limit on running nodes overall.
+ * When a node finishes, the freed room goes to the classes with waiting nodes in turn.
+ * <p>
+ * Each waiting node is kept with a tag, which the caller uses to remember where the node came from.
+ *
+ * @param <S> the tag type
+ * @param <T> the node type
+ */
+class ResourceGate<S, T> {
+
+    private final Function<? super T, ?> classifier;
+    private final Map<Object, ResourceClass<S, T>> classes;
+
+    /**
+     * Every class, including the unlimited one, in the order they're given freed room
+     */
+    private final List<ResourceClass<S, T>> order;
+
+    /**
+     * The class of nodes whose class has no limit
+     */
+    private final ResourceClass<S, T> unlimited;
+
+    private final int maxInFlight;
+    private int inFlight;
+    private int cursor;
+
+    /**
+     * Creates a gate with the given limits
+     *
+     * @param classifier  gets the resource class of a node, which must always be the same for the same node,
+     *                    or {@code null} if every node is in the same unlimited class
+     * @param permits     the number of nodes of each resource class that may run at once, each at least 1
+     * @param maxInFlight the number of nodes that may run at once overall, at least 1
+     */
+    ResourceGate(Function<? super T, ?> classifier, Map<?, Integer> permits, int maxInFlight) {
+        this.classifier = classifier;
+        this.classes = new HashMap<>();
+        this.order = new ArrayList<>();
+        this.unlimited = new ResourceClass<>(Integer.MAX_VALUE);
+        this.maxInFlight = maxInFlight;
+        order.add(unlimited);
+        permits.forEach((resourceClass, limit) -> {
+            ResourceClass<S, T> limited = new ResourceClass<>(limit);
+            classes.put(resourceClass, limited);
+            order.add(limited);
+        });
+    }
+
+    /**
+     * Takes a permit for a node if one is free, or queues the node until one is
+     *
+     * @param tag  the tag to keep with the node if it has to wait
+     * @param node the node
+     * @return {@code true} if the node may run now
+     */
+    synchronized boolean tryAcquire(S tag, T node) {
+        ResourceClass<S, T> resourceClass = classOf(node);
+        // Nodes that are already waiting go first
+        if (inFlight < maxInFlight && resourceClass.inUse < resourceClass.permits && resourceClass.waiting.isEmpty()) {
+            resourceClass.inUse++;
+            inFlight++;
+            return true;
+        }
+        resourceClass.waiting.add(tag, node);
+        return false;
+    }
+
+    /**
+     * Gives back the permit of a node that finished, and lets as many waiting nodes run as there is now room for.
+     * The nodes that may now run are added to {@code started}.
+     *
+     * @param node    the node that finished
+     * @param started the queue to add the nodes that may now run to
+     */
+    synchronized void release(T node, ReadyQueue<S, T> started) {
+        ResourceClass<S, T> resourceClass = classOf(node);
+        resourceClass.inUse--;
+        inFlight--;
+
+        // Go around the classes, starting after the one that went last, so no class is starved of room
+        int skipped = 0;
+        while (inFlight < maxInFlight && skipped < order.size()) {
+            ResourceClass<S, T> next = order.get(cursor);
+            if (!next.waiting.isEmpty() && next.inUse < next.permits) {
+                started.add(next.waiting.peekTag(), next.waiting.peekNode());
+                next.waiting.remove();
+                next.inUse++;
+                inFlight++;
+                skipped = 0;
+            } else {
+                skipped++;
+            }
+            cursor = (cursor + 1) % order.size();
+        }
+    }
+
+    private ResourceClass<S, T> classOf(T node) {
+        if (classifier == null) {
+            return unlimited;
+        }
+        ResourceClass<S, T> resourceClass = classes.get(classifier.apply(node));
+        return resourceClass == null ? unlimited : resourceClass;
+    }
+
+    /**
+     * The permits and waiting nodes of one resource class
+     */
+    private static class ResourceClass<S, T> {
+
+        private final int permits;
+        private final ReadyQueue<S, T> waiting;
+        private int inUse;
+
+        ResourceClass(int permits) {
+            this.permits = permits;
+            this.waiting = new ReadyQueue<>();
+        }
+
+    }
+
+}
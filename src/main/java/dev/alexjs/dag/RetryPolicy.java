@@ -0,0 +1,92 @@
+package dev.alexjs.dag;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How many times a {@link DagTraversalTask} tries a node's task, and how long it waits between tries
+ * <p>
+ * The wait after each failed attempt doubles, starting at the initial backoff, up to the max backoff.
+ * Each wait is then shortened by a random fraction of up to the jitter,
+ * so nodes that failed together don't all retry at the same moment.
+ * This is immutable.
+ */
+public final class RetryPolicy {
+
+    /**
+     * A policy that tries each node once
+     */
+    public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0, 0);
+
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final double jitter;
+
+    private RetryPolicy(int maxAttempts, long initialBackoffNanos, long maxBackoffNanos, double jitter) {
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffNanos = initialBackoffNanos;
+        this.maxBackoffNanos = maxBackoffNanos;
+        this.jitter = jitter;
+    }
+
+    /**
+     * Creates a policy with exponential backoff and a jitter of one half
+     *
+     * @param maxAttempts    the number of times to try each node, including the first
+     * @param initialBackoff the time to wait after the first failed attempt
+     * @param maxBackoff     the longest time to wait between attempts
+     * @param unit           the time unit of the backoffs
+     * @return the policy
+     * @throws IllegalArgumentException if {@code maxAttempts} is less than 1,
+     *                                  or the backoffs are negative or out of order
+     */
+    public static RetryPolicy exponential(int maxAttempts, long initialBackoff, long maxBackoff, TimeUnit unit) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Max attempts must be at least 1");
+        }
+        if (initialBackoff < 0 || maxBackoff < initialBackoff) {
+            throw new IllegalArgumentException("Backoffs must satisfy 0 <= initial <= max");
+        }
+        return new RetryPolicy(maxAttempts, unit.toNanos(initialBackoff), unit.toNanos(maxBackoff), 0.5);
+    }
+
+    /**
+     * Creates a copy of this policy with a different jitter
+     *
+     * @param jitter the largest fraction to randomly shorten each wait by, from 0 for none to 1
+     * @return the new policy
+     * @throws IllegalArgumentException if the jitter is not between 0 and 1
+     */
+    public RetryPolicy withJitter(double jitter) {
+        if (!(jitter >= 0 && jitter <= 1)) {
+            throw new IllegalArgumentException("Jitter must be between 0 and 1");
+        }
+        return new RetryPolicy(maxAttempts, initialBackoffNanos, maxBackoffNanos, jitter);
+    }
+
+    /**
+     * Gets the number of times to try each node, including the first
+     *
+     * @return the max attempts
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Gets the time to wait after a failed attempt before trying again
+     *
+     * @param attempt the attempt that failed, starting at 1
+     * @return the time to wait in nanoseconds
+     */
+    long backoffNanos(int attempt) {
+        // Doubling in floating point can't overflow, and the cap keeps the result in range
+        double backoff = Math.min(initialBackoffNanos * Math.pow(2, attempt - 1), maxBackoffNanos);
+        if (jitter > 0) {
+            backoff *= 1 - jitter * ThreadLocalRandom.current().nextDouble();
+        }
+        return (long) backoff;
+    }
+
+}
@@ -0,0 +1,20 @@
+package dev.alexjs.dag;
+
+/**
+ * The order in which a search visits the nodes of a DAG
+ *
+ * @see Dag#search(Object, Direction, SearchOrder, int, DagVisitor)
+ */
+public enum SearchOrder {
+
+    /**
+     * Visit every node at one depth before any node at the next depth
+     */
+    BREADTH_FIRST,
+
+    /**
+     * Visit as far along each path as possible before backtracking
+     */
+    DEPTH_FIRST
+
+}
@@ -0,0 +1,156 @@
+package dev.alexjs.dag;
+
+import com.google.common.collect.Collections2;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Set;
+
+/**
+ * A read-only view of the part of a DAG made up of a fixed set of nodes and the edges between them
+ * <p>
+ * Only the set of nodes is stored. Edges are read from the backing DAG and filtered on the fly,
+ * so a view of a large graph costs no more than its set of nodes.
+ * The view fails fast with a {@link ConcurrentModificationException} once the backing DAG is structurally modified.
+ *
+ * @param <E> the node type
+ */
+class SubDag<E> extends AbstractDag<E> {
+
+    private final AbstractDag<E> dag;
+    private final Set<E> nodes;
+    private final int expectedModCount;
+
+    /**
+     * Creates a view of the given DAG
+     *
+     * @param dag   the backing DAG
+     * @param nodes the nodes of the view, each of which must be in the backing DAG
+     */
+    SubDag(AbstractDag<E> dag, Set<E> nodes) {
+        this.dag = dag;
+        this.nodes = nodes;
+        this.expectedModCount = dag.modCount();
+    }
+
+    @Override
+    Set<E> nodes() {
+        checkForComodification();
+        return Collections.unmodifiableSet(nodes);
+    }
+
+    @Override
+    Collection<E> outgoing(E node) {
+        checkForComodification();
+        if (!nodes.contains(node)) {
+            return Collections.emptySet();
+        }
+        return Collections2.filter(dag.outgoing(node), nodes::contains);
+    }
+
+    @Override
+    Collection<E> incoming(E node) {
+        checkForComodification();
+        if (!nodes.contains(node)) {
+            return Collections.emptySet();
+        }
+        return Collections2.filter(dag.incoming(node), nodes::contains);
+    }
+
+    @Override
+    int modCount() {
+        return dag.modCount();
+    }
+
+    @Override
+    AbstractDag<E> backing() {
+        return dag;
+    }
+
+    private void checkForComodification() {
+        if (dag.modCount() != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    @Override
+    public boolean containsEdge(E source, E target) {
+        checkForComodification();
+        return nodes.contains(source) && nodes.contains(target) && dag.containsEdge(source, target);
+    }
+
+    /**
+     * Creates an independent {@link HashDag} with the nodes and edges of this view
+     *
+     * @return a copy of this view
+     */
+    @Override
+    public Dag<E> clone() {
+        return toHashDag();
+    }
+
+
+    /* This view is read-only */
+
+    @Override
+    public boolean put(E source, E target) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean putAll(E source, Collection<E> targets) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeEdge(E source, E target) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean putAll(Dag<E> other) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean retainEdges(Dag<E> other) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeEdges(Dag<E> other) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean add(E node) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean remove(Object node) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> nodes) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> nodes) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> collection) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+}
@@ -0,0 +1,174 @@
+package dev.alexjs.dag;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * A {@link Spliterator} that lazily visits the nodes of a DAG in topological order
+ * <p>
+ * This is Kahn's algorithm run one node at a time.
+ * Roots are found by walking the nodes only as far as the next root,
+ * and a node is ready as soon as the last of its incoming nodes has been visited,
+ * so the first nodes are produced without looking at the rest of the graph.
+ * Only nodes that have some, but not all, of their incoming nodes visited are tracked.
+ * <p>
+ * Splitting hands off the current frontier of ready nodes, which are independent of each other,
+ * and continues with the level after it.
+ * If the frontier is all that's left, then half of it is handed off.
+ * <p>
+ * The size counts every node that hasn't been visited or handed off, so it's too big if there's a circular dependency,
+ * since the nodes on and after a cycle are never produced.
+ *
+ * @param <E> the node type
+ */
+class TopologicalSpliterator<E> implements Spliterator<E> {
+
+    private static final int CHARACTERISTICS = ORDERED | DISTINCT | SIZED | SUBSIZED;
+
+    private final Iterator<E> nodes;
+    private final Function<E, ? extends Collection<E>> outgoing;
+    private final ToIntFunction<E> inDegree;
+    private final Runnable checkForComodification;
+    private final Map<E, Integer> remainingIncoming;
+    private final List<E> ready;
+    private int readyHead;
+    private long remaining;
+
+    /**
+     * Creates a spliterator over the given nodes
+     *
+     * @param nodes                  every node of the DAG
+     * @param outgoing               gets the outgoing nodes of a node without copying them
+     * @param inDegree               gets the number of incoming nodes of a node
+     * @param checkForComodification throws a {@link java.util.ConcurrentModificationException} if the DAG changed
+     */
+    TopologicalSpliterator(Collection<E> nodes,
+                           Function<E, ? extends Collection<E>> outgoing,
+                           ToIntFunction<E> inDegree,
+                           Runnable checkForComodification) {
+        this.nodes = nodes.iterator();
+        this.outgoing = outgoing;
+        this.inDegree = inDegree;
+        this.checkForComodification = checkForComodification;
+        this.remainingIncoming = new HashMap<>();
+        this.ready = new ArrayList<>();
+        this.remaining = nodes.size();
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super E> action) {
+        if (advance(action)) {
+            return true;
+        }
+        if (remaining > 0) {
+            throw new IllegalArgumentException("DAG contains a circular dependency");
+        }
+        return false;
+    }
+
+    /**
+     * Visits the next node, if there is one.
+     * Unlike {@link TopologicalSpliterator#tryAdvance(Consumer)}, this doesn't throw if nodes are left over because of
+     * a circular dependency.
+     *
+     * @param action the action to apply to the next node
+     * @return {@code false} if no more nodes can be visited
+     */
+    boolean advance(Consumer<? super E> action) {
+        checkForComodification.run();
+
+        E node;
+        if (readyHead < ready.size()) {
+            node = ready.get(readyHead);
+            ready.set(readyHead++, null);
+            if (readyHead == ready.size()) {
+                ready.clear();
+                readyHead = 0;
+            }
+        } else {
+            node = null;
+            boolean found = false;
+            while (!found && nodes.hasNext()) {
+                node = nodes.next();
+                found = inDegree.applyAsInt(node) == 0;
+            }
+            if (!found) {
+                return false;
+            }
+        }
+
+        release(node);
+        remaining--;
+        action.accept(node);
+        return true;
+    }
+
+    @Override
+    public Spliterator<E> trySplit() {
+        checkForComodification.run();
+
+        // The rest of the roots are part of the current frontier too
+        while (nodes.hasNext()) {
+            E node = nodes.next();
+            if (inDegree.applyAsInt(node) == 0) {
+                ready.add(node);
+            }
+        }
+
+        int frontier = ready.size() - readyHead;
+        int size = frontier < remaining ? frontier : frontier / 2;
+        if (size == 0) {
+            return null;
+        }
+
+        Object[] batch = new Object[size];
+        for (int i = 0; i < size; i++) {
+            batch[i] = ready.get(readyHead + i);
+        }
+        ready.subList(0, readyHead + size).clear();
+        readyHead = 0;
+        remaining -= size;
+
+        // The handed off nodes count as visited, so the next level can be released right away
+        for (Object node : batch) {
+            @SuppressWarnings("unchecked")
+            E e = (E) node;
+            release(e);
+        }
+
+        return Spliterators.spliterator(batch, CHARACTERISTICS);
+    }
+
+    @Override
+    public long estimateSize() {
+        return remaining;
+    }
+
+    @Override
+    public int characteristics() {
+        return CHARACTERISTICS;
+    }
+
+    private void release(E node) {
+        for (E target : outgoing.apply(node)) {
+            Integer count = remainingIncoming.get(target);
+            int left = (count == null ? inDegree.applyAsInt(target) : count) - 1;
+            if (left == 0) {
+                remainingIncoming.remove(target);
+                ready.add(target);
+            } else {
+                remainingIncoming.put(target, left);
+            }
+        }
+    }
+
+}
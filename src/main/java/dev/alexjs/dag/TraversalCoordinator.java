@@ -0,0 +1,463 @@
+package dev.alexjs.dag;
+
+import com.google.common.collect.Maps;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Traverses the nodes of a DAG by handing them out to {@link TraversalWorker} processes over sockets.
+ * This works like {@link DagTraversalTask}, except that each node's task runs in whichever worker it was sent to.
+ * <p>
+ * The coordinator owns all scheduling state. Each node is given a dense integer id,
+ * and a worker receives the table of every node once, when it connects.
+ * After that, only node ids are sent back and forth:
+ * the coordinator sends the id of each ready node to a worker with room for it,
+ * and the worker replies with the id and whether the node's task succeeded.
+ * Workers may connect at any time while the traversal is running.
+ * Each worker is registered on its own thread, and one that doesn't finish the handshake within ten seconds is dropped,
+ * so a stalled connection doesn't keep other workers from joining.
+ * Ids are written to each worker by a thread of its own, so a worker that stops reading only holds up itself.
+ * <p>
+ * If a worker disconnects or dies, every node it hadn't finished is sent to another worker,
+ * so a node's task may run more than once.
+ * If a node's task throws an exception, no new nodes are sent out
+ * and {@link TraversalCoordinator#awaitTermination(long, TimeUnit)} will return {@code false}.
+ * <p>
+ * The nodes must be {@link java.io.Serializable}.
+ * The DAG must not be modified while this is being created, but it isn't used afterwards.
+ *
+ * @param <T> the node type
+ */
+public class TraversalCoordinator<T> implements AutoCloseable {
+
+    /**
+     * The id sent to a worker to tell it to stop
+     */
+    static final int STOP = -1;
+
+    /**
+     * How long a worker has to say how many nodes it can run once it connects
+     */
+    private static final int HANDSHAKE_TIMEOUT_MILLIS = 10000;
+
+    private final Object[] nodes;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] remainingIncoming;
+    private final ServerSocket serverSocket;
+    private final List<Connection> connections;
+    private final Lock lock;
+    private final Condition terminated;
+
+    /**
+     * Ready node ids that haven't been sent to a worker yet, in a ring buffer.
+     * A node is either waiting here or being run by a worker, never both, so this never holds more than every node.
+     */
+    private final int[] ready;
+    private int readyHead;
+    private int readyCount;
+
+    private int remaining;
+    private Status status;
+    private boolean closed;
+
+    /**
+     * Creates a coordinator that accepts workers on the given socket and starts traversing as soon as one connects
+     *
+     * @param dag          the DAG to traverse
+     * @param serverSocket the socket workers connect to, which is closed when this is closed
+     */
+    public TraversalCoordinator(Dag<T> dag, ServerSocket serverSocket) {
+
+        this.serverSocket = serverSocket;
+        this.connections = new ArrayList<>();
+        this.lock = new ReentrantLock();
+        this.terminated = lock.newCondition();
+        this.status = Status.RUNNING;
+
+        // Lay the edges out by id, so scheduling never has to hash a node
+        int size = dag.size();
+        this.nodes = new Object[size];
+        Map<T, Integer> ids = Maps.newHashMapWithExpectedSize(size);
+        for (T node : AbstractDag.nodesOf(dag)) {
+            nodes[ids.size()] = node;
+            ids.put(node, ids.size());
+        }
+        // Count each node's edges first, so the targets go straight into one array
+        this.offsets = new int[size + 1];
+        for (int id = 0; id < size; id++) {
+            @SuppressWarnings("unchecked")
+            T node = (T) nodes[id];
+            offsets[id + 1] = offsets[id] + AbstractDag.outgoingOf(dag, node).size();
+        }
+        this.targets = new int[offsets[size]];
+        this.remainingIncoming = new int[size];
+        for (int id = 0; id < size; id++) {
+            @SuppressWarnings("unchecked")
+            T node = (T) nodes[id];
+            int i = offsets[id];
+            for (T target : AbstractDag.outgoingOf(dag, node)) {
+                targets[i] = ids.get(target);
+                remainingIncoming[targets[i]]++;
+                i++;
+            }
+        }
+
+        this.ready = new int[size];
+        for (int id = 0; id < size; id++) {
+            if (remainingIncoming[id] == 0) {
+                ready[readyCount++] = id;
+            }
+        }
+        this.remaining = size;
+
+        // If there are no roots, then there are no nodes to visit
+        if (readyCount == 0) {
+            status = Status.DONE;
+        }
+
+        Thread acceptor = new Thread(this::accept, "dag-coordinator-" + serverSocket.getLocalPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+    }
+
+    /**
+     * Gets the port that workers should connect to
+     *
+     * @return the port of the server socket
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Gets the number of workers that are currently connected
+     *
+     * @return the number of connected workers
+     */
+    public int getWorkerCount() {
+        try {
+            lock.lock();
+            return connections.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until all nodes have been traversed, or the timeout occurs,
+     * or a task fails, or the current thread is interrupted, whichever happens first.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the time unit of the timeout argument
+     * @return {@code true} if the traversal is terminated and {@code false} if the timeout elapsed before termination
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            lock.lock();
+            long nanos = unit.toNanos(timeout);
+            while (status == Status.RUNNING) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = terminated.awaitNanos(nanos);
+            }
+            return status == Status.DONE;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Tells every connected worker to stop and stops accepting new workers.
+     * A traversal that hasn't terminated yet won't make any more progress.
+     */
+    @Override
+    public void close() {
+        List<Connection> stopping;
+        try {
+            lock.lock();
+            closed = true;
+            stopping = new ArrayList<>(connections);
+            connections.clear();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            serverSocket.close();
+        } catch (IOException ignore) {
+        }
+        for (Connection connection : stopping) {
+            // The writer closes the connection once the worker has been told to stop
+            connection.send(STOP);
+        }
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                // The server socket was closed
+                return;
+            }
+            // Each worker is registered on its own thread, so one that stalls can't hold up the others
+            Thread reader = new Thread(() -> register(socket),
+                    "dag-coordinator-worker-" + socket.getRemoteSocketAddress());
+            reader.setDaemon(true);
+            reader.start();
+        }
+    }
+
+    private void register(Socket socket) {
+        Connection connection;
+        try {
+            socket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+            connection = new Connection(socket);
+            socket.setSoTimeout(0);
+        } catch (IOException e) {
+            // The worker went away or stalled during the handshake, so it never had any nodes
+            closeQuietly(socket);
+            return;
+        }
+        connection.start();
+        try {
+            lock.lock();
+            if (closed) {
+                connection.send(STOP);
+                return;
+            }
+            connections.add(connection);
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+        read(connection);
+    }
+
+    private void read(Connection connection) {
+        try {
+            while (true) {
+                int id = connection.in.readInt();
+                boolean succeeded = connection.in.readBoolean();
+                complete(connection, id, succeeded);
+            }
+        } catch (IOException e) {
+            disconnect(connection);
+        }
+    }
+
+    private void complete(Connection connection, int id, boolean succeeded) {
+        try {
+            lock.lock();
+            if (!connection.inFlight.remove(id)) {
+                // The worker was already written off, so this node has been sent to another worker
+                return;
+            }
+            if (!succeeded) {
+                if (status == Status.RUNNING) {
+                    status = Status.ERROR;
+                    terminated.signalAll();
+                }
+                return;
+            }
+
+            if (--remaining == 0 && status == Status.RUNNING) {
+                status = Status.DONE;
+                terminated.signalAll();
+            }
+
+            // Release each outgoing node once all of its incoming nodes are done
+            for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+                if (--remainingIncoming[targets[i]] == 0) {
+                    enqueue(targets[i]);
+                }
+            }
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void disconnect(Connection connection) {
+        try {
+            lock.lock();
+            if (connections.remove(connection)) {
+                // Whatever the worker was running has to be run again somewhere else
+                for (int id : connection.inFlight) {
+                    enqueue(id);
+                }
+                connection.inFlight.clear();
+                dispatch();
+            }
+        } finally {
+            lock.unlock();
+        }
+        connection.close();
+    }
+
+    /**
+     * Sends ready nodes to workers with room for them. The lock must be held.
+     * This only queues the ids, so it never waits on a worker's socket.
+     */
+    private void dispatch() {
+        if (status != Status.RUNNING || closed) {
+            return;
+        }
+        for (Connection connection : connections) {
+            while (readyCount > 0 && connection.inFlight.size() < connection.parallelism) {
+                int id = ready[readyHead];
+                readyHead = (readyHead + 1) % ready.length;
+                readyCount--;
+                connection.inFlight.add(id);
+                connection.send(id);
+            }
+        }
+    }
+
+    private void enqueue(int id) {
+        ready[(readyHead + readyCount) % ready.length] = id;
+        readyCount++;
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignore) {
+        }
+    }
+
+    /**
+     * A connected worker
+     */
+    private class Connection {
+
+        private final Socket socket;
+        private final ObjectOutputStream out;
+        private final ObjectInputStream in;
+        private final int parallelism;
+
+        /**
+         * The ids of the nodes sent to this worker that it hasn't finished yet
+         */
+        private final Set<Integer> inFlight;
+
+        /**
+         * Ids waiting to be written by this worker's writer thread, in a ring buffer guarded by this connection
+         */
+        private int[] outbox;
+        private int outboxHead;
+        private int outboxCount;
+        private boolean closed;
+
+        /**
+         * Registers a worker: it says how many nodes it can run at once, and gets the table of nodes in return
+         */
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.flush();
+            this.in = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.parallelism = Math.max(1, in.readInt());
+            this.inFlight = new HashSet<>();
+            this.outbox = new int[Math.min(parallelism, 16) + 1];
+            out.writeObject(nodes);
+            out.flush();
+        }
+
+        /**
+         * Starts the thread that writes queued ids to the worker
+         */
+        void start() {
+            Thread writer = new Thread(this::write, "dag-coordinator-writer-" + socket.getRemoteSocketAddress());
+            writer.setDaemon(true);
+            writer.start();
+        }
+
+        /**
+         * Queues an id to be written to the worker, without waiting for the write
+         *
+         * @param id the id of a node, or {@link TraversalCoordinator#STOP}
+         */
+        synchronized void send(int id) {
+            if (outboxCount == outbox.length) {
+                int[] grown = new int[outbox.length * 2];
+                for (int i = 0; i < outboxCount; i++) {
+                    grown[i] = outbox[(outboxHead + i) % outbox.length];
+                }
+                outbox = grown;
+                outboxHead = 0;
+            }
+            outbox[(outboxHead + outboxCount) % outbox.length] = id;
+            outboxCount++;
+            notifyAll();
+        }
+
+        private void write() {
+            try {
+                while (true) {
+                    int id;
+                    boolean more;
+                    synchronized (this) {
+                        while (outboxCount == 0 && !closed) {
+                            wait();
+                        }
+                        if (closed) {
+                            return;
+                        }
+                        id = outbox[outboxHead];
+                        outboxHead = (outboxHead + 1) % outbox.length;
+                        outboxCount--;
+                        more = outboxCount > 0;
+                    }
+                    out.writeInt(id);
+                    // Flush once the queue is empty, so ids queued together go out together
+                    if (!more || id == STOP) {
+                        out.flush();
+                    }
+                    if (id == STOP) {
+                        close();
+                        return;
+                    }
+                }
+            } catch (IOException | InterruptedException e) {
+                // Whatever this worker was running is sent to another one
+                disconnect(this);
+            }
+        }
+
+        void close() {
+            synchronized (this) {
+                closed = true;
+                notifyAll();
+            }
+            closeQuietly(socket);
+        }
+
+    }
+
+    private enum Status {
+        RUNNING,
+        ERROR,
+        DONE
+    }
+
+}
@@ -0,0 +1,225 @@
+package dev.alexjs.dag;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * An append-only file recording which nodes of a traversal have finished, so a later traversal can resume
+ * <p>
+ * Each finished node is written as one line, identified by a key that must stay the same across runs.
+ * A {@link DagTraversalTask} given a journal skips every node already in it,
+ * and releases the outgoing nodes of those nodes right away.
+ * <p>
+ * Every line is handed to the operating system as soon as its node finishes, so it survives the JVM dying.
+ * Forcing lines to the disk itself is slower, so that's done in batches:
+ * after a number of lines, or once enough time has passed since the last sync, and when the journal is closed.
+ * A line cut short by a crash is ignored when the journal is opened again.
+ *
+ * @param <T> the node type
+ */
+public class TraversalJournal<T> implements Closeable {
+
+    /**
+     * The number of lines written between syncs by default
+     */
+    private static final int DEFAULT_SYNC_LINES = 1024;
+
+    /**
+     * The time between syncs by default, in milliseconds
+     */
+    private static final long DEFAULT_SYNC_MILLIS = 1000;
+
+    private final FileChannel channel;
+    private final Function<? super T, String> key;
+    private final Set<String> completed;
+    private final int syncLines;
+    private final long syncNanos;
+    private int unsyncedLines;
+    private long lastSync;
+
+    private TraversalJournal(FileChannel channel, Function<? super T, String> key, Set<String> completed,
+                             int syncLines, long syncNanos) {
+        this.channel = channel;
+        this.key = key;
+        this.completed = completed;
+        this.syncLines = syncLines;
+        this.syncNanos = syncNanos;
+        this.lastSync = System.nanoTime();
+    }
+
+    /**
+     * Opens a journal, creating it if it doesn't exist, and reads the nodes that have already finished
+     *
+     * @param path the journal file
+     * @param key  gets the key of a node, which must not contain a line break
+     * @param <T>  the node type
+     * @return the journal
+     * @throws IOException if the journal can't be read or opened for writing
+     */
+    public static <T> TraversalJournal<T> open(Path path, Function<? super T, String> key) throws IOException {
+        return open(path, key, DEFAULT_SYNC_LINES, DEFAULT_SYNC_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens a journal, creating it if it doesn't exist, and reads the nodes that have already finished
+     *
+     * @param path      the journal file
+     * @param key       gets the key of a node, which must not contain a line break
+     * @param syncLines the number of lines to write before syncing to the disk
+     * @param syncTime  the time to wait after a sync before syncing again when a line is written
+     * @param unit      the time unit of the sync time
+     * @param <T>       the node type
+     * @return the journal
+     * @throws IOException if the journal can't be read or opened for writing
+     */
+    public static <T> TraversalJournal<T> open(Path path, Function<? super T, String> key,
+                                               int syncLines, long syncTime, TimeUnit unit) throws IOException {
+
+        if (syncLines < 1) {
+            throw new IllegalArgumentException("Sync lines must be at least 1");
+        }
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            Set<String> completed = new HashSet<>();
+            long end = read(channel, completed);
+            // Drop a line that was cut short, so the next line starts cleanly
+            channel.truncate(end);
+            channel.position(end);
+            return new TraversalJournal<>(channel, key, completed, syncLines, unit.toNanos(syncTime));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+    }
+
+    /**
+     * Reads every complete line of the journal
+     *
+     * @return the position just past the last complete line
+     */
+    private static long read(FileChannel channel, Set<String> completed) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        byte[] line = new byte[256];
+        int lineLength = 0;
+        long position = 0;
+        long end = 0;
+        while (channel.read(buffer, position) > 0) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                position++;
+                if (b == '\n') {
+                    completed.add(new String(line, 0, lineLength, StandardCharsets.UTF_8));
+                    lineLength = 0;
+                    end = position;
+                } else {
+                    if (lineLength == line.length) {
+                        byte[] grown = new byte[line.length * 2];
+                        System.arraycopy(line, 0, grown, 0, lineLength);
+                        line = grown;
+                    }
+                    line[lineLength++] = b;
+                }
+            }
+            buffer.clear();
+        }
+        return end;
+    }
+
+    /**
+     * Returns {@code true} if the given node finished in an earlier traversal, or was recorded since this was opened
+     *
+     * @param node the node
+     * @return {@code true} if the node has finished
+     */
+    public synchronized boolean isCompleted(T node) {
+        return completed.contains(key.apply(node));
+    }
+
+    /**
+     * Gets the number of nodes that have finished
+     *
+     * @return the number of finished nodes
+     */
+    public synchronized int size() {
+        return completed.size();
+    }
+
+    /**
+     * Records that a node has finished.
+     * If the line can't be written, the node isn't counted as completed, and recording it again retries the write.
+     *
+     * @param node the node
+     * @throws IOException if the line can't be written
+     */
+    synchronized void record(T node) throws IOException {
+        String nodeKey = key.apply(node);
+        if (nodeKey.indexOf('\n') >= 0 || nodeKey.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("Journal key must not contain a line break: " + nodeKey);
+        }
+        if (completed.contains(nodeKey)) {
+            return;
+        }
+        ByteBuffer line = ByteBuffer.wrap((nodeKey + "\n").getBytes(StandardCharsets.UTF_8));
+        long start = channel.position();
+        try {
+            while (line.hasRemaining()) {
+                channel.write(line);
+            }
+        } catch (IOException e) {
+            // Drop whatever part of the line was written, so recording the node again starts cleanly
+            try {
+                channel.truncate(start);
+                channel.position(start);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        // Only a node whose line was written counts as completed, so a failed write can be retried
+        completed.add(nodeKey);
+        if (++unsyncedLines >= syncLines || System.nanoTime() - lastSync >= syncNanos) {
+            sync();
+        }
+    }
+
+    /**
+     * Forces every line written so far to the disk
+     *
+     * @throws IOException if the journal can't be synced
+     */
+    public synchronized void sync() throws IOException {
+        if (unsyncedLines > 0) {
+            channel.force(false);
+            unsyncedLines = 0;
+        }
+        lastSync = System.nanoTime();
+    }
+
+    /**
+     * Syncs and closes the journal
+     *
+     * @throws IOException if the journal can't be synced or closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+
+}
@@ -0,0 +1,119 @@
+package dev.alexjs.dag;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Runs node tasks for a {@link TraversalCoordinator}, usually in a separate process
+ * <p>
+ * A worker connects to the coordinator, receives the table of nodes,
+ * and then runs the task of each node id it's sent, reporting back as each one finishes.
+ * It runs until the coordinator tells it to stop or the connection is lost.
+ * <p>
+ * To start a worker in its own JVM, run this class with the coordinator's host and port,
+ * the name of a {@link Consumer} class with a public no-argument constructor to use as the task,
+ * and optionally the number of nodes to run at once:
+ * <pre>
+ * java -cp ... dev.alexjs.dag.TraversalWorker localhost 4000 com.example.BuildTask 4
+ * </pre>
+ */
+public final class TraversalWorker {
+
+    private TraversalWorker() {
+    }
+
+    /**
+     * Connects to a coordinator and runs node tasks until the coordinator says to stop
+     *
+     * @param host        the coordinator's host
+     * @param port        the coordinator's port
+     * @param task        the task to apply to each node
+     * @param parallelism the number of nodes to run at once
+     * @param <T>         the node type
+     * @throws IOException            if the connection to the coordinator fails
+     * @throws ClassNotFoundException if a node's class can't be found in this process
+     * @throws InterruptedException   if interrupted while waiting for running tasks to finish
+     */
+    public static <T> void run(String host, int port, Consumer<? super T> task, int parallelism)
+            throws IOException, ClassNotFoundException, InterruptedException {
+
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(parallelism);
+        try (Socket socket = new Socket(host, port)) {
+
+            ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(parallelism);
+            out.flush();
+            ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+            Object[] nodes = (Object[]) in.readObject();
+
+            while (true) {
+                int id;
+                try {
+                    id = in.readInt();
+                } catch (EOFException e) {
+                    // The coordinator went away
+                    break;
+                }
+                if (id == TraversalCoordinator.STOP) {
+                    break;
+                }
+                @SuppressWarnings("unchecked")
+                T node = (T) nodes[id];
+                executorService.execute(() -> {
+                    boolean succeeded;
+                    try {
+                        task.accept(node);
+                        succeeded = true;
+                    } catch (Throwable t) {
+                        succeeded = false;
+                    }
+                    try {
+                        synchronized (out) {
+                            out.writeInt(id);
+                            out.writeBoolean(succeeded);
+                            out.flush();
+                        }
+                    } catch (IOException ignore) {
+                        // The coordinator will send the node to another worker
+                    }
+                });
+            }
+
+        } finally {
+            executorService.shutdown();
+            executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        }
+
+    }
+
+    /**
+     * Starts a worker from the command line
+     *
+     * @param args the coordinator's host, its port, the task class name, and optionally the parallelism
+     * @throws Exception if the task can't be created or the worker fails
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3 || args.length > 4) {
+            System.err.println("Usage: TraversalWorker <host> <port> <task class> [parallelism]");
+            System.exit(2);
+        }
+        @SuppressWarnings("unchecked")
+        Consumer<Object> task = (Consumer<Object>) Class.forName(args[2]).getDeclaredConstructor().newInstance();
+        int parallelism = args.length == 4 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        run(args[0], Integer.parseInt(args[1]), task, parallelism);
+    }
+
+}
@@ -0,0 +1,24 @@
+package dev.alexjs.dag;
+
+/**
+ * What a search should do after a {@link DagVisitor} visits a node
+ */
+public enum VisitResult {
+
+    /**
+     * Continue the search, including the nodes past this one
+     */
+    CONTINUE,
+
+    /**
+     * Continue the search, but don't go past this node.
+     * Nodes past this one are still visited if the search reaches them another way.
+     */
+    SKIP_SUBTREE,
+
+    /**
+     * Stop the search immediately
+     */
+    TERMINATE
+
+}
@@ -0,0 +1,399 @@
+package dev.alexjs.dag;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An implementation of {@link Dag} where every edge has a weight, such as a latency or a cost
+ * <p>
+ * Nodes and edges are stored like in an {@link InternedDag}, with a dense integer id for each node.
+ * Alongside the {@code int[]} of each node's outgoing ids is a {@code double[]} of their weights,
+ * so weights cost no more than the edges themselves and path computations run over primitive arrays.
+ * <p>
+ * Edges added without a weight get {@link WeightedDag#DEFAULT_WEIGHT}, so path weights count edges by default.
+ * Operations that create new DAGs, like {@link WeightedDag#union(Dag)}, create unweighted {@link InternedDag}s,
+ * except for {@link WeightedDag#inverted()} and {@link WeightedDag#clone()}.
+ *
+ * @param <E> the node type
+ */
+public class WeightedDag<E> extends InternedDag<E> {
+
+    /**
+     * The weight of an edge that was added without one
+     */
+    public static final double DEFAULT_WEIGHT = 1.0;
+
+    private static final double[] NO_WEIGHTS = new double[0];
+
+    /**
+     * The weight of each outgoing edge of each node, lined up with the ids of its outgoing nodes.
+     * This is set up by {@link WeightedDag#resize(int)} while the superclass is constructed, so it has no initializer.
+     */
+    private double[][] weights;
+
+    /**
+     * Constructs an empty {@link WeightedDag}
+     */
+    public WeightedDag() {
+        this(16);
+    }
+
+    /**
+     * Constructs an empty {@link WeightedDag} with room for the given number of nodes
+     *
+     * @param expectedSize the number of nodes this DAG is expected to have
+     */
+    public WeightedDag(int expectedSize) {
+        super(expectedSize);
+    }
+
+    /**
+     * Creates a new DAG with the same nodes, edges and weights as the given {@link WeightedDag}
+     *
+     * @param other the DAG to copy
+     */
+    private WeightedDag(WeightedDag<E> other) {
+        super(other);
+        this.weights = new double[other.weights.length][];
+        for (int id = 0; id < other.nextId; id++) {
+            this.weights[id] = Arrays.copyOf(other.weights[id], other.targetCounts[id]);
+        }
+    }
+
+
+    /* Methods exclusive to WeightedDag<> */
+
+    /**
+     * Adds a {@code source} to {@code target} node relationship with the given weight to this DAG,
+     * or changes the weight of the edge if it's already in this DAG.
+     * If either node is not already in the graph, then it will be added.
+     *
+     * @param source the source node
+     * @param target the target node
+     * @param weight the weight of the edge
+     * @return {@code true} if this DAG changed as a result of the call
+     * @throws IllegalArgumentException if the weight is not finite
+     */
+    public boolean put(E source, E target, double weight) {
+        if (!Double.isFinite(weight)) {
+            throw new IllegalArgumentException("Edge weight must be finite");
+        }
+        return put(source, target, weight, true);
+    }
+
+    /**
+     * Gets the weight of the edge from {@code source} to {@code target}
+     *
+     * @param source the source node
+     * @param target the target node
+     * @return the weight of the edge
+     * @throws IllegalArgumentException if the edge is not in this DAG
+     */
+    public double getWeight(E source, E target) {
+        int sourceId = id(source);
+        int targetId = id(target);
+        int index = sourceId < 0 || targetId < 0 ? -1 : indexOfTarget(sourceId, targetId);
+        if (index < 0) {
+            throw new IllegalArgumentException("DAG does not contain the edge " + source + " -> " + target);
+        }
+        return weights[sourceId][index];
+    }
+
+    /**
+     * Finds the path from {@code source} to {@code target} with the greatest total weight
+     *
+     * @param source the first node of the path
+     * @param target the last node of the path
+     * @return the heaviest path, or {@code null} if {@code target} can't be reached from {@code source}
+     * @throws IllegalArgumentException if this DAG contains a circular dependency
+     */
+    public Path<E> longestPath(E source, E target) {
+        return path(source, target, true);
+    }
+
+    /**
+     * Finds the path from {@code source} to {@code target} with the least total weight
+     *
+     * @param source the first node of the path
+     * @param target the last node of the path
+     * @return the lightest path, or {@code null} if {@code target} can't be reached from {@code source}
+     * @throws IllegalArgumentException if this DAG contains a circular dependency
+     */
+    public Path<E> shortestPath(E source, E target) {
+        return path(source, target, false);
+    }
+
+    /**
+     * Finds the path with the greatest total weight anywhere in this DAG.
+     * When the weights are latencies, this is the chain of nodes that bounds how fast the whole DAG can be run.
+     *
+     * @return the heaviest path, which is empty if this DAG is empty
+     * @throws IllegalArgumentException if this DAG contains a circular dependency
+     */
+    public Path<E> criticalPath() {
+        int[] order = topologicalOrder();
+        double[] distance = new double[nextId];
+        int[] previous = new int[nextId];
+        Arrays.fill(previous, -1);
+
+        // Every node can start a path, so every distance starts at zero
+        int end = -1;
+        for (int id : order) {
+            relax(id, distance, previous, true);
+            if (end < 0 || distance[id] > distance[end]) {
+                end = id;
+            }
+        }
+        return end < 0 ? new Path<>(Collections.emptyList(), 0) : toPath(end, distance, previous);
+    }
+
+    private Path<E> path(E source, E target, boolean longest) {
+        int sourceId = id(source);
+        int targetId = id(target);
+        if (sourceId < 0 || targetId < 0) {
+            return null;
+        }
+
+        int[] order = topologicalOrder();
+        double[] distance = new double[nextId];
+        Arrays.fill(distance, longest ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY);
+        distance[sourceId] = 0;
+        int[] previous = new int[nextId];
+        Arrays.fill(previous, -1);
+
+        // Nothing before the source in topological order can be reached from it
+        int start = 0;
+        while (order[start] != sourceId) {
+            start++;
+        }
+        for (int i = start; i < order.length; i++) {
+            if (!Double.isInfinite(distance[order[i]])) {
+                relax(order[i], distance, previous, longest);
+            }
+        }
+
+        return Double.isInfinite(distance[targetId]) ? null : toPath(targetId, distance, previous);
+    }
+
+    private void relax(int id, double[] distance, int[] previous, boolean longest) {
+        int[] ids = targets[id];
+        double[] edgeWeights = weights[id];
+        for (int i = 0; i < targetCounts[id]; i++) {
+            int target = ids[i];
+            double candidate = distance[id] + edgeWeights[i];
+            if (longest ? candidate > distance[target] : candidate < distance[target]) {
+                distance[target] = candidate;
+                previous[target] = id;
+            }
+        }
+    }
+
+    private Path<E> toPath(int end, double[] distance, int[] previous) {
+        List<E> path = new ArrayList<>();
+        for (int id = end; id >= 0; id = previous[id]) {
+            path.add(node(id));
+        }
+        Collections.reverse(path);
+        return new Path<>(path, distance[end]);
+    }
+
+    /* Methods exclusive to Dag<> */
+
+    /**
+     * Adds a {@code source} to {@code target} node relationship to this DAG with {@link WeightedDag#DEFAULT_WEIGHT}.
+     * If the edge is already in this DAG, then its weight is left alone.
+     *
+     * @param source the source node
+     * @param target the target node
+     * @return {@code true} if this DAG changed as a result of the call
+     */
+    @Override
+    public boolean put(E source, E target) {
+        return put(source, target, DEFAULT_WEIGHT, false);
+    }
+
+    private boolean put(E source, E target, double weight, boolean overwrite) {
+        int sourceId = id(source);
+        boolean changed = sourceId < 0;
+        if (changed) {
+            sourceId = intern(source);
+        }
+        int targetId = id(target);
+        if (targetId < 0) {
+            targetId = intern(target);
+            changed = true;
+        }
+
+        int index = indexOfTarget(sourceId, targetId);
+        if (index >= 0) {
+            if (overwrite && Double.compare(weights[sourceId][index], weight) != 0) {
+                weights[sourceId][index] = weight;
+                changed = true;
+            }
+            return changed;
+        }
+
+        // Linking may grow the row of weights, so it has to happen before the row is read
+        int position = link(sourceId, targetId);
+        weights[sourceId][position] = weight;
+        return true;
+    }
+
+    /**
+     * Creates a DAG with the directions of all edges flipped.
+     * Each edge keeps its weight.
+     *
+     * @return a DAG with the directions of all edges flipped
+     */
+    @Override
+    public Dag<E> inverted() {
+        WeightedDag<E> inverted = new WeightedDag<>(this);
+        inverted.invert();
+
+        // Refill the flipped rows in one pass over the rows of this DAG, so each weight lands next to its node
+        int[] filled = new int[nextId];
+        for (int id = 0; id < nextId; id++) {
+            inverted.weights[id] = new double[inverted.targetCounts[id]];
+        }
+        for (int source = 0; source < nextId; source++) {
+            for (int i = 0; i < targetCounts[source]; i++) {
+                int target = targets[source][i];
+                int position = filled[target]++;
+                inverted.targets[target][position] = source;
+                inverted.weights[target][position] = weights[source][i];
+            }
+        }
+        for (int id = 0; id < nextId; id++) {
+            inverted.reindexTargets(id);
+        }
+        return inverted;
+    }
+
+    /**
+     * Compares the specified object with this DAG for equality.
+     * Two weighted DAGs are equal if they have the same nodes, the same edges, and the same weight on each edge.
+     *
+     * @param o object to be compared for equality with this collection
+     * @return {@code true} if the specified object is equal to this DAG
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        @SuppressWarnings("unchecked")
+        WeightedDag<E> other = (WeightedDag<E>) o;
+        if (!nodes().equals(other.nodes())) {
+            return false;
+        }
+        for (int id : ids()) {
+            int otherId = other.id(node(id));
+            if (targetCounts[id] != other.targetCounts[otherId]) {
+                return false;
+            }
+            for (int i = 0; i < targetCounts[id]; i++) {
+                int index = other.indexOfTarget(otherId, other.id(node(targets[id][i])));
+                if (index < 0 || Double.compare(weights[id][i], other.weights[otherId][index]) != 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hash code value for this DAG
+     *
+     * @return the hash code value for this DAG
+     */
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int id : ids()) {
+            int edges = 0;
+            for (int i = 0; i < targetCounts[id]; i++) {
+                edges += Objects.hashCode(node(targets[id][i])) ^ Double.hashCode(weights[id][i]);
+            }
+            hash += Objects.hashCode(node(id)) ^ edges;
+        }
+        return hash;
+    }
+
+    /**
+     * Creates a shallow copy of this DAG, including the weight of each edge.
+     * Mutations to a node in the copy will result in mutations to the node in the original DAG.
+     *
+     * @return a shallow copy of this DAG
+     */
+    @Override
+    public Dag<E> clone() {
+        return new WeightedDag<>(this);
+    }
+
+
+    /* Weights kept alongside the outgoing nodes */
+
+    @Override
+    void resize(int capacity) {
+        // The arrays are created afresh when this DAG is constructed or cleared, which is when no id is in use
+        weights = weights == null || nextId == 0 ? new double[capacity][] : Arrays.copyOf(weights, capacity);
+    }
+
+    @Override
+    void targetsResized(int id, int capacity) {
+        weights[id] = capacity == 0 ? NO_WEIGHTS : Arrays.copyOf(weights[id], capacity);
+    }
+
+    @Override
+    void targetMoved(int id, int from, int to) {
+        weights[id][to] = weights[id][from];
+    }
+
+    /**
+     * A path through a {@link WeightedDag} along with its total weight
+     *
+     * @param <E> the node type
+     */
+    public static final class Path<E> {
+
+        private final List<E> nodes;
+        private final double weight;
+
+        private Path(List<E> nodes, double weight) {
+            this.nodes = Collections.unmodifiableList(nodes);
+            this.weight = weight;
+        }
+
+        /**
+         * Gets the nodes along this path, in order
+         *
+         * @return the nodes of this path
+         */
+        public List<E> getNodes() {
+            return nodes;
+        }
+
+        /**
+         * Gets the sum of the weights of the edges along this path
+         *
+         * @return the weight of this path
+         */
+        public double getWeight() {
+            return weight;
+        }
+
+        /**
+         * Returns a string representation of this path
+         *
+         * @return a string representation of this path
+         */
+        @Override
+        public String toString() {
+            return nodes + " (" + weight + ")";
+        }
+
+    }
+
+}
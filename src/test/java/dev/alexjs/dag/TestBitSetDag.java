@@ -0,0 +1,157 @@
+package dev.alexjs.dag;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+@Timeout(2)
+public class TestBitSetDag {
+
+    private static TestingHelper helper;
+
+    @BeforeAll
+    public static void init() {
+        helper = new TestingHelper();
+    }
+
+    /**
+     * Asserts that two DAGs have the same nodes and edges, whatever their implementations
+     */
+    private void assertSameStructure(Dag<Integer> expected, Dag<Integer> actual) {
+        Assertions.assertEquals(expected.getNodes(), actual.getNodes());
+        for (int node : expected.getNodes()) {
+            Assertions.assertEquals(expected.getOutgoing(node), actual.getOutgoing(node));
+            Assertions.assertEquals(expected.getIncoming(node), actual.getIncoming(node));
+        }
+    }
+
+    @RepeatedTest(5)
+    public void testMatchesHashDag() {
+
+        Dag<Integer> expected = helper.populateDag();
+        BitSetDag<Integer> dag = new BitSetDag<>(expected);
+
+        assertSameStructure(expected, dag);
+        Assertions.assertEquals(expected.getRoots(), dag.getRoots());
+        Assertions.assertEquals(expected.getLeaves(), dag.getLeaves());
+        helper.assertOrder(dag, dag.sort());
+
+        int middle = helper.getMiddleNode(expected);
+        Assertions.assertEquals(expected.getAncestors(middle), dag.getAncestors(middle));
+        Assertions.assertEquals(expected.getDescendants(middle), dag.getDescendants(middle));
+        Assertions.assertEquals(expected.getFamily(middle), dag.getFamily(middle));
+        Assertions.assertTrue(dag.getDescendants(-1).isEmpty());
+
+        assertSameStructure(expected.inverted(), dag.inverted());
+        Assertions.assertEquals(dag, dag.clone());
+        Assertions.assertEquals(dag.hashCode(), dag.clone().hashCode());
+        Assertions.assertEquals(expected.hashCode(), dag.hashCode());
+
+    }
+
+    @Test
+    public void testMutations() {
+
+        BitSetDag<Integer> dag = new BitSetDag<>();
+        Assertions.assertTrue(dag.put(1, 2));
+        Assertions.assertFalse(dag.put(1, 2));
+        Assertions.assertTrue(dag.put(2, 3));
+        Assertions.assertTrue(dag.put(1, 100));
+        Assertions.assertTrue(dag.add(4));
+        Assertions.assertFalse(dag.add(4));
+        Assertions.assertTrue(dag.containsEdge(1, 100));
+        Assertions.assertFalse(dag.containsEdge(100, 1));
+
+        Assertions.assertTrue(dag.removeEdge(1, 2));
+        Assertions.assertFalse(dag.removeEdge(1, 2));
+        Assertions.assertTrue(dag.contains(2));
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(1, 2, 4)), dag.getRoots());
+
+        // A removed node's id is reused without bringing back its edges
+        Assertions.assertTrue(dag.remove(2));
+        Assertions.assertFalse(dag.remove(2));
+        Assertions.assertTrue(dag.getIncoming(3).isEmpty());
+        Assertions.assertTrue(dag.add(5));
+        Assertions.assertTrue(dag.getIncoming(5).isEmpty());
+        Assertions.assertTrue(dag.getOutgoing(5).isEmpty());
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(1, 3, 4, 5, 100)), dag.getNodes());
+
+        dag.put(3, 1);
+        dag.put(100, 3);
+        Assertions.assertNull(dag.sort());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dag.getDescendants(1));
+
+        dag.clear();
+        Assertions.assertTrue(dag.isEmpty());
+        Assertions.assertTrue(dag.put(null, 1));
+        Assertions.assertTrue(dag.containsEdge(null, 1));
+
+    }
+
+    @Test
+    public void testClosureAfterGrowing() {
+
+        // The capacity grows past the ids in use, so rows end up longer than the words those ids need
+        BitSetDag<Integer> dag = new BitSetDag<>();
+        for (int i = 0; i < 130; i++) {
+            dag.add(i);
+        }
+        dag.put(5, 0);
+        dag.put(5, 64);
+        dag.put(5, 128);
+        dag.put(7, 5);
+
+        HashSet<Integer> descendants = new HashSet<>(Arrays.asList(0, 64, 128));
+        Assertions.assertEquals(descendants, dag.getDescendants(5));
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(5, 7)), dag.getAncestors(128));
+        descendants.add(5);
+        descendants.add(7);
+        Assertions.assertEquals(descendants, dag.getFamily(5));
+
+    }
+
+    @RepeatedTest(5)
+    public void testSetOperations() {
+
+        Dag<Integer> a = helper.populateDag();
+        Dag<Integer> b = helper.populateDag();
+        BitSetDag<Integer> bitsA = new BitSetDag<>(a);
+        BitSetDag<Integer> bitsB = new BitSetDag<>(b);
+
+        // Nodes have different ids in the two DAGs, so rows are translated
+        assertSameStructure(a.union(b), bitsA.union(bitsB));
+        assertSameStructure(a.intersection(b), bitsA.intersection(bitsB));
+        assertSameStructure(a.difference(b), bitsA.difference(bitsB));
+
+        // Other implementations fall back to comparing edge by edge
+        assertSameStructure(a.union(b), bitsA.union(b));
+        assertSameStructure(a.intersection(b), bitsA.intersection(b));
+        assertSameStructure(a.difference(b), bitsA.difference(b));
+
+        // A clone has the same ids, so rows are combined as they are
+        BitSetDag<Integer> clone = (BitSetDag<Integer>) bitsA.clone();
+        int middle = helper.getMiddleNode(a);
+        clone.removeAll(clone.getDescendants(middle));
+        clone.put(middle, -1);
+        Dag<Integer> expected = a.clone();
+        expected.removeAll(expected.getDescendants(middle));
+        expected.put(middle, -1);
+        assertSameStructure(expected, clone);
+        assertSameStructure(a.union(expected), bitsA.union(clone));
+        assertSameStructure(a.intersection(expected), bitsA.intersection(clone));
+        assertSameStructure(a.difference(expected), bitsA.difference(clone));
+
+        Assertions.assertFalse(bitsA.putAll(bitsA));
+        Assertions.assertFalse(bitsA.retainEdges(bitsA));
+        Assertions.assertTrue(bitsA.removeEdges(bitsA));
+        Assertions.assertEquals(a.getNodes(), bitsA.getNodes());
+        Assertions.assertEquals(a.size(), bitsA.getLeaves().size());
+
+    }
+
+}
@@ -1,5 +1,6 @@
 package dev.alexjs.dag;
 
+import com.google.common.collect.ForwardingCollection;
 import org.junit.jupiter.api.*;
 
 import java.util.*;
@@ -25,6 +26,21 @@ public class TestDag {
 
     }
 
+    @Test
+    public void testSortBackward() {
+
+        Dag<Integer> dag = helper.populateDag();
+        List<Integer> sorted = dag.sort(Direction.BACKWARD);
+        Assertions.assertTrue(dag.getLeaves().contains(sorted.get(0)));
+        helper.assertOrder(dag.inverted(), sorted);
+        helper.assertOrder(new InternedDag<>(dag).inverted(), new InternedDag<>(dag).sort(Direction.BACKWARD));
+
+        dag.put(-1, -2);
+        dag.put(-2, -1);
+        Assertions.assertNull(dag.sort(Direction.BACKWARD));
+
+    }
+
     @Test
     public void testCircularDependency() {
 
@@ -69,6 +85,61 @@ public class TestDag {
 
     }
 
+    @RepeatedTest(20)
+    public void testDegreesFollowMutations() {
+
+        HashDag<Integer> dag = (HashDag<Integer>) helper.populateDag();
+        Set<Integer> roots = dag.getRootView();
+        Set<Integer> leaves = dag.getLeafView();
+        Random random = new Random();
+
+        for (int i = 0; i < 200; i++) {
+            int a = random.nextInt(dag.size() + 5);
+            int b = random.nextInt(dag.size() + 5);
+            switch (random.nextInt(6)) {
+                case 0:
+                    dag.remove(a);
+                    break;
+                case 1:
+                    dag.removeEdge(a, b);
+                    break;
+                case 2:
+                    dag.add(a);
+                    break;
+                default:
+                    dag.put(Math.min(a, b), Math.max(a, b));
+            }
+
+            // The views follow the DAG and agree with a full scan
+            for (int node : dag.getNodes()) {
+                Assertions.assertEquals(dag.getIncoming(node).size(), dag.inDegree(node));
+                Assertions.assertEquals(dag.getOutgoing(node).size(), dag.outDegree(node));
+                Assertions.assertEquals(dag.inDegree(node) == 0, roots.contains(node));
+                Assertions.assertEquals(dag.outDegree(node) == 0, leaves.contains(node));
+            }
+            Assertions.assertTrue(dag.containsAll(roots));
+            Assertions.assertTrue(dag.containsAll(leaves));
+            Assertions.assertEquals(roots, dag.getRoots());
+            Assertions.assertEquals(leaves, dag.getLeaves());
+        }
+
+        Assertions.assertEquals(0, dag.inDegree(-1));
+        Assertions.assertEquals(0, dag.outDegree(-1));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> roots.add(-1));
+        // Unlike the views, getRoots and getLeaves return copies the caller owns
+        Set<Integer> copy = dag.getRoots();
+        copy.add(-1);
+        Assertions.assertFalse(dag.getRoots().contains(-1));
+        Dag<Integer> clone = dag.clone();
+        Assertions.assertEquals(roots, clone.getRoots());
+        Assertions.assertEquals(leaves, clone.getLeaves());
+        Assertions.assertEquals(leaves, clone.inverted().getRoots());
+        dag.clear();
+        Assertions.assertTrue(roots.isEmpty());
+        Assertions.assertTrue(leaves.isEmpty());
+
+    }
+
     @Test
     public void testAncestry() {
 
@@ -152,4 +223,657 @@ public class TestDag {
 
     }
 
+    @Test
+    public void testUnion() {
+
+        Dag<Integer> dag = helper.populateDagSimple();
+        Dag<Integer> other = new HashDag<>();
+        other.put(9, 10);
+        other.put(1, 5);
+        other.add(11);
+
+        Dag<Integer> union = dag.union(other);
+        Assertions.assertTrue(union.containsAll(dag));
+        Assertions.assertTrue(union.containsAll(other));
+        Assertions.assertTrue(union.containsEdge(9, 10));
+        Assertions.assertTrue(union.containsEdge(7, 9));
+        Assertions.assertEquals(dag.size() + 2, union.size());
+
+        // The operands are left untouched, and the smaller operand may come first
+        Assertions.assertFalse(dag.contains(10));
+        Assertions.assertEquals(union, other.union(dag));
+
+        // Merging in place gives the same result
+        Assertions.assertTrue(dag.putAll(other));
+        Assertions.assertFalse(dag.putAll(other));
+        Assertions.assertEquals(union, dag);
+
+    }
+
+    @Test
+    public void testIntersection() {
+
+        Dag<Integer> dag = helper.populateDagSimple();
+        Dag<Integer> other = new HashDag<>();
+        other.put(1, 5);
+        other.put(2, 6);
+        other.put(6, 5);
+        other.add(7);
+        other.add(100);
+
+        Dag<Integer> intersection = dag.intersection(other);
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(1, 2, 5, 6, 7)), intersection.getNodes());
+        Assertions.assertTrue(intersection.containsEdge(1, 5));
+        Assertions.assertTrue(intersection.containsEdge(2, 6));
+        Assertions.assertFalse(intersection.containsEdge(2, 5));
+        Assertions.assertFalse(intersection.containsEdge(6, 5));
+        Assertions.assertEquals(intersection, other.intersection(dag));
+
+        // Intersecting in place gives the same result
+        Assertions.assertTrue(dag.retainEdges(other));
+        Assertions.assertFalse(dag.retainEdges(other));
+        Assertions.assertEquals(intersection, dag);
+
+    }
+
+    @Test
+    public void testDifference() {
+
+        Dag<Integer> dag = helper.populateDagSimple();
+        Dag<Integer> other = new HashDag<>();
+        other.put(1, 5);
+        other.put(7, 9);
+        other.put(9, 10);
+
+        Dag<Integer> difference = dag.difference(other);
+        Assertions.assertEquals(dag.getNodes(), difference.getNodes());
+        Assertions.assertFalse(difference.containsEdge(1, 5));
+        Assertions.assertFalse(difference.containsEdge(7, 9));
+        Assertions.assertTrue(difference.containsEdge(7, 8));
+        Assertions.assertFalse(difference.contains(10));
+
+        // Removing in place gives the same result, whichever operand is smaller
+        Dag<Integer> copy = dag.clone();
+        Assertions.assertTrue(dag.removeEdges(other));
+        Assertions.assertFalse(dag.removeEdges(other));
+        Assertions.assertEquals(difference, dag);
+        Assertions.assertTrue(copy.removeEdges(copy.clone()));
+        Assertions.assertEquals(copy.size(), copy.getLeaves().size());
+
+    }
+
+    @Test
+    public void testRandomSetOperations() {
+
+        Dag<Integer> dag = helper.populateDag();
+        Dag<Integer> other = helper.populateDag();
+
+        Dag<Integer> union = dag.union(other);
+        Dag<Integer> intersection = dag.intersection(other);
+        Dag<Integer> difference = dag.difference(other);
+
+        for (Integer source : union) {
+            for (Integer target : union.getOutgoing(source)) {
+                boolean inDag = dag.containsEdge(source, target);
+                boolean inOther = other.containsEdge(source, target);
+                Assertions.assertTrue(inDag || inOther);
+                Assertions.assertEquals(inDag && inOther, intersection.containsEdge(source, target));
+                Assertions.assertEquals(inDag && !inOther, difference.containsEdge(source, target));
+            }
+        }
+
+    }
+
+    @Test
+    public void testSubDag() {
+
+        Dag<Integer> dag = helper.populateDagSimple();
+
+        Dag<Integer> sub = dag.subDag(new HashSet<>(Arrays.asList(2, 5, 6, 8, 100)));
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(2, 5, 6, 8)), sub.getNodes());
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(5, 6)), sub.getOutgoing(2));
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(5, 6)), sub.getIncoming(8));
+        Assertions.assertEquals(new HashSet<>(Collections.singletonList(2)), sub.getRoots());
+        Assertions.assertFalse(sub.containsEdge(1, 5));
+        Assertions.assertTrue(sub.getOutgoing(1).isEmpty());
+        helper.assertOrder(sub, sub.sort());
+
+        // Views of views still only see their own nodes
+        Dag<Integer> subSub = sub.subDag(new HashSet<>(Arrays.asList(2, 6, 7)));
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(2, 6)), subSub.getNodes());
+        Assertions.assertTrue(subSub.containsEdge(2, 6));
+
+        // Views are read-only, but can be copied
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> sub.put(2, 8));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> sub.remove(2));
+        Dag<Integer> copy = sub.clone();
+        Assertions.assertTrue(copy.put(2, 8));
+        Assertions.assertEquals(sub.getNodes(), copy.getNodes());
+
+        // Views fail fast once the backing DAG changes
+        dag.put(2, 8);
+        Assertions.assertThrows(ConcurrentModificationException.class, sub::size);
+
+    }
+
+    @Test
+    public void testClosureSubDags() {
+
+        Dag<Integer> dag = helper.populateDag();
+        int node = helper.getMiddleNode(dag);
+
+        Dag<Integer> descendants = dag.descendantSubDag(node);
+        Set<Integer> expected = dag.getDescendants(node);
+        expected.add(node);
+        Assertions.assertEquals(expected, descendants.getNodes());
+        Assertions.assertEquals(Collections.singleton(node), descendants.getRoots());
+        helper.assertOrder(descendants, descendants.sort());
+
+        Dag<Integer> ancestors = dag.ancestorSubDag(node);
+        expected = dag.getAncestors(node);
+        expected.add(node);
+        Assertions.assertEquals(expected, ancestors.getNodes());
+        Assertions.assertEquals(Collections.singleton(node), ancestors.getLeaves());
+
+        Assertions.assertTrue(dag.descendantSubDag(-1).isEmpty());
+
+    }
+
+    @Test
+    public void testSearchDepth() {
+
+        Dag<Integer> dag = helper.populateDagSimple();
+
+        for (SearchOrder order : SearchOrder.values()) {
+            Map<Integer, Integer> depths = new HashMap<>();
+            Assertions.assertFalse(dag.search(2, Direction.FORWARD, order, 1, (node, depth) -> {
+                Assertions.assertNull(depths.put(node, depth));
+                return VisitResult.CONTINUE;
+            }));
+            Map<Integer, Integer> expected = new HashMap<>();
+            expected.put(2, 0);
+            expected.put(5, 1);
+            expected.put(6, 1);
+            Assertions.assertEquals(expected, depths);
+
+            depths.clear();
+            dag.search(8, Direction.BACKWARD, order, Integer.MAX_VALUE, (node, depth) -> {
+                depths.put(node, depth);
+                return VisitResult.CONTINUE;
+            });
+            Set<Integer> ancestors = dag.getAncestors(8);
+            ancestors.add(8);
+            Assertions.assertEquals(ancestors, depths.keySet());
+            Assertions.assertEquals(2, (int) depths.get(4));
+        }
+
+        Assertions.assertFalse(dag.search(100, Direction.FORWARD, SearchOrder.BREADTH_FIRST, 5, (node, depth) -> {
+            throw new AssertionError();
+        }));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> dag.search(1, Direction.FORWARD, SearchOrder.DEPTH_FIRST, -1, (node, depth) -> VisitResult.CONTINUE));
+
+    }
+
+    @Test
+    public void testSearchDepthFirstFindsShortestPath() {
+
+        // The long way to 3 is followed first, but 4 is still within two edges of 0 through the short way
+        Dag<Integer> dag = new HashDag<>();
+        dag.put(0, 1);
+        dag.put(1, 2);
+        dag.put(2, 3);
+        dag.put(0, 3);
+        dag.put(3, 4);
+
+        Set<Integer> visited = new HashSet<>();
+        dag.search(0, Direction.FORWARD, SearchOrder.DEPTH_FIRST, 2, (node, depth) -> {
+            visited.add(node);
+            return VisitResult.CONTINUE;
+        });
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(0, 1, 2, 3, 4)), visited);
+
+    }
+
+    @Test
+    public void testSearchPruneAndTerminate() {
+
+        Dag<Integer> dag = helper.populateDag();
+        int node = helper.getMiddleNode(dag);
+
+        for (SearchOrder order : SearchOrder.values()) {
+            // Stop at the first leaf found
+            List<Integer> found = new ArrayList<>();
+            Assertions.assertTrue(dag.search(node, Direction.FORWARD, order, Integer.MAX_VALUE, (n, depth) -> {
+                if (dag.getOutgoing(n).isEmpty()) {
+                    found.add(n);
+                    return VisitResult.TERMINATE;
+                }
+                return VisitResult.CONTINUE;
+            }));
+            Assertions.assertEquals(1, found.size());
+            Assertions.assertTrue(dag.getDescendants(node).contains(found.get(0)));
+
+            // Skipping everything past the start only visits the start
+            List<Integer> visited = new ArrayList<>();
+            dag.search(node, Direction.BACKWARD, order, Integer.MAX_VALUE, (n, depth) -> {
+                visited.add(n);
+                return VisitResult.SKIP_SUBTREE;
+            });
+            Assertions.assertEquals(Collections.singletonList(node), visited);
+        }
+
+    }
+
+    @Test
+    public void testDominatorTree() {
+
+        Dag<Integer> dag = helper.populateDagSimple();
+        DominatorTree<Integer> tree = dag.getDominatorTree();
+
+        // 1 and 2 both lead to 5, so neither gates it
+        Assertions.assertNull(tree.getImmediateDominator(5));
+        Assertions.assertEquals(Integer.valueOf(4), tree.getImmediateDominator(7));
+        Assertions.assertEquals(Integer.valueOf(7), tree.getImmediateDominator(9));
+        Assertions.assertTrue(tree.dominates(4, 9));
+        Assertions.assertTrue(tree.dominates(9, 9));
+        Assertions.assertFalse(tree.dominates(4, 8));
+        Assertions.assertFalse(tree.dominates(9, 4));
+        Assertions.assertEquals(Integer.valueOf(7), tree.getLowestCommonDominator(7, 9));
+        Assertions.assertEquals(Integer.valueOf(4), tree.getLowestCommonDominator(9, 4));
+        Assertions.assertNull(tree.getLowestCommonDominator(6, 9));
+        Assertions.assertEquals(Integer.valueOf(7), tree.getLowestCommonDominator(Collections.singleton(7)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> tree.dominates(-1, 9));
+
+        // The tree is reused until the DAG changes
+        Assertions.assertSame(tree, dag.getDominatorTree());
+        dag.put(0, 4);
+        dag.put(0, 1);
+        dag.put(0, 2);
+        dag.put(0, 3);
+        Assertions.assertThrows(ConcurrentModificationException.class, () -> tree.dominates(4, 9));
+        DominatorTree<Integer> updated = dag.getDominatorTree();
+        Assertions.assertNotSame(tree, updated);
+        Assertions.assertEquals(Integer.valueOf(0), updated.getImmediateDominator(5));
+        Assertions.assertEquals(Integer.valueOf(0), updated.getLowestCommonDominator(6, 9));
+
+    }
+
+    @Test
+    public void testLowestCommonAncestors() {
+
+        Dag<Integer> dag = helper.populateDagSimple();
+
+        Assertions.assertEquals(Collections.singleton(7), dag.getLowestCommonAncestors(8, 9));
+        Assertions.assertEquals(Collections.singleton(6), dag.getLowestCommonAncestors(8, 6));
+        Assertions.assertEquals(Collections.singleton(8), dag.getLowestCommonAncestors(8, 8));
+        Assertions.assertTrue(dag.getLowestCommonAncestors(1, 3).isEmpty());
+        Assertions.assertTrue(dag.getLowestCommonAncestors(1, -1).isEmpty());
+
+        // 2 is the merge-base of 5 and 6, but it doesn't gate either of them
+        Assertions.assertEquals(Collections.singleton(2), dag.getLowestCommonAncestors(5, 6));
+        Assertions.assertNull(dag.getDominatorTree().getLowestCommonDominator(5, 6));
+
+        // Neither of two merge-bases is an ancestor of the other
+        dag.put(1, 6);
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(1, 2)), dag.getLowestCommonAncestors(5, 6));
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(1, 2)),
+                new InternedDag<>(dag).getLowestCommonAncestors(5, 6));
+
+        dag.put(8, 1);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dag.getLowestCommonAncestors(5, 6));
+
+    }
+
+    @RepeatedTest(20)
+    public void testRandomDominatorTree() {
+
+        // Keep the DAG sparse so that most nodes have a dominator
+        Random random = new Random();
+        Dag<Integer> dag = new HashDag<>();
+        for (int i = 0; i < 100; i++) {
+            dag.add(i);
+            if (i > 2 && random.nextInt(10) > 0) {
+                dag.put(random.nextInt(i), i);
+                if (random.nextInt(4) == 0) {
+                    dag.put(random.nextInt(i), i);
+                }
+            }
+        }
+        DominatorTree<Integer> tree = dag.getDominatorTree();
+
+        for (int dominator = 0; dominator < 100; dominator++) {
+            // Everything that can't be reached without going through a node is dominated by it
+            Set<Integer> reachable = new HashSet<>();
+            Deque<Integer> queue = new ArrayDeque<>(dag.getRoots());
+            queue.remove(dominator);
+            while (!queue.isEmpty()) {
+                int node = queue.poll();
+                if (reachable.add(node)) {
+                    for (int target : dag.getOutgoing(node)) {
+                        if (target != dominator) {
+                            queue.add(target);
+                        }
+                    }
+                }
+            }
+            for (int node = 0; node < 100; node++) {
+                boolean expected = node == dominator || !reachable.contains(node);
+                Assertions.assertEquals(expected, tree.dominates(dominator, node));
+            }
+        }
+
+        for (int i = 0; i < 100; i++) {
+            int a = random.nextInt(100);
+            int b = random.nextInt(100);
+            Integer common = tree.getLowestCommonDominator(a, b);
+            if (common != null) {
+                Assertions.assertTrue(tree.dominates(common, a));
+                Assertions.assertTrue(tree.dominates(common, b));
+                // Nothing between the common dominator and the nodes dominates both
+                for (int node = 0; node < 100; node++) {
+                    if (node != common && tree.dominates(common, node)) {
+                        Assertions.assertFalse(tree.dominates(node, a) && tree.dominates(node, b));
+                    }
+                }
+            }
+        }
+
+    }
+
+    @Test
+    public void testComponents() {
+
+        Dag<Integer> dag = helper.populateDag();
+        List<Dag<Integer>> components = dag.components();
+
+        // Every node is in exactly one component
+        Set<Integer> seen = new HashSet<>();
+        for (Dag<Integer> component : components) {
+            for (int node : component.getNodes()) {
+                Assertions.assertTrue(seen.add(node));
+            }
+        }
+        Assertions.assertEquals(dag.getNodes(), seen);
+
+        for (Dag<Integer> component : components) {
+            // No edge leaves a component
+            for (int node : component.getNodes()) {
+                Assertions.assertEquals(dag.getOutgoing(node), component.getOutgoing(node));
+                Assertions.assertEquals(dag.getIncoming(node), component.getIncoming(node));
+            }
+
+            // Every node of a component can be reached from any other when edge directions are ignored
+            Set<Integer> reached = new HashSet<>();
+            Deque<Integer> queue = new ArrayDeque<>();
+            queue.add(component.iterator().next());
+            while (!queue.isEmpty()) {
+                int node = queue.poll();
+                if (reached.add(node)) {
+                    queue.addAll(dag.getOutgoing(node));
+                    queue.addAll(dag.getIncoming(node));
+                }
+            }
+            Assertions.assertEquals(component.getNodes(), reached);
+            helper.assertOrder(component, component.sort());
+        }
+
+        Dag<Integer> simple = helper.populateDagSimple();
+        simple.add(0);
+        Assertions.assertEquals(2, simple.components().size());
+        Assertions.assertTrue(new HashDag<Integer>().components().isEmpty());
+
+    }
+
+    /**
+     * Finds every node reachable from a node by a path of at least one edge, without checking for cycles
+     */
+    private Set<Integer> reachable(Dag<Integer> dag, int node) {
+        Set<Integer> reached = new HashSet<>();
+        Deque<Integer> queue = new ArrayDeque<>(dag.getOutgoing(node));
+        while (!queue.isEmpty()) {
+            int next = queue.poll();
+            if (reached.add(next)) {
+                queue.addAll(dag.getOutgoing(next));
+            }
+        }
+        return reached;
+    }
+
+    @RepeatedTest(20)
+    public void testStronglyConnectedComponents() {
+
+        // A sparse random graph, which has a few cycles of various lengths
+        Dag<Integer> dag = new HashDag<>();
+        Random random = new Random();
+        for (int i = 0; i < 300; i++) {
+            dag.add(i);
+            dag.put(random.nextInt(300), random.nextInt(300));
+        }
+
+        // Two nodes share a component exactly when each can reach the other
+        List<Set<Integer>> components = dag.stronglyConnectedComponents();
+        Map<Integer, Integer> componentOf = new HashMap<>();
+        for (int i = 0; i < components.size(); i++) {
+            for (int node : components.get(i)) {
+                Assertions.assertNull(componentOf.put(node, i));
+            }
+        }
+        Assertions.assertEquals(dag.getNodes(), componentOf.keySet());
+        Map<Integer, Set<Integer>> reached = new HashMap<>();
+        for (int node : dag.getNodes()) {
+            reached.put(node, reachable(dag, node));
+        }
+        for (int node : dag.getNodes()) {
+            for (int other : dag.getNodes()) {
+                boolean mutual = node == other
+                        || reached.get(node).contains(other) && reached.get(other).contains(node);
+                Assertions.assertEquals(mutual, componentOf.get(node).equals(componentOf.get(other)));
+            }
+            for (int target : dag.getOutgoing(node)) {
+                Assertions.assertTrue(componentOf.get(node) <= componentOf.get(target));
+            }
+        }
+
+        // The condensation has an edge wherever two components are joined
+        Dag<Set<Integer>> condensed = dag.condense();
+        Assertions.assertEquals(new HashSet<>(components), condensed.getNodes());
+        Assertions.assertNotNull(condensed.sort());
+        for (int node : dag.getNodes()) {
+            for (int target : dag.getOutgoing(node)) {
+                Set<Integer> from = components.get(componentOf.get(node));
+                Set<Integer> to = components.get(componentOf.get(target));
+                Assertions.assertEquals(from != to, condensed.containsEdge(from, to));
+            }
+        }
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> components.get(0).add(-1));
+
+    }
+
+    @Test
+    public void testFindCycle() {
+
+        Dag<Integer> dag = helper.populateDag();
+        Assertions.assertTrue(dag.findCycle().isEmpty());
+        Assertions.assertEquals(dag.size(), dag.stronglyConnectedComponents().size());
+        Assertions.assertEquals(dag.size(), dag.condense().size());
+
+        // Either loop may be reported, in order
+        dag.put(1000, 1001);
+        dag.put(1001, 1002);
+        dag.put(1002, 1000);
+        dag.put(1001, 1003);
+        dag.put(1003, 1004);
+        dag.put(1004, 1000);
+        List<Integer> cycle = dag.findCycle();
+        Assertions.assertTrue(cycle.size() == 3 || cycle.size() == 4);
+        for (int i = 0; i < cycle.size(); i++) {
+            Assertions.assertTrue(dag.containsEdge(cycle.get(i), cycle.get((i + 1) % cycle.size())));
+        }
+
+        IllegalArgumentException e = Assertions.assertThrows(IllegalArgumentException.class,
+                () -> dag.getDescendants(0));
+        StringBuilder expected = new StringBuilder("DAG contains a circular dependency: ");
+        for (int node : cycle) {
+            expected.append(node).append(" -> ");
+        }
+        Assertions.assertEquals(expected.append(cycle.get(0)).toString(), e.getMessage());
+
+        Dag<Integer> loop = new HashDag<>();
+        loop.put(7, 7);
+        Assertions.assertEquals(Collections.singletonList(7), loop.findCycle());
+        Assertions.assertTrue(loop.condense().getOutgoing(Collections.singleton(7)).isEmpty());
+
+    }
+
+    @Test
+    public void testDefaultMethods() {
+
+        // Only the abstract methods are forwarded, so everything else runs the defaults in Dag
+        Dag<Integer> expected = helper.populateDag();
+        Dag<Integer> dag = new MinimalDag<>(expected.clone());
+        int middle = helper.getMiddleNode(expected);
+
+        for (int node : expected.getNodes()) {
+            Assertions.assertEquals(expected.inDegree(node), dag.inDegree(node));
+            Assertions.assertEquals(expected.outDegree(node), dag.outDegree(node));
+            for (int target : expected.getOutgoing(node)) {
+                Assertions.assertTrue(dag.containsEdge(node, target));
+            }
+        }
+        Assertions.assertEquals(0, dag.inDegree(-1));
+        Assertions.assertFalse(dag.containsEdge(-1, middle));
+        helper.assertOrder(expected.inverted(), dag.sort(Direction.BACKWARD));
+
+        Assertions.assertEquals(expected.descendantSubDag(middle).toMap(), dag.descendantSubDag(middle).toMap());
+        Assertions.assertEquals(expected.ancestorSubDag(middle).toMap(), dag.ancestorSubDag(middle).toMap());
+        Assertions.assertEquals(expected.components().size(), dag.components().size());
+        Assertions.assertEquals(expected.stronglyConnectedComponents().size(),
+                dag.stronglyConnectedComponents().size());
+        Assertions.assertEquals(expected.condense().size(), dag.condense().size());
+        Assertions.assertTrue(dag.findCycle().isEmpty());
+        Assertions.assertEquals(expected.getLowestCommonAncestors(middle, 0), dag.getLowestCommonAncestors(middle, 0));
+        Assertions.assertEquals(expected.getDominatorTree().getImmediateDominator(middle),
+                dag.getDominatorTree().getImmediateDominator(middle));
+        Set<Integer> visited = new HashSet<>();
+        dag.search(middle, Direction.FORWARD, SearchOrder.BREADTH_FIRST, Integer.MAX_VALUE, (node, depth) -> {
+            visited.add(node);
+            return VisitResult.CONTINUE;
+        });
+        Assertions.assertEquals(expected.descendantSubDag(middle).getNodes(), visited);
+
+        Dag<Integer> other = helper.populateDag();
+        Assertions.assertEquals(expected.difference(other).toMap(), dag.difference(other).toMap());
+        Assertions.assertEquals(expected.removeEdges(other), dag.removeEdges(other));
+        Assertions.assertEquals(expected.toMap(), dag.toMap());
+        Assertions.assertEquals(expected.putAll(other), dag.putAll(other));
+        Assertions.assertEquals(expected.toMap(), dag.toMap());
+        Assertions.assertEquals(expected.retainEdges(other), dag.retainEdges(other));
+        Assertions.assertEquals(expected.toMap(), dag.toMap());
+
+    }
+
+    /**
+     * A DAG that only implements the methods of {@link Dag} that have no default, by forwarding them to another DAG
+     */
+    private static class MinimalDag<E> extends ForwardingCollection<E> implements Dag<E> {
+
+        private final Dag<E> dag;
+
+        MinimalDag(Dag<E> dag) {
+            this.dag = dag;
+        }
+
+        @Override
+        protected Collection<E> delegate() {
+            return dag;
+        }
+
+        @Override
+        public boolean put(E source, E target) {
+            return dag.put(source, target);
+        }
+
+        @Override
+        public boolean putAll(E source, Collection<E> targets) {
+            return dag.putAll(source, targets);
+        }
+
+        @Override
+        public boolean removeEdge(E source, E target) {
+            return dag.removeEdge(source, target);
+        }
+
+        @Override
+        public List<E> sort() {
+            return dag.sort();
+        }
+
+        @Override
+        public Set<E> getRoots() {
+            return dag.getRoots();
+        }
+
+        @Override
+        public Set<E> getLeaves() {
+            return dag.getLeaves();
+        }
+
+        @Override
+        public Set<E> getIncoming(E node) {
+            return dag.getIncoming(node);
+        }
+
+        @Override
+        public Set<E> getOutgoing(E node) {
+            return dag.getOutgoing(node);
+        }
+
+        @Override
+        public Set<E> getAncestors(E node) {
+            return dag.getAncestors(node);
+        }
+
+        @Override
+        public Set<E> getDescendants(E node) {
+            return dag.getDescendants(node);
+        }
+
+        @Override
+        public Set<E> getFamily(E node) {
+            return dag.getFamily(node);
+        }
+
+        @Override
+        public Set<E> getNodes() {
+            return dag.getNodes();
+        }
+
+        @Override
+        public Dag<E> inverted() {
+            return new MinimalDag<>(dag.inverted());
+        }
+
+        @Override
+        public Dag<E> union(Dag<E> other) {
+            return new MinimalDag<>(dag.union(other));
+        }
+
+        @Override
+        public Dag<E> intersection(Dag<E> other) {
+            return new MinimalDag<>(dag.intersection(other));
+        }
+
+        @Override
+        public Map<E, Collection<E>> toMap() {
+            return dag.toMap();
+        }
+
+        @Override
+        public Dag<E> clone() {
+            return new MinimalDag<>(dag.clone());
+        }
+
+    }
+
 }
@@ -0,0 +1,101 @@
+package dev.alexjs.dag;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Timeout(2)
+public class TestDagBuilder {
+
+    private static TestingHelper helper;
+
+    @BeforeAll
+    public static void init() {
+        helper = new TestingHelper();
+    }
+
+    @Test
+    public void testBuildMatchesPut() {
+
+        Dag<Integer> dag = helper.populateDag();
+
+        DagBuilder<Integer> builder = new DagBuilder<>(dag.size(), dag.size() * 2);
+        builder.putAll(dag.toMap());
+        HashDag<Integer> built = builder.build();
+
+        Assertions.assertEquals(dag, built);
+        Assertions.assertEquals(dag.hashCode(), built.hashCode());
+        Assertions.assertEquals(dag.getRoots(), built.getRoots());
+        Assertions.assertEquals(dag.getLeaves(), built.getLeaves());
+        helper.assertOrder(built, built.sort());
+
+    }
+
+    @Test
+    public void testBulkInputs() {
+
+        List<Edge<Integer>> edges = new ArrayList<>();
+        edges.add(Edge.of(1, 2));
+        edges.add(Edge.of(2, 3));
+
+        HashDag<Integer> dag = new DagBuilder<Integer>()
+                .putAll(new Integer[]{0, 0, 0}, new Integer[]{1, 1, 4})
+                .putAll(edges)
+                .putAll(Stream.of(Edge.of(3, 5), Edge.of(4, 5)))
+                .putAll(6, Collections.emptySet())
+                .addAll(Arrays.asList(7, 8))
+                .add(null)
+                .build();
+
+        Assertions.assertEquals(10, dag.size());
+        Assertions.assertTrue(dag.containsEdge(0, 1));
+        Assertions.assertTrue(dag.containsEdge(0, 4));
+        Assertions.assertTrue(dag.containsEdge(2, 3));
+        Assertions.assertTrue(dag.containsEdge(3, 5));
+        Assertions.assertTrue(dag.contains(6));
+        Assertions.assertTrue(dag.contains(null));
+        Assertions.assertEquals(2, dag.getOutgoing(0).size());
+
+        // The built DAG is mutable like any other
+        Assertions.assertTrue(dag.put(5, 6));
+        Assertions.assertTrue(dag.containsEdge(5, 6));
+
+    }
+
+    @Test
+    public void testCounts() {
+
+        DagBuilder<String> builder = new DagBuilder<>(4, 4);
+        builder.put("a", "b").put("a", "b").put("b", "c");
+
+        Assertions.assertEquals(3, builder.nodeCount());
+        Assertions.assertEquals(3, builder.edgeCount());
+        Assertions.assertEquals(1, builder.build().getOutgoing("a").size());
+
+    }
+
+    @Test
+    public void testCircularDependency() {
+
+        DagBuilder<Integer> builder = new DagBuilder<>();
+        builder.put(0, 1).put(1, 2).put(2, 3);
+        Assertions.assertDoesNotThrow(builder::build);
+
+        builder.put(3, 1);
+        Assertions.assertThrows(IllegalArgumentException.class, builder::build);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new DagBuilder<Integer>().put(0, 0).build());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new DagBuilder<Integer>(-1, 0));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new DagBuilder<Integer>().putAll(new Integer[]{0}, new Integer[]{1, 2}));
+
+    }
+
+}
@@ -128,4 +128,23 @@ public class TestDagCollection {
 
     }
 
+    @Test
+    public void testHashCodeTracksMutations() {
+
+        Dag<Integer> dag = helper.populateDag();
+        int node = helper.getMiddleNode(dag);
+
+        dag.put(node, node);
+        dag.put(null, node);
+        dag.removeEdge(node, node + 1);
+        dag.remove(node);
+        dag.add(-1);
+        Assertions.assertEquals(new HashDag<>(dag.toMap()).hashCode(), dag.hashCode());
+        Assertions.assertEquals(dag.clone().hashCode(), dag.hashCode());
+
+        dag.clear();
+        Assertions.assertEquals(new HashDag<Integer>().hashCode(), dag.hashCode());
+
+    }
+
 }
@@ -0,0 +1,137 @@
+package dev.alexjs.dag;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+@Timeout(2)
+public class TestDagDelta {
+
+    private static TestingHelper helper;
+
+    @BeforeAll
+    public static void init() {
+        helper = new TestingHelper();
+    }
+
+    /**
+     * Makes a copy of a DAG with some nodes and edges added and removed
+     */
+    private HashDag<Integer> mutate(Dag<Integer> dag) {
+        HashDag<Integer> next = (HashDag<Integer>) dag.clone();
+        Random random = new Random();
+        for (int i = 0; i < 50; i++) {
+            int a = random.nextInt(dag.size() + 20);
+            int b = random.nextInt(dag.size() + 20);
+            switch (random.nextInt(4)) {
+                case 0:
+                    next.remove(a);
+                    break;
+                case 1:
+                    next.removeEdge(a, b);
+                    break;
+                case 2:
+                    next.add(a);
+                    break;
+                default:
+                    next.put(Math.min(a, b), Math.max(a, b));
+            }
+        }
+        return next;
+    }
+
+    @RepeatedTest(20)
+    public void testDiffAndApply() {
+
+        Dag<Integer> from = helper.populateDag();
+        HashDag<Integer> to = mutate(from);
+
+        DagDelta<Integer> delta = DagDelta.diff(from, to);
+        for (Edge<Integer> edge : delta.getRemovedEdges()) {
+            Assertions.assertTrue(to.contains(edge.getSource()));
+            Assertions.assertTrue(to.contains(edge.getTarget()));
+        }
+        HashDag<Integer> patched = (HashDag<Integer>) from.clone();
+        patched.apply(delta);
+        Assertions.assertEquals(to, patched);
+        Assertions.assertEquals(to.hashCode(), patched.hashCode());
+
+        // Other implementations are compared the same way
+        DagDelta<Integer> fromBits = DagDelta.diff(new BitSetDag<>(from), new InternedDag<>(to));
+        patched = (HashDag<Integer>) from.clone();
+        patched.apply(fromBits);
+        Assertions.assertEquals(to, patched);
+
+        Assertions.assertTrue(DagDelta.diff(from, from.clone()).isEmpty());
+
+    }
+
+    @Test
+    public void testApplyChecksTheDelta() {
+
+        HashDag<Integer> from = new HashDag<>();
+        from.put(1, 2);
+        from.put(2, 3);
+        HashDag<Integer> to = new HashDag<>();
+        to.put(1, 3);
+        to.put(3, 4);
+        to.add(2);
+
+        DagDelta<Integer> delta = DagDelta.diff(from, to);
+        Assertions.assertEquals(Arrays.asList(4), delta.getAddedNodes());
+        Assertions.assertTrue(delta.getRemovedNodes().isEmpty());
+        Assertions.assertEquals(2, delta.getRemovedEdges().size());
+        Assertions.assertEquals(2, delta.getAddedEdges().size());
+
+        from.apply(delta);
+        Assertions.assertEquals(to, from);
+
+        // Applying it again doesn't fit, and changes nothing
+        Assertions.assertThrows(IllegalArgumentException.class, () -> from.apply(delta));
+        Assertions.assertEquals(to, from);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> from.apply(DagDelta.diff(new HashDag<>(), to)));
+        Assertions.assertEquals(to, from);
+
+    }
+
+    @RepeatedTest(5)
+    public void testBinaryRoundTrip() throws IOException {
+
+        Dag<Integer> from = helper.populateDag();
+        HashDag<Integer> to = mutate(from);
+        DagDelta<Integer> delta = DagDelta.diff(from, to);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        delta.write(out, String::valueOf);
+        out.write(42);
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        DagDelta<Integer> read = DagDelta.read(in, Integer::valueOf);
+
+        // Nothing past the end of the delta is read
+        Assertions.assertEquals(42, in.read());
+        Assertions.assertEquals(delta.getRemovedNodes(), read.getRemovedNodes());
+        Assertions.assertEquals(delta.getAddedNodes(), read.getAddedNodes());
+        Assertions.assertEquals(delta.getRemovedEdges(), read.getRemovedEdges());
+        Assertions.assertEquals(delta.getAddedEdges(), read.getAddedEdges());
+
+        HashDag<Integer> patched = (HashDag<Integer>) from.clone();
+        patched.apply(read);
+        Assertions.assertEquals(to, patched);
+
+        byte[] bytes = out.toByteArray();
+        Assertions.assertThrows(IOException.class,
+                () -> DagDelta.read(new ByteArrayInputStream(bytes, 0, bytes.length - 2), Integer::valueOf));
+        Assertions.assertThrows(IOException.class,
+                () -> DagDelta.read(new ByteArrayInputStream(bytes, 1, bytes.length - 1), Integer::valueOf));
+
+    }
+
+}
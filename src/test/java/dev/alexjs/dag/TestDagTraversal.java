@@ -2,13 +2,30 @@ package dev.alexjs.dag;
 
 import org.junit.jupiter.api.*;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 @Timeout(2)
 public class TestDagTraversal {
@@ -35,6 +52,25 @@ public class TestDagTraversal {
 
     }
 
+    @RepeatedTest(100)
+    public void testBackwardTraverse() throws InterruptedException {
+
+        Dag<Integer> dag = helper.populateDag();
+        ExecutorService executorService = Executors.newFixedThreadPool(3);
+
+        // Both kinds of bookkeeping follow incoming edges, so every node comes after its outgoing nodes
+        for (Dag<Integer> traversed : Arrays.asList(dag, new InternedDag<>(dag))) {
+            List<Integer> sorted = Collections.synchronizedList(new ArrayList<>());
+            DagTraversalTask<?> task = DagTraversalTask.builder(traversed, sorted::add, executorService)
+                    .direction(Direction.BACKWARD)
+                    .build();
+            Assertions.assertTrue(task.awaitTermination(2, TimeUnit.SECONDS));
+            helper.assertOrder(dag.inverted(), new ArrayList<>(sorted));
+        }
+        executorService.shutdown();
+
+    }
+
     @RepeatedTest(100)
     public void testSingleThreadTraverse() throws InterruptedException {
 
@@ -200,4 +236,540 @@ public class TestDagTraversal {
 
     }
 
+    @Test
+    public void testIteratorFailFast() {
+
+        Dag<Integer> dag = helper.populateDagSimple();
+
+        Iterator<Integer> it = dag.iterator();
+        it.next();
+        dag.put(10, 11);
+        Assertions.assertThrows(ConcurrentModificationException.class, it::next);
+
+        dag.put(8, 1);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dag.forEach(i -> {
+        }));
+
+    }
+
+    @Test
+    public void testTraversalFailFast() throws InterruptedException {
+
+        Dag<Integer> dag = helper.populateDagSimple();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch modified = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+        // The first node waits until the DAG has been modified underneath the traversal
+        DagTraversalTask<?> task = new DagTraversalTask<>(dag, node -> {
+            started.countDown();
+            try {
+                modified.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }, executorService);
+        started.await();
+        dag.put(10, 11);
+        modified.countDown();
+
+        // The traversal fails as soon as that node finishes, instead of hanging until the timeout
+        long start = System.nanoTime();
+        Assertions.assertFalse(task.awaitTermination(1, TimeUnit.SECONDS));
+        Assertions.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+        executorService.shutdown();
+
+    }
+
+    @RepeatedTest(20)
+    public void testParallelStream() {
+
+        Dag<Integer> dag = helper.populateDag();
+
+        Spliterator<Integer> spliterator = dag.spliterator();
+        Assertions.assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED));
+        Assertions.assertEquals(dag.size(), spliterator.getExactSizeIfKnown());
+
+        // Encounter order is still topological
+        List<Integer> sorted = dag.parallelStream().collect(Collectors.toList());
+        helper.assertOrder(dag, sorted);
+
+        List<Integer> visited = Collections.synchronizedList(new LinkedList<>());
+        dag.parallelStream().forEach(visited::add);
+        Assertions.assertEquals(dag.getNodes(), new HashSet<>(visited));
+        Assertions.assertEquals(dag.size(), visited.size());
+
+    }
+
+    @Test
+    public void testSpliteratorSplitsByLevel() {
+
+        Dag<Integer> dag = helper.populateDagSimple();
+
+        Spliterator<Integer> rest = dag.spliterator();
+        Spliterator<Integer> roots = rest.trySplit();
+        Assertions.assertNotNull(roots);
+        Assertions.assertEquals(dag.getRoots().size(), roots.getExactSizeIfKnown());
+        Assertions.assertEquals(dag.size() - dag.getRoots().size(), rest.getExactSizeIfKnown());
+
+        List<Integer> first = new LinkedList<>();
+        roots.forEachRemaining(first::add);
+        Assertions.assertEquals(dag.getRoots(), new HashSet<>(first));
+
+        List<Integer> second = new LinkedList<>();
+        rest.forEachRemaining(second::add);
+        Assertions.assertEquals(Arrays.asList(5, 6, 7, 8, 9), second.stream().sorted().collect(Collectors.toList()));
+
+    }
+
+    @RepeatedTest(50)
+    public void testTraverseSubDag() throws InterruptedException {
+
+        Dag<Integer> dag = helper.populateDag();
+        Dag<Integer> sub = dag.descendantSubDag(helper.getMiddleNode(dag));
+        List<Integer> sorted = Collections.synchronizedList(new LinkedList<>());
+        ExecutorService executorService = Executors.newFixedThreadPool(3);
+
+        DagTraversalTask<?> task = new DagTraversalTask<>(sub, sorted::add, executorService);
+        Assertions.assertTrue(task.awaitTermination(2, TimeUnit.SECONDS));
+        executorService.shutdown();
+
+        helper.assertOrder(sub, new LinkedList<>(sorted));
+
+    }
+
+    @RepeatedTest(20)
+    public void testTraverseManyComponents() throws InterruptedException {
+
+        // Many independent chains, each of which is its own component
+        Dag<Integer> dag = new HashDag<>();
+        for (int chain = 0; chain < 200; chain++) {
+            for (int i = 0; i < 10; i++) {
+                dag.put(chain * 100 + i, chain * 100 + i + 1);
+            }
+        }
+        Assertions.assertEquals(200, dag.components().size());
+
+        List<Integer> sorted = Collections.synchronizedList(new LinkedList<>());
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+        DagTraversalTask<?> task = new DagTraversalTask<>(dag, sorted::add, executorService);
+        Assertions.assertTrue(task.awaitTermination(2, TimeUnit.SECONDS));
+        executorService.shutdown();
+
+        helper.assertOrder(dag, new LinkedList<>(sorted));
+
+    }
+
+    @RepeatedTest(5)
+    public void testTraverseCondensation() throws InterruptedException {
+
+        // Tie some nodes into cycles, which the condensation runs as single nodes
+        Dag<Integer> dag = helper.populateDag();
+        int middle = helper.getMiddleNode(dag);
+        for (int descendant : dag.getDescendants(middle)) {
+            if (descendant % 10 == 0) {
+                dag.put(descendant, middle);
+            }
+        }
+        Assertions.assertNull(dag.sort());
+
+        List<Integer> visited = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        DagTraversalTask<?> task = new DagTraversalTask<>(dag.condense(), visited::addAll, executorService);
+        Assertions.assertTrue(task.awaitTermination(2, TimeUnit.SECONDS));
+        executorService.shutdown();
+
+        // Nodes in different components are visited in order
+        Assertions.assertEquals(dag.size(), visited.size());
+        Assertions.assertEquals(dag.getNodes(), new HashSet<>(visited));
+        Map<Integer, Integer> position = new HashMap<>();
+        for (int i = 0; i < visited.size(); i++) {
+            position.put(visited.get(i), i);
+        }
+        for (Set<Integer> component : dag.stronglyConnectedComponents()) {
+            for (int node : component) {
+                for (int target : dag.getOutgoing(node)) {
+                    Assertions.assertTrue(component.contains(target) || position.get(node) < position.get(target));
+                }
+            }
+        }
+
+    }
+
+    @Test
+    public void testResumeFromJournal() throws Exception {
+
+        Dag<Integer> dag = helper.populateDag();
+        int failing = helper.getMiddleNode(dag);
+        Path path = Files.createTempFile("dag", ".journal");
+
+        try {
+            // The first run fails partway through
+            List<Integer> first = Collections.synchronizedList(new ArrayList<>());
+            try (TraversalJournal<Integer> journal = TraversalJournal.open(path, String::valueOf)) {
+                ExecutorService executorService = Executors.newFixedThreadPool(3);
+                DagTraversalTask<?> task = DagTraversalTask.builder(dag, node -> {
+                    if (node == failing) {
+                        throw new RuntimeException();
+                    }
+                    first.add(node);
+                }, executorService).journal(journal).build();
+                Assertions.assertFalse(task.awaitTermination(2, TimeUnit.SECONDS));
+                executorService.shutdown();
+                Assertions.assertTrue(executorService.awaitTermination(2, TimeUnit.SECONDS));
+            }
+            Assertions.assertFalse(first.contains(failing));
+            for (int descendant : dag.getDescendants(failing)) {
+                Assertions.assertFalse(first.contains(descendant));
+            }
+
+            // The second run only visits what the first didn't finish
+            List<Integer> second = Collections.synchronizedList(new ArrayList<>());
+            try (TraversalJournal<Integer> journal = TraversalJournal.open(path, String::valueOf)) {
+                Assertions.assertEquals(first.size(), journal.size());
+                ExecutorService executorService = Executors.newFixedThreadPool(3);
+                DagTraversalTask<?> task = DagTraversalTask.builder(dag, second::add, executorService)
+                        .journal(journal)
+                        .build();
+                Assertions.assertTrue(task.awaitTermination(2, TimeUnit.SECONDS));
+                executorService.shutdown();
+                Assertions.assertEquals(dag.size(), journal.size());
+            }
+
+            List<Integer> combined = new ArrayList<>(first);
+            combined.addAll(second);
+            helper.assertOrder(dag, combined);
+
+            // A third run has nothing left to do
+            try (TraversalJournal<Integer> journal = TraversalJournal.open(path, String::valueOf)) {
+                ExecutorService executorService = Executors.newSingleThreadExecutor();
+                DagTraversalTask<?> task = DagTraversalTask.builder(dag, node -> Assertions.fail(), executorService)
+                        .journal(journal)
+                        .build();
+                Assertions.assertTrue(task.awaitTermination(0, TimeUnit.SECONDS));
+                executorService.shutdown();
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+
+    }
+
+    @RepeatedTest(20)
+    public void testResourcePermits() throws InterruptedException {
+
+        Dag<Integer> dag = helper.populateDag();
+        List<Integer> sorted = Collections.synchronizedList(new LinkedList<>());
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+        // Even nodes share a resource that only two of them may use at once
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        DagTraversalTask<?> task = DagTraversalTask.<Integer>builder(dag, node -> {
+                    if (node % 2 == 0) {
+                        int now = running.incrementAndGet();
+                        maxRunning.accumulateAndGet(now, Math::max);
+                        Thread.yield();
+                        running.decrementAndGet();
+                    }
+                    sorted.add(node);
+                }, executorService)
+                .resources(node -> node % 2 == 0 ? "even" : "odd", Collections.singletonMap("even", 2))
+                .build();
+        Assertions.assertTrue(task.awaitTermination(2, TimeUnit.SECONDS));
+        executorService.shutdown();
+
+        Assertions.assertTrue(maxRunning.get() <= 2);
+        helper.assertOrder(dag, new LinkedList<>(sorted));
+
+    }
+
+    @RepeatedTest(20)
+    public void testMaxInFlight() throws InterruptedException {
+
+        // A very wide DAG, with every root leading to one leaf
+        Dag<Integer> dag = new HashDag<>();
+        for (int i = 1; i <= 20000; i++) {
+            dag.put(i, 0);
+        }
+
+        // Each node is a task and a listener in the executor, so the executor never holds more than twice the limit
+        AtomicInteger maxQueued = new AtomicInteger();
+        ThreadPoolExecutor executorService = new ThreadPoolExecutor(3, 3, 0, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>()) {
+            @Override
+            protected void beforeExecute(Thread t, Runnable r) {
+                maxQueued.accumulateAndGet(getQueue().size(), Math::max);
+            }
+        };
+
+        List<Integer> sorted = Collections.synchronizedList(new ArrayList<>());
+        DagTraversalTask<?> task = DagTraversalTask.builder(dag, sorted::add, executorService)
+                .maxInFlight(16)
+                .build();
+        Assertions.assertTrue(task.awaitTermination(2, TimeUnit.SECONDS));
+        executorService.shutdown();
+
+        Assertions.assertTrue(maxQueued.get() <= 32);
+        Assertions.assertEquals(dag.size(), sorted.size());
+        Assertions.assertEquals(Integer.valueOf(0), sorted.get(sorted.size() - 1));
+
+    }
+
+    @RepeatedTest(20)
+    public void testAsyncTasks() throws InterruptedException {
+
+        Dag<Integer> dag = helper.populateDag();
+        List<Integer> sorted = Collections.synchronizedList(new LinkedList<>());
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        ScheduledExecutorService io = Executors.newSingleThreadScheduledExecutor();
+
+        // Far more nodes are waiting on "I/O" at once than there are threads
+        AtomicInteger pending = new AtomicInteger();
+        AtomicInteger maxPending = new AtomicInteger();
+        DagTraversalTask<?> task = DagTraversalTask.<Integer>asyncBuilder(dag, node -> {
+            maxPending.accumulateAndGet(pending.incrementAndGet(), Math::max);
+            CompletableFuture<Void> stage = new CompletableFuture<>();
+            io.schedule(() -> {
+                pending.decrementAndGet();
+                sorted.add(node);
+                stage.complete(null);
+            }, 1, TimeUnit.MILLISECONDS);
+            return stage;
+        }, executorService).build();
+        Assertions.assertTrue(task.awaitTermination(2, TimeUnit.SECONDS));
+        executorService.shutdown();
+        io.shutdown();
+
+        Assertions.assertTrue(maxPending.get() > 2);
+        helper.assertOrder(dag, new LinkedList<>(sorted));
+
+    }
+
+    @Test
+    public void testAsyncFailure() throws InterruptedException {
+
+        Dag<Integer> dag = helper.populateDag();
+        int failing = helper.getMiddleNode(dag);
+        List<Integer> visited = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+
+        DagTraversalTask<?> task = DagTraversalTask.<Integer>asyncBuilder(dag, node -> {
+            visited.add(node);
+            CompletableFuture<Void> stage = new CompletableFuture<>();
+            if (node == failing) {
+                stage.completeExceptionally(new RuntimeException());
+            } else {
+                stage.complete(null);
+            }
+            return stage;
+        }, executorService).build();
+        Assertions.assertFalse(task.awaitTermination(2, TimeUnit.SECONDS));
+        executorService.shutdown();
+        Assertions.assertTrue(executorService.awaitTermination(2, TimeUnit.SECONDS));
+
+        for (int descendant : dag.getDescendants(failing)) {
+            Assertions.assertFalse(visited.contains(descendant));
+        }
+
+    }
+
+    @Test
+    public void testRetry() throws InterruptedException {
+
+        Dag<Integer> dag = helper.populateDag();
+        int flaky = helper.getMiddleNode(dag);
+        List<Integer> sorted = Collections.synchronizedList(new LinkedList<>());
+        AtomicInteger failures = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+        // The flaky node fails twice before it succeeds
+        DagTraversalTask<Integer> task = DagTraversalTask.<Integer>builder(dag, node -> {
+            if (node == flaky && failures.getAndIncrement() < 2) {
+                throw new RuntimeException();
+            }
+            sorted.add(node);
+        }, executorService)
+                .retry(RetryPolicy.exponential(3, 1, 10, TimeUnit.MILLISECONDS))
+                .build();
+        Assertions.assertTrue(task.awaitTermination(2, TimeUnit.SECONDS));
+        executorService.shutdown();
+
+        helper.assertOrder(dag, new LinkedList<>(sorted));
+        Assertions.assertEquals(3, task.getAttempts(flaky));
+        for (int node : dag.getNodes()) {
+            if (node != flaky) {
+                Assertions.assertEquals(1, task.getAttempts(node));
+            }
+        }
+        Assertions.assertThrows(IllegalArgumentException.class, () -> task.getAttempts(-1));
+
+    }
+
+    @Test
+    public void testRetryExhausted() throws InterruptedException {
+
+        Dag<Integer> dag = helper.populateDag();
+        int failing = helper.getMiddleNode(dag);
+        List<Integer> visited = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+        DagTraversalTask<Integer> task = DagTraversalTask.<Integer>builder(dag, node -> {
+            if (node == failing) {
+                throw new RuntimeException();
+            }
+            visited.add(node);
+        }, executorService)
+                .retry(RetryPolicy.exponential(2, 1, 1, TimeUnit.MILLISECONDS))
+                .build();
+        Assertions.assertFalse(task.awaitTermination(2, TimeUnit.SECONDS));
+        executorService.shutdown();
+        Assertions.assertTrue(executorService.awaitTermination(2, TimeUnit.SECONDS));
+
+        Assertions.assertEquals(2, task.getAttempts(failing));
+        for (int descendant : dag.getDescendants(failing)) {
+            Assertions.assertFalse(visited.contains(descendant));
+            Assertions.assertEquals(0, task.getAttempts(descendant));
+        }
+
+    }
+
+    @Test
+    public void testRetryRejected() throws InterruptedException {
+
+        Dag<Integer> dag = new HashDag<>();
+        dag.add(1);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+        // The executor is shut down before the retry is handed to it
+        DagTraversalTask<Integer> task = DagTraversalTask.<Integer>builder(dag, node -> {
+            executorService.shutdown();
+            throw new RuntimeException();
+        }, executorService)
+                .retry(RetryPolicy.exponential(2, 10, 10, TimeUnit.MILLISECONDS))
+                .build();
+
+        // The traversal fails as soon as the retry is rejected, instead of hanging until the timeout
+        long start = System.nanoTime();
+        Assertions.assertFalse(task.awaitTermination(1, TimeUnit.SECONDS));
+        Assertions.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+        Assertions.assertEquals(2, task.getAttempts(1));
+
+    }
+
+    @Test
+    public void testNodeTimeout() throws InterruptedException {
+
+        Dag<Integer> dag = helper.populateDag();
+        int hanging = helper.getMiddleNode(dag);
+        List<Integer> sorted = Collections.synchronizedList(new LinkedList<>());
+        AtomicInteger hangs = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+        // The hanging node hangs on its first attempt until it's interrupted
+        DagTraversalTask<Integer> task = DagTraversalTask.<Integer>builder(dag, node -> {
+            if (node == hanging && hangs.getAndIncrement() == 0) {
+                try {
+                    Thread.sleep(Long.MAX_VALUE);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            sorted.add(node);
+        }, executorService)
+                .timeout(50, TimeUnit.MILLISECONDS)
+                .retry(RetryPolicy.exponential(2, 0, 0, TimeUnit.MILLISECONDS))
+                .scheduler(scheduler)
+                .build();
+        Assertions.assertTrue(task.awaitTermination(2, TimeUnit.SECONDS));
+        executorService.shutdown();
+        scheduler.shutdown();
+
+        helper.assertOrder(dag, new LinkedList<>(sorted));
+        Assertions.assertEquals(2, task.getAttempts(hanging));
+
+    }
+
+    @Test
+    public void testRetryWaitsForTimedOutAttempt() throws InterruptedException {
+
+        Dag<Integer> dag = helper.populateDag();
+        int hanging = helper.getMiddleNode(dag);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        AtomicInteger hangs = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+        // The hanging node ignores the interrupt on its first attempt, and keeps running past its timeout
+        DagTraversalTask<Integer> task = DagTraversalTask.<Integer>builder(dag, node -> {
+            if (node == hanging) {
+                if (running.incrementAndGet() > 1) {
+                    overlaps.incrementAndGet();
+                }
+                if (hangs.getAndIncrement() == 0) {
+                    long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+                    while (System.nanoTime() < end) {
+                        Thread.yield();
+                    }
+                }
+                running.decrementAndGet();
+            }
+        }, executorService)
+                .timeout(50, TimeUnit.MILLISECONDS)
+                .retry(RetryPolicy.exponential(2, 0, 0, TimeUnit.MILLISECONDS))
+                .build();
+        Assertions.assertTrue(task.awaitTermination(1, TimeUnit.SECONDS));
+        executorService.shutdown();
+
+        Assertions.assertEquals(2, task.getAttempts(hanging));
+        Assertions.assertEquals(0, overlaps.get());
+
+    }
+
+    @Test
+    public void testAsyncTimeout() throws InterruptedException {
+
+        Dag<Integer> dag = helper.populateDag();
+        int hanging = helper.getMiddleNode(dag);
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+
+        // The hanging node's stage never completes
+        DagTraversalTask<?> task = DagTraversalTask.<Integer>asyncBuilder(dag, node -> node == hanging
+                ? new CompletableFuture<Void>()
+                : CompletableFuture.completedFuture(null), executorService)
+                .timeout(50, TimeUnit.MILLISECONDS)
+                .build();
+        Assertions.assertFalse(task.awaitTermination(2, TimeUnit.SECONDS));
+        executorService.shutdown();
+
+    }
+
+    @Test
+    public void testRetryPolicy() {
+
+        RetryPolicy policy = RetryPolicy.exponential(5, 10, 50, TimeUnit.NANOSECONDS).withJitter(0);
+        Assertions.assertEquals(5, policy.getMaxAttempts());
+        Assertions.assertEquals(10, policy.backoffNanos(1));
+        Assertions.assertEquals(20, policy.backoffNanos(2));
+        Assertions.assertEquals(40, policy.backoffNanos(3));
+        Assertions.assertEquals(50, policy.backoffNanos(4));
+        Assertions.assertEquals(50, policy.backoffNanos(1000));
+
+        RetryPolicy jittered = policy.withJitter(0.5);
+        for (int i = 0; i < 100; i++) {
+            long backoff = jittered.backoffNanos(3);
+            Assertions.assertTrue(backoff >= 20 && backoff <= 40);
+        }
+
+        Assertions.assertEquals(1, RetryPolicy.NONE.getMaxAttempts());
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> RetryPolicy.exponential(0, 1, 1, TimeUnit.SECONDS));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> RetryPolicy.exponential(1, 2, 1, TimeUnit.SECONDS));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> policy.withJitter(1.5));
+
+    }
+
 }
@@ -0,0 +1,70 @@
+package dev.alexjs.dag;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+@Timeout(2)
+public class TestDags {
+
+    private static TestingHelper helper;
+
+    @BeforeAll
+    public static void init() {
+        helper = new TestingHelper();
+    }
+
+    @RepeatedTest(10)
+    public void testUnionAll() {
+
+        // Scatter the edges of a DAG over many overlapping fragments
+        Dag<Integer> dag = helper.populateDag();
+        Random random = new Random();
+        List<Dag<Integer>> fragments = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            fragments.add(new HashDag<>());
+        }
+        for (int node : dag.getNodes()) {
+            fragments.get(random.nextInt(fragments.size())).add(node);
+            for (int target : dag.getOutgoing(node)) {
+                fragments.get(random.nextInt(fragments.size())).put(node, target);
+            }
+        }
+        fragments.set(0, new BitSetDag<>(fragments.get(0)));
+        fragments.add(dag.subDag(dag.getDescendants(helper.getMiddleNode(dag))));
+
+        HashDag<Integer> union = Dags.unionAll(fragments);
+        Assertions.assertEquals(dag, union);
+        Assertions.assertEquals(dag.hashCode(), union.hashCode());
+        Assertions.assertEquals(dag.getRoots(), union.getRoots());
+        Assertions.assertEquals(dag.getLeaves(), union.getLeaves());
+        helper.assertOrder(union, union.sort());
+
+    }
+
+    @Test
+    public void testUnionAllCircularDependency() {
+
+        // Neither fragment has a circular dependency on its own
+        HashDag<Integer> a = new HashDag<>();
+        a.put(1, 2);
+        a.put(3, 4);
+        HashDag<Integer> b = new HashDag<>();
+        b.put(2, 3);
+        b.put(4, 1);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Dags.unionAll(Arrays.asList(a, b)));
+        Assertions.assertTrue(Dags.unionAll(Collections.singletonList(a)).containsEdge(3, 4));
+        Assertions.assertTrue(Dags.unionAll(Collections.<Dag<Integer>>emptyList()).isEmpty());
+
+    }
+
+}
@@ -0,0 +1,98 @@
+package dev.alexjs.dag;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@Timeout(2)
+public class TestEdgeLists {
+
+    private static TestingHelper helper;
+
+    private Path file;
+
+    @BeforeAll
+    public static void init() {
+        helper = new TestingHelper();
+    }
+
+    @BeforeEach
+    public void createFile() throws IOException {
+        file = Files.createTempFile("dag", ".txt");
+    }
+
+    @AfterEach
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+
+        Dag<Integer> dag = helper.populateDag();
+        EdgeLists.write(dag, file, String::valueOf);
+
+        Assertions.assertEquals(dag, EdgeLists.read(file, Integer::valueOf));
+
+        // Small chunks split the file in many places, including in the middle of lines
+        for (int chunkSize : new int[]{1, 7, 64, 4096}) {
+            DagBuilder<Integer> builder = new DagBuilder<>();
+            EdgeLists.read(file, Integer::valueOf, builder, chunkSize);
+            Assertions.assertEquals(dag, builder.build());
+        }
+
+    }
+
+    @Test
+    public void testFormat() throws IOException {
+
+        String text = "a b\r\n\n  b\tc  \nd\r\n\nc e";
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+
+        for (int chunkSize : new int[]{1, 3, 1024}) {
+            DagBuilder<String> builder = new DagBuilder<>();
+            EdgeLists.read(file, s -> s, builder, chunkSize);
+            HashDag<String> dag = builder.build();
+
+            HashDag<String> expected = new HashDag<>();
+            expected.put("a", "b");
+            expected.put("b", "c");
+            expected.put("c", "e");
+            expected.add("d");
+            Assertions.assertEquals(expected, dag);
+        }
+
+        Files.write(file, "a b c\n".getBytes(StandardCharsets.UTF_8));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> EdgeLists.read(file, s -> s));
+
+        Files.write(file, "a b\nb a\n".getBytes(StandardCharsets.UTF_8));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> EdgeLists.read(file, s -> s));
+
+    }
+
+    @Test
+    public void testWriteIsolatedNodes() throws IOException {
+
+        Dag<String> dag = new HashDag<>();
+        dag.put("a", "b");
+        dag.add("c");
+        EdgeLists.write(dag, file, s -> s);
+
+        String written = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        Assertions.assertEquals(2, written.split("\n").length);
+        Assertions.assertEquals(dag, EdgeLists.read(file, s -> s));
+
+        dag.add("has space");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> EdgeLists.write(dag, file, s -> s));
+
+    }
+
+}
@@ -0,0 +1,265 @@
+package dev.alexjs.dag;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Timeout(2)
+public class TestInternedDag {
+
+    private static TestingHelper helper;
+
+    @BeforeAll
+    public static void init() {
+        helper = new TestingHelper();
+    }
+
+    private void assertSameStructure(Dag<Integer> expected, Dag<Integer> actual) {
+        Assertions.assertEquals(expected.getNodes(), actual.getNodes());
+        for (int node : expected.getNodes()) {
+            Assertions.assertEquals(expected.getOutgoing(node), actual.getOutgoing(node));
+            Assertions.assertEquals(expected.getIncoming(node), actual.getIncoming(node));
+        }
+    }
+
+    @RepeatedTest(5)
+    public void testMatchesHashDag() {
+
+        Dag<Integer> expected = helper.populateDag();
+        InternedDag<Integer> dag = new InternedDag<>(expected);
+
+        assertSameStructure(expected, dag);
+        Assertions.assertEquals(expected.getRoots(), dag.getRoots());
+        Assertions.assertEquals(expected.getLeaves(), dag.getLeaves());
+        helper.assertOrder(dag, dag.sort());
+        Assertions.assertEquals(expected.components().size(), dag.components().size());
+
+        int middle = helper.getMiddleNode(expected);
+        Assertions.assertEquals(expected.getAncestors(middle), dag.getAncestors(middle));
+        Assertions.assertEquals(expected.getDescendants(middle), dag.getDescendants(middle));
+        Assertions.assertEquals(expected.getFamily(middle), dag.getFamily(middle));
+
+        Dag<Integer> other = helper.populateDag();
+        assertSameStructure(expected.union(other), dag.union(other));
+        assertSameStructure(expected.intersection(other), dag.intersection(other));
+        assertSameStructure(expected.difference(other), dag.difference(other));
+        assertSameStructure(expected.inverted(), dag.inverted());
+
+        Assertions.assertEquals(dag, dag.clone());
+        Assertions.assertEquals(expected.hashCode(), dag.hashCode());
+
+        dag.remove(middle);
+        expected.remove(middle);
+        assertSameStructure(expected, dag);
+        dag.put(middle, -1);
+        Assertions.assertEquals(Collections.singleton(-1), dag.getOutgoing(middle));
+        dag.put(-1, middle);
+        Assertions.assertNull(dag.sort());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dag.getDescendants(middle));
+
+    }
+
+    @Test
+    public void testHubNodes() {
+
+        // Enough edges on one node that its edges get indexed
+        InternedDag<Integer> dag = new InternedDag<>();
+        for (int i = 1; i <= 100; i++) {
+            Assertions.assertTrue(dag.put(0, i));
+            Assertions.assertTrue(dag.put(i, 101));
+        }
+        Assertions.assertFalse(dag.put(0, 50));
+        Assertions.assertTrue(dag.containsEdge(0, 100));
+        Assertions.assertTrue(dag.getIncoming(101).contains(100));
+
+        for (int i = 1; i <= 100; i += 2) {
+            Assertions.assertTrue(dag.removeEdge(0, i));
+            Assertions.assertTrue(dag.remove(i + 1));
+        }
+        for (int i = 1; i <= 100; i++) {
+            Assertions.assertFalse(dag.containsEdge(0, i));
+            Assertions.assertEquals(i % 2 == 1, dag.containsEdge(i, 101));
+        }
+        Assertions.assertTrue(dag.getOutgoing(0).isEmpty());
+        Assertions.assertEquals(50, dag.getIncoming(101).size());
+
+        // Freed ids are reused without keeping their old edges
+        Assertions.assertTrue(dag.put(0, 200));
+        Assertions.assertEquals(Collections.singleton(200), new HashSet<>(dag.getOutgoing(0)));
+        Assertions.assertTrue(dag.getIncoming(200).contains(0));
+        Assertions.assertEquals(dag, dag.inverted().inverted());
+
+    }
+
+    @Test
+    public void testSerialization() throws IOException, ClassNotFoundException {
+
+        // Enough edges on one node that its edges are indexed, which the stream rebuilds rather than stores
+        InternedDag<Integer> dag = new InternedDag<>();
+        WeightedDag<Integer> weighted = new WeightedDag<>();
+        for (int i = 1; i <= 100; i++) {
+            dag.put(0, i);
+            weighted.put(i, 0, i);
+        }
+
+        InternedDag<?> copy = roundTrip(dag);
+        Assertions.assertEquals(dag, copy);
+        Assertions.assertEquals(dag.hashCode(), copy.hashCode());
+        @SuppressWarnings("unchecked")
+        InternedDag<Integer> restored = (InternedDag<Integer>) copy;
+        Assertions.assertTrue(restored.containsEdge(0, 50));
+        Assertions.assertTrue(restored.removeEdge(0, 50));
+        Assertions.assertFalse(restored.containsEdge(0, 50));
+        Assertions.assertFalse(restored.put(0, 51));
+
+        @SuppressWarnings("unchecked")
+        WeightedDag<Integer> restoredWeighted = (WeightedDag<Integer>) roundTrip(weighted);
+        Assertions.assertEquals(weighted, restoredWeighted);
+        Assertions.assertEquals(50, restoredWeighted.getWeight(50, 0), 0);
+        Assertions.assertTrue(restoredWeighted.getIncoming(0).contains(100));
+
+    }
+
+    private InternedDag<?> roundTrip(InternedDag<?> dag) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(dag);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (InternedDag<?>) in.readObject();
+        }
+    }
+
+    @Test
+    public void testNodesAreHashedOnce() throws InterruptedException {
+
+        InternedDag<Key> dag = new InternedDag<>();
+        Dag<Integer> source = helper.populateDag();
+        for (int node : source.getNodes()) {
+            dag.add(new Key(node));
+            for (int target : source.getOutgoing(node)) {
+                dag.put(new Key(node), new Key(target));
+            }
+        }
+
+        // Sorting, components and traversals don't hash the nodes
+        Key.hashes.set(0);
+        Assertions.assertEquals(source.size(), dag.sort().size());
+        dag.components();
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        List<Key> visited = Collections.synchronizedList(new LinkedList<>());
+        DagTraversalTask<Key> task = new DagTraversalTask<>(dag, visited::add, executorService);
+        Assertions.assertTrue(task.awaitTermination(2, TimeUnit.SECONDS));
+        executorService.shutdown();
+        Assertions.assertEquals(source.size(), visited.size());
+        // Components hash each node once to build their views
+        Assertions.assertTrue(Key.hashes.get() <= source.size());
+
+    }
+
+    @RepeatedTest(5)
+    public void testTraversal() throws InterruptedException {
+
+        InternedDag<Integer> dag = new InternedDag<>(helper.populateDag());
+        List<Integer> sorted = Collections.synchronizedList(new LinkedList<>());
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+        DagTraversalTask<Integer> task = DagTraversalTask.builder(dag, sorted::add, executorService)
+                .maxInFlight(8)
+                .build();
+        Assertions.assertTrue(task.awaitTermination(2, TimeUnit.SECONDS));
+        executorService.shutdown();
+
+        helper.assertOrder(dag, new LinkedList<>(sorted));
+        for (int node : dag.getNodes()) {
+            Assertions.assertEquals(1, task.getAttempts(node));
+        }
+        Assertions.assertThrows(IllegalArgumentException.class, () -> task.getAttempts(-1));
+
+    }
+
+    @Test
+    public void testResumeFromJournal() throws IOException, InterruptedException {
+
+        InternedDag<Integer> dag = new InternedDag<>(helper.populateDag());
+        int failing = helper.getMiddleNode(dag);
+        Path path = Files.createTempFile("dag", ".journal");
+        try {
+            ExecutorService executorService = Executors.newFixedThreadPool(4);
+            try (TraversalJournal<Integer> journal = TraversalJournal.open(path, String::valueOf)) {
+                DagTraversalTask<?> task = DagTraversalTask.<Integer>builder(dag, node -> {
+                    if (node == failing) {
+                        throw new RuntimeException();
+                    }
+                }, executorService).journal(journal).build();
+                Assertions.assertFalse(task.awaitTermination(2, TimeUnit.SECONDS));
+            }
+            executorService.shutdown();
+            Assertions.assertTrue(executorService.awaitTermination(2, TimeUnit.SECONDS));
+
+            List<Integer> resumed = Collections.synchronizedList(new LinkedList<>());
+            executorService = Executors.newFixedThreadPool(4);
+            try (TraversalJournal<Integer> journal = TraversalJournal.open(path, String::valueOf)) {
+                int completed = journal.size();
+                DagTraversalTask<?> task = DagTraversalTask.builder(dag, resumed::add, executorService)
+                        .journal(journal)
+                        .build();
+                Assertions.assertTrue(task.awaitTermination(2, TimeUnit.SECONDS));
+                Assertions.assertEquals(dag.size(), completed + resumed.size());
+                Assertions.assertTrue(resumed.contains(failing));
+            }
+            executorService.shutdown();
+
+            Dag<Integer> rest = dag.subDag(new HashSet<>(resumed));
+            helper.assertOrder(rest, new LinkedList<>(resumed));
+        } finally {
+            Files.delete(path);
+        }
+
+    }
+
+    /**
+     * A node that counts how many times it's hashed
+     */
+    private static final class Key {
+
+        private static final AtomicInteger hashes = new AtomicInteger();
+
+        private final int value;
+
+        Key(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).value == value;
+        }
+
+        @Override
+        public int hashCode() {
+            hashes.incrementAndGet();
+            return Integer.hashCode(value);
+        }
+
+    }
+
+}
@@ -0,0 +1,186 @@
+package dev.alexjs.dag;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@Timeout(2)
+public class TestLiveTraversalTask {
+
+    private static TestingHelper helper;
+
+    @BeforeAll
+    public static void init() {
+        helper = new TestingHelper();
+    }
+
+    @RepeatedTest(100)
+    public void testBatches() throws InterruptedException {
+
+        Dag<Integer> dag = helper.populateDag();
+        List<Integer> sorted = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService executorService = Executors.newFixedThreadPool(3);
+        LiveTraversalTask<Integer> task = new LiveTraversalTask<>(sorted::add, executorService);
+
+        // Each batch holds the nodes in a range with all their incoming edges, so no edge goes to a started node
+        int step = 100;
+        int last = Collections.max(dag.getNodes());
+        for (int start = 0; start <= last; start += step) {
+            HashDag<Integer> batch = new HashDag<>();
+            for (int node : dag.getNodes()) {
+                if (node >= start && node < start + step) {
+                    batch.add(node);
+                    for (int source : dag.getIncoming(node)) {
+                        batch.put(source, node);
+                    }
+                }
+            }
+            task.putAll(batch);
+        }
+        Assertions.assertFalse(task.awaitTermination(10, TimeUnit.MILLISECONDS));
+        task.close();
+        Assertions.assertTrue(task.awaitTermination(2, TimeUnit.SECONDS));
+        executorService.shutdown();
+
+        helper.assertOrder(dag, new ArrayList<>(sorted));
+
+    }
+
+    @Test
+    public void testNewNodesWaitForRunningNodes() throws InterruptedException {
+
+        List<Integer> sorted = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        LiveTraversalTask<Integer> task = new LiveTraversalTask<>(node -> {
+            if (node == 1) {
+                try {
+                    release.await();
+                } catch (InterruptedException ignore) {
+                }
+            }
+            sorted.add(node);
+        }, executorService);
+
+        Assertions.assertTrue(task.add(1));
+        Assertions.assertFalse(task.add(1));
+        Assertions.assertTrue(task.put(1, 2));
+        Assertions.assertFalse(task.put(1, 2));
+        Assertions.assertTrue(task.put(2, 3));
+
+        // 1 is running, so 2 and 3 wait for it, while 4 has nothing to wait for
+        task.add(4);
+        Thread.sleep(50);
+        Assertions.assertEquals(Collections.singletonList(4), sorted);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> task.put(5, 1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> task.put(3, 1));
+
+        release.countDown();
+        task.close();
+        Assertions.assertTrue(task.awaitTermination(2, TimeUnit.SECONDS));
+        Assertions.assertEquals(4, sorted.size());
+        Assertions.assertTrue(sorted.indexOf(1) < sorted.indexOf(2));
+        Assertions.assertTrue(sorted.indexOf(2) < sorted.indexOf(3));
+        Assertions.assertThrows(IllegalStateException.class, () -> task.add(6));
+        executorService.shutdown();
+
+    }
+
+    @Test
+    public void testEdgesFromFinishedNodes() throws InterruptedException {
+
+        List<Integer> sorted = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        LiveTraversalTask<Integer> task = new LiveTraversalTask<>(sorted::add, executorService);
+
+        task.add(1);
+        while (sorted.isEmpty()) {
+            Thread.sleep(1);
+        }
+        // 1 is done, so a new node after it starts right away, and the existing edge is no change
+        Assertions.assertTrue(task.put(1, 2));
+        Assertions.assertFalse(task.put(1, 2));
+        task.close();
+        Assertions.assertTrue(task.awaitTermination(2, TimeUnit.SECONDS));
+        Assertions.assertEquals(2, sorted.size());
+        executorService.shutdown();
+
+    }
+
+    @Test
+    public void testCircularDependency() throws InterruptedException {
+
+        List<Integer> sorted = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        CountDownLatch release = new CountDownLatch(1);
+        LiveTraversalTask<Integer> task = new LiveTraversalTask<>(node -> {
+            try {
+                release.await();
+            } catch (InterruptedException ignore) {
+            }
+            sorted.add(node);
+        }, executorService);
+
+        task.put(1, 2);
+        task.put(2, 3);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> task.put(3, 3));
+
+        // A batch that closes a cycle is rejected as a whole, including its new nodes
+        HashDag<Integer> batch = new HashDag<>();
+        batch.put(3, 4);
+        batch.put(4, 2);
+        batch.put(4, 5);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> task.putAll(batch));
+
+        release.countDown();
+        task.close();
+        Assertions.assertTrue(task.awaitTermination(2, TimeUnit.SECONDS));
+        Assertions.assertEquals(3, sorted.size());
+        executorService.shutdown();
+
+    }
+
+    @Test
+    public void testFailure() throws InterruptedException {
+
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        LiveTraversalTask<Integer> task = new LiveTraversalTask<>(helper.populateDagSimple(), node -> {
+            if (node == 5) {
+                throw new RuntimeException();
+            }
+        }, executorService);
+
+        // A failed task ends the traversal, even though it isn't closed
+        long start = System.nanoTime();
+        Assertions.assertFalse(task.awaitTermination(1, TimeUnit.SECONDS));
+        Assertions.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+        executorService.shutdown();
+
+    }
+
+    @Test
+    public void testRejectedTask() throws InterruptedException {
+
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        executorService.shutdown();
+        LiveTraversalTask<Integer> task = new LiveTraversalTask<>(node -> {
+        }, executorService);
+
+        // A rejected node fails the traversal instead of leaving it waiting on a node that never runs
+        task.add(1);
+        task.close();
+        Assertions.assertFalse(task.awaitTermination(1, TimeUnit.SECONDS));
+
+    }
+
+}
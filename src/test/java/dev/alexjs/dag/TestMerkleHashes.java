@@ -0,0 +1,129 @@
+package dev.alexjs.dag;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+@Timeout(2)
+public class TestMerkleHashes {
+
+    private static TestingHelper helper;
+
+    @BeforeAll
+    public static void init() {
+        helper = new TestingHelper();
+    }
+
+    @Test
+    public void testAncestry() {
+
+        HashDag<Integer> dag = (HashDag<Integer>) helper.populateDagSimple();
+        MerkleHashes<Integer> hashes = new MerkleHashes<>(dag, Integer::longValue);
+
+        // 8 is downstream of 1, so changing the edges above 1 changes the hash of 8 but not of 9
+        long eight = hashes.getHash(8);
+        long nine = hashes.getHash(9);
+        dag.put(0, 1);
+        Assertions.assertNotEquals(eight, hashes.getHash(8));
+        Assertions.assertEquals(nine, hashes.getHash(9));
+
+        dag.removeEdge(0, 1);
+        Assertions.assertEquals(eight, hashes.getHash(8));
+
+        // The order edges were added in doesn't matter
+        HashDag<Integer> reversed = new HashDag<>();
+        List<Integer> nodes = dag.sort();
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            for (int source : dag.getIncoming(nodes.get(i))) {
+                reversed.put(source, nodes.get(i));
+            }
+            reversed.add(nodes.get(i));
+        }
+        MerkleHashes<Integer> reversedHashes = new MerkleHashes<>(reversed, Integer::longValue);
+        for (int node : dag) {
+            Assertions.assertEquals(hashes.getHash(node), reversedHashes.getHash(node));
+        }
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> hashes.getHash(-1));
+
+    }
+
+    @RepeatedTest(10)
+    public void testIncrementalMatchesRecomputed() {
+
+        Random random = new Random();
+        HashDag<Integer> dag = (HashDag<Integer>) helper.populateDag();
+        MerkleHashes<Integer> hashes = new MerkleHashes<>(dag, Integer::longValue);
+
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                int source = random.nextInt(1000);
+                int target = source + random.nextInt(100) + 1;
+                switch (random.nextInt(4)) {
+                    case 0:
+                        dag.put(source, target);
+                        break;
+                    case 1:
+                        List<Integer> targets = new ArrayList<>(dag.getOutgoing(source));
+                        if (!targets.isEmpty()) {
+                            dag.removeEdge(source, targets.get(random.nextInt(targets.size())));
+                        }
+                        break;
+                    case 2:
+                        dag.remove(source);
+                        break;
+                    default:
+                        dag.add(target);
+                        break;
+                }
+            }
+
+            try (MerkleHashes<Integer> recomputed = new MerkleHashes<>(dag, Integer::longValue)) {
+                for (int node : dag.getNodes()) {
+                    Assertions.assertEquals(recomputed.getHash(node), hashes.getHash(node));
+                }
+            }
+        }
+
+        hashes.close();
+
+    }
+
+    @Test
+    public void testCircularDependency() {
+
+        HashDag<Integer> dag = (HashDag<Integer>) helper.populateDagSimple();
+        MerkleHashes<Integer> hashes = new MerkleHashes<>(dag, Integer::longValue);
+
+        dag.put(8, 1);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> hashes.getHash(9));
+        dag.removeEdge(8, 1);
+        hashes.getHash(9);
+
+        dag.put(8, 1);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new MerkleHashes<>(dag, Integer::longValue));
+
+    }
+
+    @Test
+    public void testClosed() {
+
+        HashDag<Integer> dag = (HashDag<Integer>) helper.populateDagSimple();
+        MerkleHashes<Integer> hashes = new MerkleHashes<>(dag, Integer::longValue);
+        hashes.getHash(9);
+        hashes.close();
+
+        // A closed instance refuses to answer, rather than blaming the node
+        Assertions.assertThrows(IllegalStateException.class, () -> hashes.getHash(9));
+        dag.put(8, 5000);
+        Assertions.assertThrows(IllegalStateException.class, () -> hashes.getHash(5000));
+
+    }
+
+}
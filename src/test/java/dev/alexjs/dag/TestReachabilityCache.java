@@ -0,0 +1,182 @@
+package dev.alexjs.dag;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+@Timeout(2)
+public class TestReachabilityCache {
+
+    private static TestingHelper helper;
+
+    @BeforeAll
+    public static void init() {
+        helper = new TestingHelper();
+    }
+
+    @RepeatedTest(10)
+    public void testMatchesDag() {
+
+        HashDag<Integer> dag = (HashDag<Integer>) helper.populateDag();
+        ReachabilityCache<Integer> cache = ReachabilityCache.withMaximumSize(dag, 50);
+        List<Integer> nodes = new ArrayList<>(dag.getNodes());
+        Random random = new Random();
+
+        // Nodes only get edges to greater nodes, so the DAG never gets a circular dependency
+        for (int i = 0; i < 300; i++) {
+            int a = nodes.get(random.nextInt(nodes.size()));
+            int b = nodes.get(random.nextInt(nodes.size()));
+            switch (random.nextInt(8)) {
+                case 0:
+                    dag.remove(a);
+                    break;
+                case 1:
+                    dag.removeEdge(Math.min(a, b), Math.max(a, b));
+                    break;
+                case 2:
+                    if (a != b) {
+                        dag.put(Math.min(a, b), Math.max(a, b));
+                    }
+                    break;
+                default:
+                    // Query a few hot nodes most of the time, so there are hits to check
+                    int node = nodes.get(random.nextInt(10));
+                    Assertions.assertEquals(dag.getAncestors(node), cache.getAncestors(node));
+                    Assertions.assertEquals(dag.getDescendants(node), cache.getDescendants(node));
+            }
+        }
+        Assertions.assertTrue(cache.getHitCount() > 0);
+        Assertions.assertTrue(cache.getMissCount() > 0);
+        Assertions.assertTrue(cache.getInvalidationCount() > 0);
+        cache.close();
+
+    }
+
+    @Test
+    public void testHitsAreShared() {
+
+        HashDag<Integer> dag = (HashDag<Integer>) helper.populateDagSimple();
+        ReachabilityCache<Integer> cache = ReachabilityCache.withMaximumSize(dag, 10);
+        int node = 2;
+
+        Set<Integer> descendants = cache.getDescendants(node);
+        Assertions.assertSame(descendants, cache.getDescendants(node));
+        Assertions.assertEquals(1, cache.getMissCount());
+        Assertions.assertEquals(1, cache.getHitCount());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> descendants.add(-1));
+
+        // A node that isn't in the DAG has no ancestors, even after it's added
+        Assertions.assertTrue(cache.getAncestors(-1).isEmpty());
+        dag.add(-1);
+        Assertions.assertTrue(cache.getAncestors(-1).isEmpty());
+        Assertions.assertEquals(2, cache.getHitCount());
+
+    }
+
+    @Test
+    public void testPreciseInvalidation() {
+
+        // Two separate chains
+        HashDag<Integer> dag = new HashDag<>();
+        dag.put(1, 2);
+        dag.put(2, 3);
+        dag.put(10, 20);
+        dag.put(20, 30);
+        ReachabilityCache<Integer> cache = ReachabilityCache.withMaximumSize(dag, 100);
+        for (int node : dag.getNodes()) {
+            cache.getAncestors(node);
+            cache.getDescendants(node);
+        }
+
+        // Extending one chain at the end only drops the descendants upstream and the new node's ancestors
+        dag.put(3, 4);
+        Assertions.assertEquals(3, cache.getInvalidationCount());
+        Assertions.assertEquals(dag.getDescendants(1), cache.getDescendants(1));
+        Assertions.assertEquals(dag.getAncestors(4), cache.getAncestors(4));
+        long misses = cache.getMissCount();
+        cache.getAncestors(3);
+        cache.getDescendants(20);
+        cache.getAncestors(30);
+        Assertions.assertEquals(misses, cache.getMissCount());
+
+        // Removing a node drops every result it's in
+        dag.remove(20);
+        Assertions.assertEquals(dag.getDescendants(10), cache.getDescendants(10));
+        Assertions.assertEquals(dag.getAncestors(30), cache.getAncestors(30));
+        Assertions.assertTrue(cache.getDescendants(20).isEmpty());
+        Assertions.assertEquals(dag.getDescendants(1), cache.getDescendants(1));
+
+    }
+
+    @Test
+    public void testEviction() {
+
+        HashDag<Integer> dag = (HashDag<Integer>) helper.populateDagSimple();
+        ReachabilityCache<Integer> bySize = ReachabilityCache.withMaximumSize(dag, 2);
+        bySize.getDescendants(1);
+        bySize.getDescendants(2);
+        bySize.getDescendants(1);
+        bySize.getDescendants(3);
+        Assertions.assertEquals(1, bySize.getEvictionCount());
+
+        // 2 was the least recently used, so it was evicted and 1 wasn't
+        long misses = bySize.getMissCount();
+        bySize.getDescendants(1);
+        Assertions.assertEquals(misses, bySize.getMissCount());
+        bySize.getDescendants(2);
+        Assertions.assertEquals(misses + 1, bySize.getMissCount());
+
+        // A result bigger than the bound is returned but not kept
+        int node = 8;
+        int size = dag.getAncestors(node).size();
+        ReachabilityCache<Integer> byWeight = ReachabilityCache.withMaximumWeight(dag, size - 1);
+        Assertions.assertEquals(dag.getAncestors(node), byWeight.getAncestors(node));
+        byWeight.getAncestors(node);
+        Assertions.assertEquals(2, byWeight.getMissCount());
+        Assertions.assertEquals(2, byWeight.getEvictionCount());
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ReachabilityCache.withMaximumSize(dag, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ReachabilityCache.withMaximumWeight(dag, -1));
+
+    }
+
+    @Test
+    public void testCircularDependency() {
+
+        HashDag<Integer> dag = (HashDag<Integer>) helper.populateDag();
+        ReachabilityCache<Integer> cache = ReachabilityCache.withMaximumSize(dag, 10);
+        int node = helper.getMiddleNode(dag);
+        cache.getDescendants(node);
+
+        // A cycle anywhere fails every query, like the DAG does, until it's removed
+        dag.put(5000, 5001);
+        dag.put(5001, 5000);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> cache.getDescendants(node));
+        dag.removeEdge(5001, 5000);
+        Assertions.assertEquals(dag.getDescendants(node), cache.getDescendants(node));
+
+    }
+
+    @Test
+    public void testClosed() {
+
+        HashDag<Integer> dag = (HashDag<Integer>) helper.populateDagSimple();
+        ReachabilityCache<Integer> cache = ReachabilityCache.withMaximumSize(dag, 10);
+        cache.getDescendants(2);
+        cache.close();
+
+        // A closed cache no longer sees changes, so it refuses to answer instead of serving stale results
+        dag.put(2, 5000);
+        Assertions.assertThrows(IllegalStateException.class, () -> cache.getDescendants(2));
+        Assertions.assertThrows(IllegalStateException.class, () -> cache.getAncestors(2));
+
+    }
+
+}
@@ -0,0 +1,84 @@
+package dev.alexjs.dag;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+@Timeout(2)
+public class TestTraversalJournal {
+
+    private Path path;
+
+    @BeforeEach
+    public void createFile() throws IOException {
+        path = Files.createTempFile("dag", ".journal");
+    }
+
+    @AfterEach
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    @Test
+    public void testRecordAndReopen() throws IOException {
+
+        try (TraversalJournal<String> journal = TraversalJournal.open(path, s -> s, 2, 1, TimeUnit.HOURS)) {
+            Assertions.assertEquals(0, journal.size());
+            journal.record("a");
+            journal.record("b");
+            journal.record("c");
+            journal.record("a");
+            Assertions.assertTrue(journal.isCompleted("b"));
+            Assertions.assertFalse(journal.isCompleted("d"));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> journal.record("line\nbreak"));
+        }
+
+        // Nodes recorded in the first run are still there, and duplicates were only written once
+        Assertions.assertEquals(Arrays.asList("a", "b", "c"), Files.readAllLines(path, StandardCharsets.UTF_8));
+        try (TraversalJournal<String> journal = TraversalJournal.open(path, s -> s)) {
+            Assertions.assertEquals(3, journal.size());
+            Assertions.assertTrue(journal.isCompleted("c"));
+        }
+
+    }
+
+    @Test
+    public void testTornLine() throws IOException {
+
+        Files.write(path, "a\nb\npartial".getBytes(StandardCharsets.UTF_8));
+
+        try (TraversalJournal<String> journal = TraversalJournal.open(path, s -> s)) {
+            Assertions.assertEquals(2, journal.size());
+            Assertions.assertFalse(journal.isCompleted("partial"));
+            journal.record("c");
+        }
+
+        Assertions.assertEquals(Arrays.asList("a", "b", "c"), Files.readAllLines(path, StandardCharsets.UTF_8));
+
+    }
+
+    @Test
+    public void testFailedRecord() throws IOException {
+
+        TraversalJournal<String> journal = TraversalJournal.open(path, s -> s);
+        journal.record("a");
+        journal.close();
+
+        // A node whose line never reached the file isn't completed
+        Assertions.assertThrows(IOException.class, () -> journal.record("b"));
+        Assertions.assertFalse(journal.isCompleted("b"));
+        Assertions.assertTrue(journal.isCompleted("a"));
+        Assertions.assertEquals(1, journal.size());
+
+    }
+
+}
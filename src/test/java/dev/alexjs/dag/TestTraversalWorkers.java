@@ -0,0 +1,225 @@
+package dev.alexjs.dag;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+@Timeout(10)
+public class TestTraversalWorkers {
+
+    private static TestingHelper helper;
+
+    private Path output;
+    private Path marker;
+    private final List<Process> processes = new ArrayList<>();
+
+    @BeforeAll
+    public static void init() {
+        helper = new TestingHelper();
+    }
+
+    @BeforeEach
+    public void createFiles() throws IOException {
+        output = Files.createTempFile("dag", ".out");
+        marker = Files.createTempFile("dag", ".marker");
+        Files.delete(marker);
+    }
+
+    @AfterEach
+    public void cleanUp() throws IOException {
+        for (Process process : processes) {
+            process.destroyForcibly();
+        }
+        Files.deleteIfExists(output);
+        Files.deleteIfExists(marker);
+    }
+
+    @Test
+    public void testInProcessWorkers() throws Exception {
+
+        Dag<Integer> dag = helper.populateDag();
+        List<Integer> sorted = Collections.synchronizedList(new LinkedList<>());
+
+        List<Thread> workers = new ArrayList<>();
+        try (TraversalCoordinator<Integer> coordinator = new TraversalCoordinator<>(dag, new ServerSocket(0))) {
+            for (int i = 0; i < 3; i++) {
+                workers.add(startWorker(coordinator.getPort(), sorted::add));
+            }
+            Assertions.assertTrue(coordinator.awaitTermination(2, TimeUnit.SECONDS));
+        }
+        // Closing the coordinator tells the workers to stop
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        helper.assertOrder(dag, new LinkedList<>(sorted));
+
+    }
+
+    @Test
+    public void testStalledHandshake() throws Exception {
+
+        Dag<Integer> dag = helper.populateDag();
+        List<Integer> sorted = Collections.synchronizedList(new LinkedList<>());
+
+        try (TraversalCoordinator<Integer> coordinator = new TraversalCoordinator<>(dag, new ServerSocket(0));
+             Socket stalled = new Socket("127.0.0.1", coordinator.getPort())) {
+            // The first connection never says how many nodes it can run, which doesn't hold up the real worker
+            startWorker(coordinator.getPort(), sorted::add);
+            Assertions.assertTrue(coordinator.awaitTermination(2, TimeUnit.SECONDS));
+            Assertions.assertTrue(stalled.isConnected());
+        }
+
+        helper.assertOrder(dag, new LinkedList<>(sorted));
+
+    }
+
+    @Test
+    public void testTaskFailure() throws Exception {
+
+        Dag<Integer> dag = helper.populateDag();
+        int failing = helper.getMiddleNode(dag);
+
+        try (TraversalCoordinator<Integer> coordinator = new TraversalCoordinator<>(dag, new ServerSocket(0))) {
+            startWorker(coordinator.getPort(), node -> {
+                if (node == failing) {
+                    throw new RuntimeException();
+                }
+            });
+            Assertions.assertFalse(coordinator.awaitTermination(2, TimeUnit.SECONDS));
+        }
+
+    }
+
+    @Test
+    @Timeout(30)
+    public void testForkedWorkers() throws Exception {
+
+        Dag<Integer> dag = helper.populateDag();
+
+        try (TraversalCoordinator<Integer> coordinator = new TraversalCoordinator<>(dag, new ServerSocket(0))) {
+            fork(coordinator.getPort(), -1);
+            fork(coordinator.getPort(), -1);
+            Assertions.assertTrue(coordinator.awaitTermination(20, TimeUnit.SECONDS));
+        }
+
+        helper.assertOrder(dag, readOutput());
+
+    }
+
+    @Test
+    @Timeout(30)
+    public void testWorkerDeath() throws Exception {
+
+        Dag<Integer> dag = helper.populateDag();
+        int crashing = helper.getMiddleNode(dag);
+
+        try (TraversalCoordinator<Integer> coordinator = new TraversalCoordinator<>(dag, new ServerSocket(0))) {
+            // Whichever worker gets the crashing node first dies, and the other one finishes the traversal
+            fork(coordinator.getPort(), crashing);
+            fork(coordinator.getPort(), crashing);
+            Assertions.assertTrue(coordinator.awaitTermination(20, TimeUnit.SECONDS));
+        }
+
+        Assertions.assertTrue(Files.exists(marker));
+        helper.assertOrder(dag, readOutput());
+
+    }
+
+    private Thread startWorker(int port, Consumer<Integer> task) {
+        Thread worker = new Thread(() -> {
+            try {
+                TraversalWorker.run("127.0.0.1", port, task, 2);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        worker.setDaemon(true);
+        worker.start();
+        return worker;
+    }
+
+    private void fork(int port, int crashing) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder builder = new ProcessBuilder(java,
+                "-cp", System.getProperty("java.class.path"),
+                "-D" + RecordingTask.OUTPUT + "=" + output,
+                "-D" + RecordingTask.MARKER + "=" + marker,
+                "-D" + RecordingTask.CRASHING + "=" + crashing,
+                TraversalWorker.class.getName(), "127.0.0.1", String.valueOf(port),
+                RecordingTask.class.getName(), "2");
+        builder.redirectErrorStream(true);
+        builder.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+        processes.add(builder.start());
+    }
+
+    /**
+     * Reads the nodes in the order they were first recorded.
+     * A node that was running on a worker when it died may be recorded twice.
+     */
+    private List<Integer> readOutput() throws IOException {
+        Set<Integer> nodes = new LinkedHashSet<>();
+        for (String line : Files.readAllLines(output, StandardCharsets.UTF_8)) {
+            nodes.add(Integer.valueOf(line));
+        }
+        return new ArrayList<>(nodes);
+    }
+
+    /**
+     * The task run by forked workers, which records each node in a shared file
+     */
+    public static class RecordingTask implements Consumer<Integer> {
+
+        static final String OUTPUT = "dag.test.output";
+        static final String MARKER = "dag.test.marker";
+        static final String CRASHING = "dag.test.crashing";
+
+        private final Path output = Paths.get(System.getProperty(OUTPUT));
+        private final Path marker = Paths.get(System.getProperty(MARKER));
+        private final int crashing = Integer.getInteger(CRASHING);
+
+        @Override
+        public void accept(Integer node) {
+            if (node == crashing) {
+                try {
+                    Files.createFile(marker);
+                    Runtime.getRuntime().halt(1);
+                } catch (FileAlreadyExistsException ignore) {
+                    // Another worker already died on this node
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            try {
+                // Appends this small are atomic, so lines from different workers don't interleave
+                Files.write(output, (node + "\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+    }
+
+}
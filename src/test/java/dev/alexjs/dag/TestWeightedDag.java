@@ -0,0 +1,170 @@
+package dev.alexjs.dag;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+@Timeout(2)
+public class TestWeightedDag {
+
+    private static TestingHelper helper;
+
+    @BeforeAll
+    public static void init() {
+        helper = new TestingHelper();
+    }
+
+    private WeightedDag<String> populatePipeline() {
+
+        //    2     3
+        // a --> b --> d
+        //  \         ^
+        //   --> c --/
+        //    1     1
+        WeightedDag<String> dag = new WeightedDag<>();
+        dag.put("a", "b", 2);
+        dag.put("b", "d", 3);
+        dag.put("a", "c", 1);
+        dag.put("c", "d", 1);
+        dag.add("e");
+        return dag;
+
+    }
+
+    @Test
+    public void testWeights() {
+
+        WeightedDag<String> dag = populatePipeline();
+
+        Assertions.assertEquals(2, dag.getWeight("a", "b"), 0);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dag.getWeight("b", "a"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dag.put("a", "e", Double.NaN));
+
+        // Putting an existing edge without a weight leaves its weight alone
+        Assertions.assertFalse(dag.put("a", "b"));
+        Assertions.assertEquals(2, dag.getWeight("a", "b"), 0);
+
+        Assertions.assertTrue(dag.put("a", "b", 5));
+        Assertions.assertFalse(dag.put("a", "b", 5));
+        Assertions.assertEquals(5, dag.getWeight("a", "b"), 0);
+
+        Assertions.assertTrue(dag.put("a", "e"));
+        Assertions.assertEquals(WeightedDag.DEFAULT_WEIGHT, dag.getWeight("a", "e"), 0);
+
+        WeightedDag<String> inverted = (WeightedDag<String>) dag.inverted();
+        Assertions.assertEquals(5, inverted.getWeight("b", "a"), 0);
+        Assertions.assertEquals(1, inverted.getWeight("d", "c"), 0);
+
+    }
+
+    @Test
+    public void testInvertedHub() {
+
+        // Enough edges into one node that the flipped edges out of it get indexed
+        WeightedDag<Integer> dag = new WeightedDag<>();
+        for (int i = 1; i <= 100; i++) {
+            dag.put(i, 0, i);
+        }
+        dag.removeEdge(50, 0);
+
+        WeightedDag<Integer> inverted = (WeightedDag<Integer>) dag.inverted();
+        Assertions.assertFalse(inverted.containsEdge(0, 50));
+        for (int i = 1; i <= 100; i++) {
+            if (i != 50) {
+                Assertions.assertEquals(i, inverted.getWeight(0, i), 0);
+            }
+        }
+        Assertions.assertEquals(dag, inverted.inverted());
+
+    }
+
+    @Test
+    public void testPaths() {
+
+        WeightedDag<String> dag = populatePipeline();
+
+        WeightedDag.Path<String> longest = dag.longestPath("a", "d");
+        Assertions.assertEquals(Arrays.asList("a", "b", "d"), longest.getNodes());
+        Assertions.assertEquals(5, longest.getWeight(), 0);
+
+        WeightedDag.Path<String> shortest = dag.shortestPath("a", "d");
+        Assertions.assertEquals(Arrays.asList("a", "c", "d"), shortest.getNodes());
+        Assertions.assertEquals(2, shortest.getWeight(), 0);
+
+        Assertions.assertEquals(longest.getNodes(), dag.criticalPath().getNodes());
+        Assertions.assertEquals(Arrays.asList("b", "d"), dag.longestPath("b", "d").getNodes());
+        Assertions.assertEquals(Arrays.asList("a"), dag.shortestPath("a", "a").getNodes());
+
+        Assertions.assertNull(dag.longestPath("d", "a"));
+        Assertions.assertNull(dag.shortestPath("a", "e"));
+        Assertions.assertNull(dag.shortestPath("a", "z"));
+        Assertions.assertTrue(new WeightedDag<String>().criticalPath().getNodes().isEmpty());
+
+        dag.put("d", "a");
+        Assertions.assertThrows(IllegalArgumentException.class, dag::criticalPath);
+
+    }
+
+    @Test
+    public void testMutations() {
+
+        WeightedDag<String> dag = populatePipeline();
+        WeightedDag<String> copy = (WeightedDag<String>) dag.clone();
+        Assertions.assertEquals(copy, dag);
+        Assertions.assertEquals(copy.hashCode(), dag.hashCode());
+
+        Assertions.assertTrue(dag.removeEdge("a", "b"));
+        Assertions.assertFalse(dag.removeEdge("a", "b"));
+        Assertions.assertTrue(dag.getIncoming("b").isEmpty());
+        Assertions.assertNotEquals(copy, dag);
+
+        // Freed ids are reused without mixing up edges
+        Assertions.assertTrue(dag.remove("c"));
+        Assertions.assertTrue(dag.put("f", "d", 7));
+        Assertions.assertEquals(2, dag.getIncoming("d").size());
+        Assertions.assertFalse(dag.contains("c"));
+        Assertions.assertEquals(Arrays.asList("f", "d"), dag.criticalPath().getNodes());
+
+        dag.clear();
+        Assertions.assertTrue(dag.isEmpty());
+        Assertions.assertEquals(5, copy.size());
+
+    }
+
+    @RepeatedTest(10)
+    public void testMatchesHashDag() {
+
+        Dag<Integer> expected = helper.populateDag();
+        WeightedDag<Integer> dag = new WeightedDag<>();
+        for (Map.Entry<Integer, Collection<Integer>> entry : expected.toMap().entrySet()) {
+            dag.putAll(entry.getKey(), entry.getValue());
+        }
+
+        Assertions.assertEquals(expected.toMap(), dag.toMap());
+        Assertions.assertEquals(expected.getRoots(), dag.getRoots());
+        Assertions.assertEquals(expected.getLeaves(), dag.getLeaves());
+        helper.assertOrder(dag, dag.sort());
+
+        int node = helper.getMiddleNode(dag);
+        Assertions.assertEquals(expected.getIncoming(node), dag.getIncoming(node));
+        Assertions.assertEquals(expected.getAncestors(node), dag.getAncestors(node));
+        expected.remove(node);
+        dag.remove(node);
+        Assertions.assertEquals(expected.toMap(), dag.toMap());
+
+        // With unit weights, the critical path is the longest chain of edges
+        WeightedDag.Path<Integer> critical = dag.criticalPath();
+        for (int i = 1; i < critical.getNodes().size(); i++) {
+            Assertions.assertTrue(dag.containsEdge(critical.getNodes().get(i - 1), critical.getNodes().get(i)));
+        }
+        Assertions.assertEquals(critical.getNodes().size() - 1, critical.getWeight(), 0);
+
+    }
+
+}